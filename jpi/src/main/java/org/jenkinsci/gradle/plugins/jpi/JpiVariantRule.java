@@ -44,6 +44,46 @@ public abstract class JpiVariantRule implements ComponentMetadataRule {
     private static final Attribute<String> DESUGARED_LIBRARY_ELEMENTS_ATTRIBUTE = Attribute.of(
             LIBRARY_ELEMENTS_ATTRIBUTE.getName(),
             String.class);
+    /*
+     * Reflective lookups are per class, not per component, so they are resolved once and reused on every cache miss.
+     */
+    private static final ClassValue<Field> METADATA_FIELD = new ClassValue<Field>() {
+        @Override
+        protected Field computeValue(Class<?> type) {
+            try {
+                Field metadata = type.getDeclaredField("metadata");
+                metadata.setAccessible(true);
+                return metadata;
+            } catch (NoSuchFieldException e) {
+                LOGGER.error("`metadata` field does not exist on ComponentMetadataContext", e);
+                throw new RuntimeException(e);
+            }
+        }
+    };
+    private static final ClassValue<Method> GET_VARIANTS = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getMethod("getVariants");
+            } catch (NoSuchMethodException e) {
+                LOGGER.error("`getVariants` method does not exist on `metadata` ({}) of ComponentMetadataContext",
+                        type.getName(), e);
+                throw new RuntimeException(e);
+            }
+        }
+    };
+    private static final ClassValue<Method> GET_ATTRIBUTES = new ClassValue<Method>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getDeclaredMethod("getAttributes");
+            } catch (NoSuchMethodException e) {
+                LOGGER.error("`getAttributes` method does not exist on variant ({}) of ComponentMetadataContext",
+                        type.getName(), e);
+                throw new RuntimeException(e);
+            }
+        }
+    };
 
     /**
      * @return the object factory
@@ -176,23 +216,14 @@ public abstract class JpiVariantRule implements ComponentMetadataRule {
         // TODO this needs public API - https://github.com/gradle/gradle/issues/12349
         Object metadata = getMetadata(ctx);
         try {
-            Method getVariants = metadata.getClass().getMethod("getVariants");
-            List<?> variants = (List<?>) getVariants.invoke(metadata);
-            Method getAttributes = null;
-            if (!variants.isEmpty()) {
-                getAttributes = variants.get(0).getClass().getDeclaredMethod("getAttributes");
-            }
+            List<?> variants = (List<?>) GET_VARIANTS.get(metadata.getClass()).invoke(metadata);
             for (Object variant : variants) {
-                AttributeContainer attributes = (AttributeContainer) getAttributes.invoke(variant);
+                AttributeContainer attributes = (AttributeContainer) GET_ATTRIBUTES.get(variant.getClass()).invoke(variant);
                 if ("jpi".equals(attributes.getAttribute(DESUGARED_LIBRARY_ELEMENTS_ATTRIBUTE))) {
                     return true;
                 }
             }
             return false;
-        } catch (NoSuchMethodException e) {
-            LOGGER.error("`getVariants` method does not exist on `metadata` ({}) of ComponentMetadataContext",
-                    metadata.getClass().getName(), e);
-            throw new RuntimeException(e);
         } catch (InvocationTargetException e) {
             LOGGER.error("Failed to invoke `getVariants` method on `metadata` of ComponentMetadataContext", e);
             throw new RuntimeException(e);
@@ -208,12 +239,7 @@ public abstract class JpiVariantRule implements ComponentMetadataRule {
     
     private static Object getMetadata(ComponentMetadataContext ctx) {
         try {
-            Field metadata = ctx.getClass().getDeclaredField("metadata");
-            metadata.setAccessible(true);
-            return metadata.get(ctx);
-        } catch (NoSuchFieldException e) {
-            LOGGER.error("`metadata` field does not exist on ComponentMetadataContext", e);
-            throw new RuntimeException(e);
+            return METADATA_FIELD.get(ctx.getClass()).get(ctx);
         } catch (IllegalAccessException e) {
             LOGGER.error("Attempt to make `metadata` field on ComponentMetadataContext accessible failed", e);
             throw new RuntimeException(e);
@@ -13,4 +13,8 @@ public interface ArtifactType extends Named {
     String PLUGIN_JAR = "pluginJar";
     /** Default artifact type. */
     String DEFAULT = "default";
+    /** Artifact type for the {@code .hpl} file of a plugin project. */
+    String HPL = "hpl";
+    /** Artifact type for the digest of everything a plugin project's {@code .hpl} file points at. */
+    String HPL_REFERENCES = "hplReferences";
 }
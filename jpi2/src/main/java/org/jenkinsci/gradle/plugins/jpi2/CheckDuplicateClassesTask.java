@@ -0,0 +1,176 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.workers.WorkerExecutor;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds classes that a bundled library shares with another bundled library, Jenkins core, or a library of a
+ * dependency plugin.
+ * <p>
+ * Bundled libraries are chosen by {@code group:name}, so a relocated or renamed artifact shipping the same classes is
+ * still bundled. Its classes then clash with the other copy at runtime and take up metaspace twice. Every file is
+ * indexed by a parallel work item into a {@link ClassIndex}, cached by the hash of the file, so only new files are
+ * read.
+ */
+@CacheableTask
+public abstract class CheckDuplicateClassesTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "checkDuplicateClasses";
+    /** Gradle property that makes duplicate classes fail the build instead of only being reported. */
+    public static final String FAIL_ON_DUPLICATES_PROPERTY = "jpi2.failOnDuplicateClasses";
+
+    private static final int EXAMPLES = 5;
+
+    /** @return libraries bundled into {@code WEB-INF/lib} of the plugin */
+    @Classpath
+    public abstract ConfigurableFileCollection getBundledLibraries();
+
+    /** @return Jenkins core and its libraries */
+    @Classpath
+    public abstract ConfigurableFileCollection getJenkinsCoreClasspath();
+
+    /** @return archives of the plugins the plugin depends on, whose {@code WEB-INF/lib} jars are indexed */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getDependencyPlugins();
+
+    /** @return {@code true} to fail when duplicate classes are found, {@code false} to only report them */
+    @Input
+    public abstract Property<Boolean> getFailOnDuplicates();
+
+    /**
+     * @return directory holding the class tables of files already indexed, shared by every build; tables no build
+     * has used for 30 days are deleted
+     */
+    @Internal
+    public abstract DirectoryProperty getCacheDirectory();
+
+    /** @return report listing every duplicate class and the files that contain it */
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    /** @return the worker executor service */
+    @Inject
+    public abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    void check() {
+        var sources = new ArrayList<File>();
+        var labels = new ArrayList<String>();
+        addSources(getBundledLibraries(), "", sources, labels);
+        var bundledCount = sources.size();
+        addSources(getJenkinsCoreClasspath(), "core:", sources, labels);
+        addSources(getDependencyPlugins(), "plugin:", sources, labels);
+
+        var tables = getTemporaryDir();
+        var workQueue = getWorkerExecutor().noIsolation();
+        for (int i = 0; i < sources.size(); i++) {
+            var source = sources.get(i);
+            var table = new File(tables, i + ".idx");
+            workQueue.submit(IndexClassesAction.class, parameters -> {
+                parameters.getSource().set(source);
+                parameters.getCacheDirectory().set(getCacheDirectory());
+                parameters.getIndexFile().set(table);
+            });
+        }
+        workQueue.await();
+        ClassIndex.deleteUnused(getCacheDirectory().get().getAsFile());
+
+        // Only classes of bundled libraries can be duplicates this plugin is responsible for.
+        Map<Long, List<Integer>> owners = new HashMap<>();
+        for (int i = 0; i < sources.size(); i++) {
+            var hashes = ClassIndex.read(new File(tables, i + ".idx"));
+            if (hashes == null) {
+                throw new GradleException("Unable to read the class index of " + sources.get(i));
+            }
+            for (long hash : hashes) {
+                if (i < bundledCount) {
+                    owners.computeIfAbsent(hash, h -> new ArrayList<>(2)).add(i);
+                } else {
+                    var owner = owners.get(hash);
+                    if (owner != null) {
+                        owner.add(i);
+                    }
+                }
+            }
+        }
+
+        Map<List<Integer>, List<Long>> duplicates = new LinkedHashMap<>();
+        owners.forEach((hash, owner) -> {
+            if (owner.size() > 1) {
+                duplicates.computeIfAbsent(owner, o -> new ArrayList<>()).add(hash);
+            }
+        });
+
+        var report = new StringBuilder();
+        var summary = new ArrayList<String>();
+        var total = 0;
+        try {
+            for (var duplicate : duplicates.entrySet()) {
+                var hashes = duplicate.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+                var names = ClassIndex.namesOf(sources.get(duplicate.getKey().get(0)), hashes);
+                var files = duplicate.getKey().stream().map(labels::get).toList();
+                total += names.size();
+                report.append(String.join(", ", files)).append(": ").append(names.size()).append(" classes\n");
+                names.stream().sorted().forEach(name -> report.append("    ").append(name).append('\n'));
+                summary.add(String.join(", ", files) + " share " + names.size() + " classes, such as "
+                        + String.join(", ", names.stream().sorted().limit(EXAMPLES).toList()));
+            }
+            var destination = getReportFile().get().getAsFile().toPath();
+            Files.createDirectories(destination.getParent());
+            Files.writeString(destination, report.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to report duplicate classes", e);
+        }
+
+        if (summary.isEmpty()) {
+            return;
+        }
+        summary.sort(null);
+        var message = "Found " + total + " duplicate classes in bundled libraries (see " + getReportFile().get().getAsFile()
+                + "):\n  - " + String.join("\n  - ", summary);
+        if (getFailOnDuplicates().get()) {
+            throw new GradleException(message);
+        }
+        getLogger().warn(message);
+    }
+
+    private static void addSources(Iterable<File> files, String prefix, List<File> sources, List<String> labels) {
+        var sorted = new ArrayList<File>();
+        for (File file : files) {
+            if (file.isFile()) {
+                sorted.add(file);
+            }
+        }
+        sorted.sort(null);
+        for (File file : sorted) {
+            sources.add(file);
+            labels.add(prefix + file.getName());
+        }
+    }
+}
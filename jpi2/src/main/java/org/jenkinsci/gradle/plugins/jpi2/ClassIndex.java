@@ -0,0 +1,278 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+/**
+ * The classes a jar, or the libraries of a plugin archive, contain, as a sorted table of 64-bit name hashes.
+ * <p>
+ * A table only depends on the content of the file, so it is cached under the SHA-256 of the file and shared by every
+ * build on the machine. Hashes are compared first; the names behind a matching hash are only read back for the few
+ * files that share it.
+ * <p>
+ * Using a table refreshes its modification time, and tables no build has used for {@link #UNUSED_DAYS} days are
+ * deleted, so the cache only holds the files of current dependency versions.
+ */
+final class ClassIndex {
+    private static final int FORMAT_VERSION = 1;
+    private static final String CLASS_SUFFIX = ".class";
+    private static final String VERSIONED = "META-INF/versions/";
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final String TABLE_SUFFIX = ".idx";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final String CLEANUP_MARKER = "cleanup.marker";
+    /** Days after which a table no build has used is deleted, as Gradle does for its own caches. */
+    static final int UNUSED_DAYS = 30;
+
+    private ClassIndex() {
+    }
+
+    /**
+     * @param file a jar, or a plugin archive whose {@code WEB-INF/lib} jars are indexed
+     * @return whether {@code file} is a plugin archive
+     */
+    static boolean isPluginArchive(File file) {
+        return HpiMetadataRule.PLUGIN_PACKAGINGS.stream().anyMatch(ext -> file.getName().endsWith("." + ext));
+    }
+
+    /**
+     * @param entryName name of a zip entry
+     * @return binary class name of the entry, such as {@code com/example/Foo}, or {@code null} if the entry is not a
+     * class that can clash; classes for a specific Java release count as the class they replace
+     */
+    static String className(String entryName) {
+        if (!entryName.endsWith(CLASS_SUFFIX)) {
+            return null;
+        }
+        var name = entryName;
+        if (name.startsWith(VERSIONED)) {
+            var slash = name.indexOf('/', VERSIONED.length());
+            if (slash < 0) {
+                return null;
+            }
+            name = name.substring(slash + 1);
+        }
+        name = name.substring(0, name.length() - CLASS_SUFFIX.length());
+        if (name.endsWith("module-info") || name.endsWith("package-info")) {
+            return null;
+        }
+        return name;
+    }
+
+    /**
+     * @param className binary class name
+     * @return its 64-bit FNV-1a hash
+     */
+    static long hash(String className) {
+        var hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < className.length(); i++) {
+            hash ^= className.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Visits every class of a jar, or of the {@code WEB-INF/lib} jars of a plugin archive.
+     *
+     * @param file    file to read
+     * @param visitor receives the class name and the jar it was found in, the nested jar name for plugin archives
+     * @throws IOException if the file cannot be read
+     */
+    static void forEachClass(File file, BiConsumer<String, String> visitor) throws IOException {
+        if (!isPluginArchive(file)) {
+            try (var zip = new ZipFile(file)) {
+                var entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    var name = className(entries.nextElement().getName());
+                    if (name != null) {
+                        visitor.accept(name, file.getName());
+                    }
+                }
+            }
+            return;
+        }
+        // The archive is read through its central directory, which also covers stored entries written with a data
+        // descriptor; only the nested jars are streamed.
+        try (var archive = new ZipFile(file)) {
+            var entries = archive.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                if (!JpiArchiveWriter.isNestedJar(entry.getName())) {
+                    continue;
+                }
+                var library = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+                try (var nested = new ZipInputStream(new BufferedInputStream(archive.getInputStream(entry)))) {
+                    for (var nestedEntry = nested.getNextEntry(); nestedEntry != null; nestedEntry = nested.getNextEntry()) {
+                        var name = className(nestedEntry.getName());
+                        if (name != null) {
+                            visitor.accept(name, library);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param file           a jar or plugin archive
+     * @param cacheDirectory directory holding the tables of files already indexed
+     * @return sorted, distinct hashes of the classes of {@code file}
+     * @throws IOException if the file cannot be read
+     */
+    static long[] load(File file, File cacheDirectory) throws IOException {
+        var cached = new File(cacheDirectory, sha256(file) + TABLE_SUFFIX);
+        var hashes = read(cached);
+        if (hashes != null) {
+            markUsed(cached);
+            return hashes;
+        }
+        var collected = new ArrayList<Long>();
+        forEachClass(file, (name, library) -> collected.add(hash(name)));
+        hashes = collected.stream().mapToLong(Long::longValue).sorted().distinct().toArray();
+        write(cached, hashes);
+        return hashes;
+    }
+
+    /**
+     * Deletes the tables that no build has used for {@link #UNUSED_DAYS} days, and temporary files left behind by
+     * builds that were killed. Runs at most once a day per cache directory; failures only leave files for the next run.
+     *
+     * @param cacheDirectory directory holding the tables of files already indexed
+     */
+    static void deleteUnused(File cacheDirectory) {
+        var now = System.currentTimeMillis();
+        var marker = new File(cacheDirectory, CLEANUP_MARKER);
+        if (marker.isFile() && now - marker.lastModified() < TimeUnit.DAYS.toMillis(1)) {
+            return;
+        }
+        var files = cacheDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        try {
+            Files.write(marker.toPath(), new byte[0]);
+        } catch (IOException e) {
+            return;
+        }
+        for (File file : files) {
+            var age = now - file.lastModified();
+            if (file.getName().endsWith(TABLE_SUFFIX) && age > TimeUnit.DAYS.toMillis(UNUSED_DAYS)
+                    || file.getName().endsWith(TEMPORARY_SUFFIX) && age > TimeUnit.DAYS.toMillis(1)) {
+                try {
+                    Files.deleteIfExists(file.toPath());
+                } catch (IOException e) {
+                    // Still in use on Windows; the next run deletes it.
+                }
+            }
+        }
+    }
+
+    /**
+     * Refreshes the modification time of a table, at most once a day, so {@link #deleteUnused(File)} keeps it.
+     */
+    private static void markUsed(File table) {
+        var now = System.currentTimeMillis();
+        if (now - table.lastModified() > TimeUnit.DAYS.toMillis(1)) {
+            table.setLastModified(now);
+        }
+    }
+
+    /**
+     * @param table file written by {@link #write(File, long[])}
+     * @return the hashes, or {@code null} if the file is missing or unreadable
+     */
+    static long[] read(File table) {
+        if (!table.isFile()) {
+            return null;
+        }
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(table.toPath())))) {
+            if (input.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            var hashes = new long[input.readInt()];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = input.readLong();
+            }
+            return hashes;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes to a temporary file first, so builds running at the same time never read a partial table.
+     */
+    static void write(File table, long[] hashes) throws IOException {
+        Path directory = table.getParentFile().toPath();
+        Files.createDirectories(directory);
+        var temporary = Files.createTempFile(directory, table.getName(), TEMPORARY_SUFFIX);
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(hashes.length);
+            for (long hash : hashes) {
+                output.writeLong(hash);
+            }
+        }
+        Files.move(temporary, table.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @param hashes sorted hashes
+     * @param hash   hash to look for
+     * @return whether {@code hashes} contains {@code hash}
+     */
+    static boolean contains(long[] hashes, long hash) {
+        return Arrays.binarySearch(hashes, hash) >= 0;
+    }
+
+    /**
+     * @param file   a jar or plugin archive
+     * @param hashes sorted hashes to look for
+     * @return {@code class (jar)} for every class of {@code file} whose hash is in {@code hashes}
+     * @throws IOException if the file cannot be read
+     */
+    static List<String> namesOf(File file, long[] hashes) throws IOException {
+        var names = new LinkedHashSet<String>();
+        forEachClass(file, (name, library) -> {
+            if (contains(hashes, hash(name))) {
+                names.add(name.replace('/', '.') + " (" + library + ")");
+            }
+        });
+        return List.copyOf(names);
+    }
+
+    private static String sha256(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (var input = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,58 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.plugins.BasePlugin;
+import org.gradle.api.plugins.JavaPluginExtension;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.URI;
+import java.util.stream.Collectors;
+
+/**
+ * Action to configure the {@link GenerateJenkinsManifestTask} from the plugin extension.
+ * <p>
+ * Every value is a provider, so nothing is resolved while the task is configured. {@code Plugin-Dependencies} is
+ * derived from the root of the resolved dependency graph by {@link GenerateJenkinsManifestTask.PluginDependencies}.
+ */
+class ConfigureJenkinsManifestAction implements Action<GenerateJenkinsManifestTask> {
+    private final Project project;
+    private final Configuration configuration;
+    private final JenkinsPluginExtension extension;
+
+    public ConfigureJenkinsManifestAction(Project project, Configuration configuration, JenkinsPluginExtension extension) {
+        this.project = project;
+        this.configuration = configuration;
+        this.extension = extension;
+    }
+
+    @Override
+    public void execute(@NotNull GenerateJenkinsManifestTask task) {
+        task.setGroup(BasePlugin.BUILD_GROUP);
+        task.setDescription("Generates the Jenkins plugin manifest attributes.");
+        task.getGroupId().set(project.provider(() -> project.getGroup().toString()));
+        task.getProjectName().set(project.getName());
+        task.getPluginVersion().set(extension.getEffectiveVersion());
+        task.getShortName().set(extension.getPluginId());
+        task.getLongName().set(extension.getDisplayName());
+        task.getPluginDependencies().set(configuration.getIncoming().getResolutionResult().getRootComponent()
+                .map(new GenerateJenkinsManifestTask.PluginDependencies()));
+        task.getMinimumJavaVersion().set(project.getExtensions().getByType(JavaPluginExtension.class).getToolchain().getLanguageVersion()
+                .orElse(JavaLanguageVersion.of(GenerateJenkinsManifestTask.DEFAULT_MINIMUM_JAVA_VERSION))
+                .map(JavaLanguageVersion::toString));
+        task.getJenkinsVersion().set(extension.getJenkinsVersion());
+        task.getUrl().set(extension.getHomePage().map(URI::toASCIIString));
+        task.getCompatibleSinceVersion().set(extension.getCompatibleSinceVersion());
+        task.getPluginFirstClassLoader().set(extension.getPluginFirstClassLoader());
+        task.getMaskClasses().set(extension.getMaskClasses());
+        task.getPluginDevelopers().set(extension.getPluginDevelopers().map(developers -> developers.isEmpty() ? null : developers.stream()
+                .map(dev -> String.join(":",
+                        dev.getName().getOrElse(""),
+                        dev.getId().getOrElse(""),
+                        dev.getEmail().getOrElse("")))
+                .collect(Collectors.joining(","))));
+        task.getOutputFile().set(project.getLayout().getBuildDirectory().file("jenkins-manifests/jenkins.mf"));
+    }
+}
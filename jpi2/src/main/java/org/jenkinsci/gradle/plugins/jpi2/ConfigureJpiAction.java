@@ -2,8 +2,6 @@ package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
 import org.gradle.api.Project;
-import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.file.CopySpec;
 import org.gradle.api.tasks.bundling.War;
 import org.jetbrains.annotations.NotNull;
 
@@ -15,35 +13,24 @@ import org.jetbrains.annotations.NotNull;
 })
 class ConfigureJpiAction implements Action<War> {
     private final Project project;
-    private final Configuration configuration;
-    private final Configuration jenkinsCore;
     private final JenkinsPluginExtension extension;
 
-    public ConfigureJpiAction(Project project, Configuration configuration, Configuration jenkinsCore, JenkinsPluginExtension extension) {
+    public ConfigureJpiAction(Project project, JenkinsPluginExtension extension) {
         this.project = project;
-        this.configuration = configuration;
-        this.jenkinsCore = jenkinsCore;
         this.extension = extension;
     }
 
     @Override
     public void execute(@NotNull War jpi) {
         jpi.getArchiveExtension().set(extension.getArchiveExtension());
-        jpi.manifest(new ManifestAction(project, configuration, extension));
-        jpi.from(project.getTasks().named("jar"), new Action<>() {
-            @Override
-            public void execute(@NotNull CopySpec copySpec) {
-                copySpec.into("WEB-INF/lib");
-            }
-        });
-        jpi.from(project.file("src/main/webapp"), new Action<>() {
-            @Override
-            public void execute(@NotNull CopySpec copySpec) {
-                copySpec.into("");
-            }
-        });
-        var runtimeClasspathArtifacts = new RuntimeClasspathArtifacts(project, configuration, jenkinsCore);
-        jpi.setClasspath(runtimeClasspathArtifacts.getBundledLibraries());
-        jpi.finalizedBy(V2JpiPlugin.EXPLODED_JPI_TASK);
+        var layout = project.getTasks().named(V2JpiPlugin.EXPLODED_JPI_TASK, ExplodedJpiTask.class)
+                .flatMap(ExplodedJpiTask::getDestinationDirectory);
+        jpi.from(layout);
+        jpi.setPreserveFileTimestamps(false);
+        jpi.setReproducibleFileOrder(true);
+        // JpiArchiveWriter packs the exploded layout, manifest included, in one pass and stores the nested jars
+        // instead of deflating them again, so the War copy action would only write the same archive a second time.
+        jpi.getActions().clear();
+        jpi.doLast(new JpiArchiveWriter.Write(layout));
     }
 }
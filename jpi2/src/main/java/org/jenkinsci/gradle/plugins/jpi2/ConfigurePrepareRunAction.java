@@ -2,48 +2,50 @@ package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
 import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.file.CopySpec;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Comparator;
-
 /**
  * Action to configure the prepareRun task.
  */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
 class ConfigurePrepareRunAction implements Action<Sync> {
     private static final String JPI_EXTENSION = "jpi";
 
     private final TaskProvider<GenerateHplTask> hplTaskProvider;
     private final Provider<String> workDir;
     private final Configuration defaultRuntime;
+    private final ObjectFactory objects;
 
     ConfigurePrepareRunAction(TaskProvider<GenerateHplTask> hplTaskProvider,
                               Provider<String> workDir,
-                              Configuration defaultRuntime) {
+                              Configuration defaultRuntime,
+                              ObjectFactory objects) {
         this.hplTaskProvider = hplTaskProvider;
         this.workDir = workDir;
         this.defaultRuntime = defaultRuntime;
+        this.objects = objects;
     }
 
     @Override
     public void execute(@NotNull Sync sync) {
         sync.into(workDir.map(it -> it + "/plugins"));
-        sync.from(hplTaskProvider);
+        sync.from(hplTaskProvider.flatMap(GenerateHplTask::getHpl));
+        // Plugin projects of this build are linked through their .hpl files instead of their archives.
+        sync.from(PluginArtifacts.projectHplFiles(defaultRuntime, objects, ArtifactType.HPL));
 
-        defaultRuntime.getResolvedConfiguration().getResolvedArtifacts()
-                .stream()
-                .filter(artifact -> HpiMetadataRule.PLUGIN_PACKAGINGS.contains(artifact.getExtension()))
-                .sorted(Comparator.comparing(ResolvedArtifact::getName))
-                .forEach(artifact ->
-                        sync.from(artifact.getFile())
-                                .rename(new DropVersionTransformer(
-                                        artifact.getModuleVersion().getId().getName(),
-                                        artifact.getModuleVersion().getId().getVersion(),
-                                        JPI_EXTENSION
-                                ))
-                );
+        var renamer = PluginArtifacts.renamer(defaultRuntime, JPI_EXTENSION);
+        sync.from(PluginArtifacts.externalFiles(defaultRuntime), new Action<>() {
+            @Override
+            public void execute(@NotNull CopySpec spec) {
+                spec.rename(renamer);
+            }
+        });
     }
 }
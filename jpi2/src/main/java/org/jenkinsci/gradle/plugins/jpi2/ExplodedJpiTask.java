@@ -0,0 +1,137 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DeleteSpec;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.jetbrains.annotations.NotNull;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Assembles the exploded plugin archive, which the {@code jpi} task then packs.
+ * <p>
+ * Only the files whose input changed are placed again. Files are always copied, never linked, so nothing done to the
+ * layout can reach the Gradle dependency cache or the outputs of other tasks.
+ * <p>
+ * This layout is all the {@code jpi} task packs: entries added to the {@code jpi} copy spec are not part of the
+ * archive. Add them to {@link #getWebapp()} or {@link #getWebInf()} instead.
+ */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
+@DisableCachingByDefault(because = "Placing files in a directory is cheaper than restoring them from the cache")
+public abstract class ExplodedJpiTask extends DefaultTask {
+    static final String MANIFEST_PATH = "META-INF/MANIFEST.MF";
+
+    /** @return the plugin jar and the bundled libraries, placed in {@code WEB-INF/lib} */
+    @Incremental
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getLibraries();
+
+    /** @return directories whose content is placed at the root of the plugin archive */
+    @Incremental
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getWebapp();
+
+    /** @return directories whose content is placed in {@code WEB-INF} */
+    @Incremental
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getWebInf();
+
+    /** @return attributes set in the {@code jpi} {@code manifest {}} block */
+    @Input
+    public abstract MapProperty<String, String> getManifestAttributes();
+
+    /** @return Jenkins manifest written to {@value #MANIFEST_PATH} */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getUpstreamManifest();
+
+    /** @return further manifest fragments merged over {@link #getUpstreamManifest()}, in order */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getAdditionalManifests();
+
+    /** @return directory the exploded plugin archive is assembled in */
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDirectory();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    void assemble(InputChanges inputChanges) {
+        var destination = getDestinationDirectory().get().getAsFile();
+        if (!inputChanges.isIncremental()) {
+            getFileSystemOperations().delete(new Action<>() {
+                @Override
+                public void execute(@NotNull DeleteSpec spec) {
+                    spec.delete(destination);
+                }
+            });
+        }
+        var root = destination.toPath();
+        try {
+            place(inputChanges.getFileChanges(getLibraries()), root.resolve("WEB-INF/lib"));
+            place(inputChanges.getFileChanges(getWebapp()), root);
+            place(inputChanges.getFileChanges(getWebInf()), root.resolve("WEB-INF"));
+            writeManifest(root.resolve(MANIFEST_PATH));
+        } catch (IOException e) {
+            throw new GradleException("Unable to assemble " + destination, e);
+        }
+    }
+
+    private static void place(Iterable<FileChange> changes, Path root) throws IOException {
+        for (var change : changes) {
+            if (change.getFileType() == FileType.DIRECTORY) {
+                continue;
+            }
+            var target = root.resolve(change.getNormalizedPath());
+            Files.deleteIfExists(target);
+            if (change.getChangeType() == ChangeType.REMOVED) {
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            Files.copy(change.getFile().toPath(), target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private void writeManifest(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        var manifest = PluginManifests.merge(getManifestAttributes().get(),
+                getUpstreamManifest().getAsFile().get(), getAdditionalManifests());
+        try (OutputStream os = Files.newOutputStream(target)) {
+            manifest.write(os);
+        }
+    }
+}
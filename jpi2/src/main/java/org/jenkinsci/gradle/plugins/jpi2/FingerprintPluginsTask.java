@@ -0,0 +1,145 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Manifest;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Writes a digest of the plugins staged for {@code testServer} that only changes when their content does.
+ * <p>
+ * The staged file names and several manifest attributes carry the plugin version, which a Git-derived version changes
+ * on every commit. The digest ignores file names, the names of the libraries in {@code WEB-INF/lib} and the
+ * version attributes of every manifest, including the versions in {@code Plugin-Dependencies}; the plugins those
+ * refer to are staged as well, so their content is part of the digest anyway. Every other entry is digested by name
+ * and content, and nested jars recursively in the same way.
+ */
+@DisableCachingByDefault(because = "Digesting the plugins is cheaper than a cache lookup")
+public abstract class FingerprintPluginsTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "fingerprintServerPlugins";
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+    private static final String PLUGIN_DEPENDENCIES = "Plugin-Dependencies";
+
+    /** @return plugin archives staged by {@code prepareServer} */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getPluginFiles();
+
+    /** @return file the digest is written to, one line per plugin */
+    @OutputFile
+    public abstract RegularFileProperty getFingerprint();
+
+    @TaskAction
+    void fingerprint() {
+        var digests = new ArrayList<String>();
+        try {
+            for (File file : getPluginFiles()) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                if (isArchive(file.getName())) {
+                    try (InputStream input = Files.newInputStream(file.toPath())) {
+                        digests.add(digestArchive(input));
+                    }
+                } else {
+                    digests.add(digest(Files.readAllBytes(file.toPath())));
+                }
+            }
+            digests.sort(null);
+            var destination = getFingerprint().get().getAsFile().toPath();
+            Files.createDirectories(destination.getParent());
+            Files.writeString(destination, String.join("\n", digests) + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new GradleException("Unable to fingerprint the plugins staged for testServer", e);
+        }
+    }
+
+    private static boolean isArchive(String fileName) {
+        return fileName.endsWith(".jpi") || fileName.endsWith(".hpi") || fileName.endsWith(".jar");
+    }
+
+    private static String digestArchive(InputStream input) throws IOException {
+        var entries = new TreeMap<String, String>();
+        var libraries = new ArrayList<String>();
+        var zip = new ZipInputStream(input);
+        for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+            if (entry.isDirectory()) {
+                continue;
+            }
+            var name = entry.getName();
+            var content = zip.readAllBytes();
+            if (JpiArchiveWriter.isNestedJar(name)) {
+                libraries.add(digestArchive(new ByteArrayInputStream(content)));
+            } else if (name.equals(MANIFEST)) {
+                entries.put(name, digest(normalizeManifest(content)));
+            } else {
+                entries.put(name, digest(content));
+            }
+        }
+        libraries.sort(null);
+        var normalized = new StringBuilder();
+        entries.forEach((name, digest) -> normalized.append(name).append('=').append(digest).append('\n'));
+        libraries.forEach(digest -> normalized.append("WEB-INF/lib/*=").append(digest).append('\n'));
+        return digest(normalized.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] normalizeManifest(byte[] content) throws IOException {
+        var attributes = new TreeMap<String, String>();
+        for (Map.Entry<Object, Object> attribute : new Manifest(new ByteArrayInputStream(content)).getMainAttributes().entrySet()) {
+            attributes.put(attribute.getKey().toString(), attribute.getValue().toString());
+        }
+        V2JpiPlugin.VERSION_MANIFEST_ATTRIBUTES.forEach(attributes::remove);
+        attributes.computeIfPresent(PLUGIN_DEPENDENCIES, (name, value) -> dropDependencyVersions(value));
+        var normalized = new StringBuilder();
+        attributes.forEach((name, value) -> normalized.append(name).append(": ").append(value).append('\n'));
+        return normalized.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param pluginDependencies value such as {@code git:5.7.0,junit:1.0;resolution:=optional}
+     * @return the same dependencies without versions, such as {@code git,junit;resolution:=optional}
+     */
+    private static String dropDependencyVersions(String pluginDependencies) {
+        List<String> dependencies = new ArrayList<>();
+        for (var dependency : pluginDependencies.split(",")) {
+            var parameters = dependency.indexOf(';');
+            var coordinate = parameters < 0 ? dependency : dependency.substring(0, parameters);
+            var separator = coordinate.indexOf(':');
+            dependencies.add((separator < 0 ? coordinate : coordinate.substring(0, separator))
+                    + (parameters < 0 ? "" : dependency.substring(parameters)));
+        }
+        return String.join(",", dependencies);
+    }
+
+    private static String digest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -3,11 +3,13 @@ package org.jenkinsci.gradle.plugins.jpi2;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -15,9 +17,14 @@ import org.gradle.api.tasks.TaskAction;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.jar.Manifest;
@@ -42,19 +49,34 @@ public abstract class GenerateHplTask extends DefaultTask {
     @Classpath
     public abstract ConfigurableFileCollection getLibraries();
 
-    /** @return upstream {@code MANIFEST.MF} whose attributes are copied into the HPL before augmentation */
+    /**
+     * @return digest of the contents of {@link #getLibraries()}; the HPL only lists their paths, so downstream
+     * projects use this file to notice when what the HPL points at has changed
+     */
+    @OutputFile
+    public abstract RegularFileProperty getLibrariesDigest();
+
+    /** @return attributes set in the {@code jar} and {@code jpi} {@code manifest {}} blocks */
+    @Input
+    public abstract MapProperty<String, String> getManifestAttributes();
+
+    /** @return Jenkins manifest whose attributes are copied into the HPL before augmentation */
     @InputFile
     @PathSensitive(PathSensitivity.NONE)
     public abstract RegularFileProperty getUpstreamManifest();
 
+    /** @return further manifest fragments merged over {@link #getUpstreamManifest()}, in order */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getAdditionalManifests();
+
     @TaskAction
     void generate() {
         File destination = getHpl().getAsFile().get();
         destination.getParentFile().mkdirs();
-        Manifest manifest = new Manifest();
-        try (InputStream is = Files.newInputStream(getUpstreamManifest().getAsFile().get().toPath());
-             OutputStream os = Files.newOutputStream(destination.toPath())) {
-            manifest.read(is);
+        try (OutputStream os = Files.newOutputStream(destination.toPath())) {
+            Manifest manifest = PluginManifests.merge(getManifestAttributes().get(),
+                    getUpstreamManifest().getAsFile().get(), getAdditionalManifests());
             manifest.getMainAttributes().putValue("Resource-Path", getResourcePath().get().getAbsolutePath());
 
             List<String> existing = new LinkedList<>();
@@ -65,8 +87,35 @@ public abstract class GenerateHplTask extends DefaultTask {
             }
             manifest.getMainAttributes().putValue("Libraries", String.join(",", existing));
             manifest.write(os);
+            Files.writeString(getLibrariesDigest().getAsFile().get().toPath(), digestLibraries() + "\n", StandardCharsets.UTF_8);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    private String digestLibraries() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (File root : getLibraries()) {
+            if (!root.exists()) {
+                continue;
+            }
+            var rootPath = root.toPath();
+            List<Path> files;
+            try (var paths = Files.walk(rootPath)) {
+                files = paths.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(rootPath.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                try (var input = new DigestInputStream(Files.newInputStream(file), digest)) {
+                    input.transferTo(OutputStream.nullOutputStream());
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 }
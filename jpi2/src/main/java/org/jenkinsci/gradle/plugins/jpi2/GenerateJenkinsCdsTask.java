@@ -0,0 +1,196 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Boots Jenkins once with {@code -XX:ArchiveClassesAtExit} and keeps the resulting dynamic AppCDS archive.
+ * <p>
+ * {@code server}, {@code hplRun} and {@code testServer} pass the archive via {@code -XX:SharedArchiveFile} as long as
+ * its key (JDK, Jenkins version, dependency plugins) still matches; see {@link JenkinsCdsArchive}.
+ */
+public abstract class GenerateJenkinsCdsTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String TASK_NAME = "generateJenkinsCds";
+
+    /** @return JDK used to boot Jenkins; the archive only works with this JDK */
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    /** @return classpath used to launch the embedded Jenkins server (jenkins-war) */
+    @Classpath
+    public abstract ConfigurableFileCollection getJenkinsClasspath();
+
+    /** @return plugins staged by {@code prepareServer}, copied into a throwaway {@code JENKINS_HOME} */
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getPluginsDirectory();
+
+    /** @return dependency plugins that make up the plugin part of the archive key */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getKeyPluginFiles();
+
+    /** @return Jenkins version that is booted */
+    @Input
+    public abstract Property<String> getJenkinsVersion();
+
+    /** @return root directory of the plugin project; the war is exploded below it like for {@code server} */
+    @Input
+    public abstract Property<String> getProjectRoot();
+
+    /** @return seconds to wait for Jenkins to come up before giving up */
+    @Internal
+    public abstract Property<Integer> getTimeoutSeconds();
+
+    /** @return directory receiving the archive and its key */
+    @OutputDirectory
+    public abstract DirectoryProperty getArchiveDirectory();
+
+    /** @return build service that allocates a free TCP port for the training run */
+    @Internal
+    public abstract Property<PortAllocationService> getPortAllocationService();
+
+    @TaskAction
+    void generate() {
+        var outputDir = getArchiveDirectory().get().getAsFile();
+        var archive = new File(outputDir, JenkinsCdsArchive.ARCHIVE_FILE_NAME);
+        var keyFile = new File(outputDir, JenkinsCdsArchive.KEY_FILE_NAME);
+        Path jenkinsHome = null;
+        RuntimeException failure = null;
+        try {
+            Files.deleteIfExists(archive.toPath());
+            Files.deleteIfExists(keyFile.toPath());
+            jenkinsHome = createJenkinsHome();
+
+            var commandLine = new ArrayList<String>();
+            commandLine.add(getJavaLauncher().get().getExecutablePath().getAsFile().getAbsolutePath());
+            commandLine.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+            commandLine.add("-cp");
+            commandLine.add(getJenkinsClasspath().getAsPath());
+            commandLine.add("executable.Main");
+            commandLine.addAll(ServerAction.jenkinsArguments(getProjectRoot().get(), jenkinsHome.toString(),
+                    String.valueOf(getPortAllocationService().get().findAndReserveFreePort())));
+
+            var builder = new ProcessBuilder(commandLine).redirectErrorStream(true);
+            builder.environment().put("JENKINS_HOME", jenkinsHome.toString());
+            var process = builder.start();
+            boolean started = waitForStartup(process);
+            // A regular shutdown is what makes the JVM write the archive.
+            process.destroy();
+            if (!process.waitFor(getTimeoutSeconds().get(), TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new GradleException("Jenkins did not shut down; no CDS archive was written");
+            }
+            if (!started) {
+                throw new GradleException("Jenkins failed to report a successful start (exit code " + process.exitValue() + ")");
+            }
+            if (!archive.isFile()) {
+                throw new GradleException("JVM did not write a CDS archive to " + archive);
+            }
+
+            var key = JenkinsCdsArchive.key(getJavaLauncher().get().getMetadata(), getJenkinsVersion().get(), getKeyPluginFiles());
+            Files.writeString(keyFile.toPath(), key + "\n", StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw failure = new GradleException("IO Exception", e);
+        } catch (InterruptedException e) {
+            throw failure = new GradleException("Process interrupted", e);
+        } catch (RuntimeException e) {
+            throw failure = e;
+        } finally {
+            deleteJenkinsHome(jenkinsHome, failure);
+        }
+    }
+
+    private boolean waitForStartup(Process process) throws IOException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(getTimeoutSeconds().get());
+        var timer = new Thread(() -> {
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+            } catch (InterruptedException e) {
+                return;
+            }
+            process.destroy();
+        });
+        timer.setDaemon(true);
+        timer.start();
+        // The reader stays open: output must keep draining so the JVM never blocks on a full pipe while dumping.
+        var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                getLogger().info(line);
+                if (line.contains("Jenkins is fully up and running")) {
+                    var drain = new Thread(() -> reader.lines().forEach(getLogger()::info));
+                    drain.setDaemon(true);
+                    drain.start();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            timer.interrupt();
+        }
+    }
+
+    private Path createJenkinsHome() throws IOException {
+        Files.createDirectories(getTemporaryDir().toPath());
+        var home = Files.createTempDirectory(getTemporaryDir().toPath(), "jenkins-cds-");
+        var plugins = Files.createDirectories(home.resolve("plugins"));
+        var source = getPluginsDirectory().get().getAsFile().toPath();
+        try (var files = Files.list(source)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (Files.isRegularFile(file)) {
+                    Files.copy(file, plugins.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+        return home;
+    }
+
+    /**
+     * Cleanup failures never hide why the training run failed; they are attached to that failure instead.
+     */
+    private static void deleteJenkinsHome(Path directory, RuntimeException failure) {
+        if (directory == null) {
+            return;
+        }
+        try (var paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            var cleanupFailure = new GradleException("Failed to clean temporary Jenkins home " + directory, e);
+            if (failure == null) {
+                throw cleanupFailure;
+            }
+            failure.addSuppressed(cleanupFailure);
+        }
+    }
+}
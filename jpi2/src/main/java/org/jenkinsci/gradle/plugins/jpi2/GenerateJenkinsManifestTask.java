@@ -0,0 +1,160 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+
+/**
+ * Writes the Jenkins plugin manifest attributes to a file that {@code jar}, {@code jpi} and
+ * {@code generateJenkinsServerHpl} merge from.
+ * <p>
+ * {@code Plugin-Dependencies} needs the resolved dependency graph. Computing it here means it is resolved once per
+ * build instead of once per archive, and an unchanged manifest comes from the build cache.
+ */
+@CacheableTask
+public abstract class GenerateJenkinsManifestTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "generateJenkinsManifest";
+    /** {@code Minimum-Java-Version} when no toolchain is configured. */
+    public static final int DEFAULT_MINIMUM_JAVA_VERSION = 17;
+
+    /** @return group of the project, written to {@code Group-Id} and {@code Implementation-Title} */
+    @Input
+    public abstract Property<String> getGroupId();
+
+    /** @return name of the project, written to {@code Implementation-Title} */
+    @Input
+    public abstract Property<String> getProjectName();
+
+    /** @return plugin version, written to {@code Plugin-Version} and {@code Implementation-Version} */
+    @Input
+    public abstract Property<String> getPluginVersion();
+
+    /** @return plugin id, written to {@code Short-Name} and {@code Extension-Name} */
+    @Input
+    public abstract Property<String> getShortName();
+
+    /** @return display name, written to {@code Long-Name} */
+    @Input
+    @Optional
+    public abstract Property<String> getLongName();
+
+    /** @return direct plugin dependencies as {@code name:version}, comma separated; absent when there are none */
+    @Input
+    @Optional
+    public abstract Property<String> getPluginDependencies();
+
+    /** @return Java release the plugin is compiled for, written to {@code Minimum-Java-Version} */
+    @Input
+    public abstract Property<String> getMinimumJavaVersion();
+
+    /** @return Jenkins core version, written to {@code Jenkins-Version} */
+    @Input
+    @Optional
+    public abstract Property<String> getJenkinsVersion();
+
+    /** @return home page, written to {@code Url} */
+    @Input
+    @Optional
+    public abstract Property<String> getUrl();
+
+    /** @return written to {@code Compatible-Since-Version} */
+    @Input
+    @Optional
+    public abstract Property<String> getCompatibleSinceVersion();
+
+    /** @return whether to write {@code PluginFirstClassLoader: true} */
+    @Input
+    public abstract Property<Boolean> getPluginFirstClassLoader();
+
+    /** @return class prefixes written to {@code Mask-Classes} */
+    @Input
+    public abstract SetProperty<String> getMaskClasses();
+
+    /** @return developers as {@code name:id:email}, comma separated; absent when there are none */
+    @Input
+    @Optional
+    public abstract Property<String> getPluginDevelopers();
+
+    /** @return the manifest file to write */
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    void generate() {
+        var manifest = new Manifest();
+        var attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        var version = getPluginVersion().get();
+        attributes.putValue("Implementation-Title", getGroupId().get() + "#" + getProjectName().get() + ";" + version);
+        attributes.putValue("Implementation-Version", version);
+        putIfPresent(attributes, "Plugin-Dependencies", getPluginDependencies());
+        attributes.putValue("Plugin-Version", version);
+        attributes.putValue("Short-Name", getShortName().get());
+        attributes.putValue("Extension-Name", getShortName().get());
+        attributes.putValue("Group-Id", getGroupId().get());
+        attributes.putValue("Minimum-Java-Version", getMinimumJavaVersion().get());
+        putIfPresent(attributes, "Long-Name", getLongName());
+        putIfPresent(attributes, "Jenkins-Version", getJenkinsVersion());
+        putIfPresent(attributes, "Url", getUrl());
+        putIfPresent(attributes, "Compatible-Since-Version", getCompatibleSinceVersion());
+        if (getPluginFirstClassLoader().get()) {
+            attributes.putValue("PluginFirstClassLoader", "true");
+        }
+        if (!getMaskClasses().get().isEmpty()) {
+            attributes.putValue("Mask-Classes", String.join(" ", getMaskClasses().get()));
+        }
+        putIfPresent(attributes, "Plugin-Developers", getPluginDevelopers());
+
+        var destination = getOutputFile().getAsFile().get();
+        destination.getParentFile().mkdirs();
+        try (var outputStream = new FileOutputStream(destination)) {
+            manifest.write(outputStream);
+        } catch (IOException e) {
+            throw new GradleException("Unable to write Jenkins manifest", e);
+        }
+    }
+
+    private static void putIfPresent(Attributes attributes, String name, Property<String> value) {
+        if (value.isPresent()) {
+            attributes.putValue(name, value.get());
+        }
+    }
+
+    /**
+     * Lists direct plugin dependencies as {@code name:version}; absent when there are none.
+     */
+    static final class PluginDependencies implements Transformer<String, ResolvedComponentResult> {
+        @Override
+        public String transform(@NotNull ResolvedComponentResult root) {
+            var pluginDependencies = root.getDependencies()
+                    .stream()
+                    .filter(it -> !it.isConstraint())
+                    .filter(it -> it instanceof ResolvedDependencyResult)
+                    .map(it -> ((ResolvedDependencyResult) it))
+                    .filter(it -> HpiMetadataRule.PLUGIN_VARIANTS.contains(it.getResolvedVariant().getDisplayName()))
+                    .map(it -> it.getSelected().getModuleVersion())
+                    .filter(Objects::nonNull)
+                    .map(it -> it.getName() + ":" + it.getVersion())
+                    .toList();
+            return pluginDependencies.isEmpty() ? null : String.join(",", pluginDependencies);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.ValueSource;
+import org.gradle.api.provider.ValueSourceParameters;
+
+import java.io.IOException;
+
+/**
+ * Computes the Git-derived version as a {@link ValueSource}, so that the configuration cache re-runs {@code git}
+ * to check whether a cached configuration is still valid instead of treating the version as a constant.
+ */
+public abstract class GitVersionValueSource implements ValueSource<String, GitVersionValueSource.Parameters> {
+
+    /**
+     * Inputs of {@link GitVersion#compute}.
+     */
+    public interface Parameters extends ValueSourceParameters {
+        /** @return root of the Git repository */
+        DirectoryProperty getGitRoot();
+
+        /** @return format string receiving commit depth and abbreviated hash */
+        Property<String> getVersionFormat();
+
+        /** @return prefix prepended to the formatted version */
+        Property<String> getVersionPrefix();
+
+        /** @return length of the abbreviated hash */
+        Property<Integer> getAbbrevLength();
+
+        /** @return whether uncommitted changes are allowed */
+        Property<Boolean> getAllowDirty();
+    }
+
+    @Override
+    public String obtain() {
+        var parameters = getParameters();
+        try {
+            return GitVersion.compute(
+                    parameters.getGitRoot().get().getAsFile().toPath(),
+                    parameters.getVersionFormat().get(),
+                    parameters.getVersionPrefix().get(),
+                    parameters.getAbbrevLength().get(),
+                    parameters.getAllowDirty().get()
+            ).version();
+        } catch (IOException e) {
+            throw new GradleException("Could not compute the Git version", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while computing the Git version", e);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
+import org.gradle.api.artifacts.CacheableRule;
 import org.gradle.api.artifacts.ComponentMetadataContext;
 import org.gradle.api.artifacts.ComponentMetadataDetails;
 import org.gradle.api.artifacts.ComponentMetadataRule;
@@ -9,20 +10,35 @@ import org.gradle.api.artifacts.VariantMetadata;
 import org.gradle.api.artifacts.maven.PomModuleDescriptor;
 import org.gradle.api.model.ObjectFactory;
 import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.Set;
 
 /**
  * Rule to make compile configurations use jar instead of hpi/jpi.
+ * <p>
+ * The outcome depends only on the component's own metadata, so Gradle caches the rewritten metadata rather than
+ * running the rule again for every resolution in every project.
  */
+@CacheableRule
 @SuppressWarnings({
         "Convert2Lambda", // Gradle doesn't like lambdas
 })
 abstract class HpiMetadataRule implements ComponentMetadataRule {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HpiMetadataRule.class);
 
     public static final Set<String> PLUGIN_PACKAGINGS = Set.of("hpi", "jpi");
     public static final String DEFAULT_RUNTIME_VARIANT = "defaultRuntime";
+    /** Variant plugin projects, and the plugins they publish, offer their archive through. */
+    public static final String DEFAULT_RUNTIME_ELEMENTS_VARIANT = "defaultRuntimeElements";
+    /**
+     * Variants carrying a plugin archive. Plugins published with only a POM, which includes every plugin built with
+     * Maven, get {@value #DEFAULT_RUNTIME_VARIANT} from this rule; plugins published with Gradle Module Metadata by
+     * this plugin offer {@value #DEFAULT_RUNTIME_ELEMENTS_VARIANT}. Both are current, neither is a legacy layout.
+     */
+    public static final Set<String> PLUGIN_VARIANTS = Set.of(DEFAULT_RUNTIME_VARIANT, DEFAULT_RUNTIME_ELEMENTS_VARIANT);
 
     @Inject
     public HpiMetadataRule() {
@@ -39,6 +55,7 @@ abstract class HpiMetadataRule implements ComponentMetadataRule {
         }
         var details = componentMetadataContext.getDetails();
         if (PLUGIN_PACKAGINGS.contains(pom.getPackaging())) {
+            LOGGER.debug("Selecting plugin jar variants of {}", details.getId());
             details.withVariant("compile",
                     new DefaultSelectionAction(details, "jar", getObjects().named(ArtifactType.class, ArtifactType.PLUGIN_JAR)));
             details.withVariant("runtime",
@@ -0,0 +1,41 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.IOException;
+
+/**
+ * Work action that writes the {@link ClassIndex} of one jar or plugin archive, reusing a cached one when the file has
+ * been indexed before.
+ */
+public abstract class IndexClassesAction implements WorkAction<IndexClassesAction.Parameters> {
+
+    /**
+     * Work parameters of {@link IndexClassesAction}.
+     */
+    public interface Parameters extends WorkParameters {
+        /** @return the jar or plugin archive to index */
+        RegularFileProperty getSource();
+
+        /** @return directory holding the tables of files already indexed */
+        DirectoryProperty getCacheDirectory();
+
+        /** @return file the table is written to */
+        RegularFileProperty getIndexFile();
+    }
+
+    @Override
+    public void execute() {
+        var source = getParameters().getSource().get().getAsFile();
+        try {
+            var hashes = ClassIndex.load(source, getParameters().getCacheDirectory().get().getAsFile());
+            ClassIndex.write(getParameters().getIndexFile().get().getAsFile(), hashes);
+        } catch (IOException e) {
+            throw new GradleException("Unable to index the classes of " + source, e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.gradle.jvm.toolchain.JavaInstallationMetadata;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.stream.StreamSupport;
+
+/**
+ * Location and key of the AppCDS archive shared by {@code server}, {@code hplRun} and {@code testServer}.
+ * <p>
+ * An archive is only valid for the JDK that wrote it, the Jenkins version it booted and the set of dependency
+ * plugins it loaded. Those three make up the key stored next to the archive: the JDK by vendor and version, the
+ * plugins by name and content, so the key stays the same when the JDK, the Gradle cache or the checkout move. The
+ * project's own plugin is left out of the key so that rebuilding it does not discard the archive.
+ */
+final class JenkinsCdsArchive {
+    static final String ARCHIVE_FILE_NAME = "jenkins.jsa";
+    static final String KEY_FILE_NAME = "jenkins.jsa.key";
+
+    private JenkinsCdsArchive() {
+    }
+
+    /**
+     * @param java           the JDK that runs Jenkins
+     * @param jenkinsVersion the Jenkins version that is booted
+     * @param pluginFiles    the dependency plugins that are staged
+     * @return a stable key for the combination, independent of where the JDK, the Gradle cache or the project live
+     */
+    static String key(JavaInstallationMetadata java, String jenkinsVersion, Iterable<File> pluginFiles) {
+        var digest = sha256();
+        var header = "jdk=" + java.getVendor() + ' ' + java.getJavaRuntimeVersion() + ' ' + java.getJvmVersion() + '\n'
+                + "jenkins=" + jenkinsVersion + '\n';
+        digest.update(header.getBytes(StandardCharsets.UTF_8));
+        var sorted = StreamSupport.stream(pluginFiles.spliterator(), false)
+                .sorted(Comparator.comparing(File::getName))
+                .toList();
+        for (File file : sorted) {
+            digest.update(("plugin=" + file.getName() + '\n').getBytes(StandardCharsets.UTF_8));
+            try (var input = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+                input.transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new GradleException("Unable to read " + file, e);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @param directory archive directory
+     * @param key       the key expected by the launch about to happen
+     * @return the archive file if it exists and was written for {@code key}, otherwise {@code null}
+     */
+    static File findArchive(File directory, String key) {
+        var archive = new File(directory, ARCHIVE_FILE_NAME);
+        var keyFile = new File(directory, KEY_FILE_NAME);
+        if (!archive.isFile() || !keyFile.isFile()) {
+            return null;
+        }
+        try {
+            return Files.readString(keyFile.toPath(), StandardCharsets.UTF_8).trim().equals(key) ? archive : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new GradleException("SHA-256 is not available", e);
+        }
+    }
+}
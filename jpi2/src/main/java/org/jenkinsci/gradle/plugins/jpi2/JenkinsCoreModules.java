@@ -0,0 +1,52 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * A shared Gradle build service that holds the modules of the {@code jenkins-core} dependency graph for each project
+ * and Jenkins version.
+ * <p>
+ * The graph depends on the repositories, component rules and constraints of the project that resolves it, so the
+ * modules are kept per project, and only for the current build. Resolving the graph again in a later build is served
+ * from Gradle's dependency cache.
+ */
+public abstract class JenkinsCoreModules implements BuildService<BuildServiceParameters.None> {
+    /** Name the service is registered under. */
+    static final String NAME = "jenkinsCoreModules";
+
+    private static final Logger LOGGER = Logging.getLogger(JenkinsCoreModules.class);
+
+    private final Map<Key, Set<String>> modules = new ConcurrentHashMap<>();
+
+    /**
+     * Resolves outside of the map, so a project waiting for dependency resolution never blocks other projects.
+     * Two tasks of a project asking at the same time may both resolve; the first result is kept.
+     *
+     * @param projectPath    path of the project whose {@code jenkinsCore} configuration is resolved
+     * @param jenkinsVersion Jenkins version the graph belongs to
+     * @param resolver       resolves the graph as {@code group:name} when the project has not yet
+     * @return {@code group:name} of every module in the {@code jenkins-core} graph
+     */
+    public Set<String> get(String projectPath, String jenkinsVersion, Supplier<Set<String>> resolver) {
+        var key = new Key(projectPath, jenkinsVersion);
+        var known = modules.get(key);
+        if (known != null) {
+            return known;
+        }
+        LOGGER.info("Resolving the jenkins-core {} dependency graph for {}", jenkinsVersion, projectPath);
+        var resolved = Set.copyOf(resolver.get());
+        var previous = modules.putIfAbsent(key, resolved);
+        return previous != null ? previous : resolved;
+    }
+
+    private record Key(String projectPath, String jenkinsVersion) {
+    }
+}
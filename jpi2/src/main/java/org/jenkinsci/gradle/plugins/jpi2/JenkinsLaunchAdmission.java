@@ -0,0 +1,176 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A shared Gradle build service that admits Jenkins launches of {@code testServer} and {@code testHplRun}.
+ * <p>
+ * Each launch starts a nested Gradle daemon and a Jenkins JVM. Gradle limits how many tasks use this service at once,
+ * to {@value #MAX_PARALLEL_LAUNCHES_PROPERTY} and, when {@value #MEMORY_BUDGET_PROPERTY} is set, to as many launches of
+ * the default size as fit into that budget; see {@link #maxParallelUsages(int, long)}. Launches are then queued by the
+ * Gradle scheduler, without holding a worker thread while they wait.
+ * <p>
+ * The service keeps track of the memory it granted. Without a configured budget, it reads the memory available when
+ * the first launch asks for admission, so a build that reuses the configuration cache does not use a stale reading. A
+ * launch that finds the budget used up waits in its task until enough memory is released. Waiting launches are
+ * admitted in the order they asked, so a large instance is not starved by smaller ones.
+ */
+public abstract class JenkinsLaunchAdmission implements BuildService<JenkinsLaunchAdmission.Params> {
+    /** Name the service is registered under. */
+    static final String NAME = "jenkinsLaunchAdmission";
+    /** Gradle property limiting how many Jenkins launches run at the same time. */
+    public static final String MAX_PARALLEL_LAUNCHES_PROPERTY = "jpi2.maxParallelLaunches";
+    /** Gradle property setting the memory, in megabytes, that concurrent Jenkins launches may use together. */
+    public static final String MEMORY_BUDGET_PROPERTY = "jpi2.launchMemoryBudgetMegabytes";
+
+    private static final Logger LOGGER = Logging.getLogger(JenkinsLaunchAdmission.class);
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private int budget;
+    private Semaphore memory;
+
+    /**
+     * Parameters of {@link JenkinsLaunchAdmission}.
+     */
+    public interface Params extends BuildServiceParameters {
+        /**
+         * @return memory, in megabytes, that concurrent Jenkins launches may use together; when absent, the memory
+         * available at the first launch
+         */
+        Property<Long> getMemoryBudgetMegabytes();
+    }
+
+    /**
+     * @return the semaphore holding the budget, created when the first launch asks for admission
+     */
+    private synchronized Semaphore memory() {
+        if (memory == null) {
+            var configured = getParameters().getMemoryBudgetMegabytes();
+            var megabytes = configured.isPresent() ? configured.get() : defaultMemoryBudgetMegabytes();
+            budget = (int) Math.max(1, Math.min(Integer.MAX_VALUE, megabytes));
+            memory = new Semaphore(budget, true);
+        }
+        return memory;
+    }
+
+    /**
+     * @return default for {@value #MAX_PARALLEL_LAUNCHES_PROPERTY}: half of the available processors
+     */
+    static int defaultMaxParallelLaunches() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    }
+
+    /**
+     * @param maxParallelLaunches value of {@value #MAX_PARALLEL_LAUNCHES_PROPERTY}
+     * @param budgetMegabytes     value of {@value #MEMORY_BUDGET_PROPERTY}
+     * @return how many tasks Gradle lets use the service at once: no more than {@code maxParallelLaunches}, and no more
+     * than launches of the default size fit into the budget, but at least one
+     */
+    static int maxParallelUsages(int maxParallelLaunches, long budgetMegabytes) {
+        var defaultLaunch = TestServerTask.DEFAULT_JENKINS_HEAP_MEGABYTES + TestServerTask.NESTED_BUILD_MEGABYTES;
+        return (int) Math.max(1, Math.min(maxParallelLaunches, budgetMegabytes / defaultLaunch));
+    }
+
+    /**
+     * @return default for {@value #MEMORY_BUDGET_PROPERTY}: the memory available on the machine, read from
+     * {@code MemAvailable} on Linux, without the heap the Gradle daemon running the build may still grow into
+     */
+    static long defaultMemoryBudgetMegabytes() {
+        var available = linuxAvailableMemory();
+        if (available < 0) {
+            available = ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+                    ? os.getFreeMemorySize()
+                    : Long.MAX_VALUE;
+        }
+        var runtime = Runtime.getRuntime();
+        return Math.max(1, (available - (runtime.maxMemory() - runtime.totalMemory())) / MEGABYTE);
+    }
+
+    /**
+     * @return {@code MemAvailable} from {@code /proc/meminfo} in bytes, or {@code -1} when it cannot be read. Unlike
+     * the free memory, it includes the page cache the kernel gives back when a process needs it.
+     */
+    private static long linuxAvailableMemory() {
+        var meminfo = Path.of("/proc/meminfo");
+        if (!Files.isReadable(meminfo)) {
+            return -1;
+        }
+        try (var lines = Files.lines(meminfo)) {
+            return lines.filter(line -> line.startsWith("MemAvailable:"))
+                    .map(line -> line.substring("MemAvailable:".length()).trim().split("\\s+")[0])
+                    .mapToLong(kilobytes -> Long.parseLong(kilobytes) * 1024)
+                    .findFirst()
+                    .orElse(-1);
+        } catch (IOException | UncheckedIOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Blocks until the launch fits into the memory budget. A launch that needs more than the whole budget is
+     * admitted once it is the only one running.
+     *
+     * @param taskPath   path of the task launching Jenkins, used in log messages
+     * @param megabytes  memory the launch is expected to need
+     * @return the admission, to be closed once Jenkins has stopped
+     * @throws InterruptedException if the task is interrupted while waiting
+     */
+    public Admission admit(String taskPath, long megabytes) throws InterruptedException {
+        var memory = memory();
+        var permits = (int) Math.max(1, Math.min(megabytes, budget));
+        // A timed tryAcquire respects the fairness of the semaphore, unlike the untimed one.
+        if (memory.tryAcquire(permits, 0, TimeUnit.SECONDS)) {
+            LOGGER.info("Admitted the Jenkins launch of {} with {} MB", taskPath, permits);
+            return new Admission(taskPath, permits, Duration.ZERO);
+        }
+        LOGGER.lifecycle("{} is waiting for {} MB of the {} MB Jenkins launch memory budget ({} MB free)",
+                taskPath, permits, budget, memory.availablePermits());
+        var start = System.nanoTime();
+        memory.acquire(permits);
+        LOGGER.info("Admitted the Jenkins launch of {} with {} MB", taskPath, permits);
+        return new Admission(taskPath, permits, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Memory granted to one Jenkins launch.
+     */
+    public final class Admission implements AutoCloseable {
+        private final String taskPath;
+        private final int permits;
+        private final Duration waited;
+        private boolean released;
+
+        private Admission(String taskPath, int permits, Duration waited) {
+            this.taskPath = taskPath;
+            this.permits = permits;
+            this.waited = waited;
+        }
+
+        /** @return time spent waiting for the admission; zero when the launch was admitted right away */
+        public Duration getWaited() {
+            return waited;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                memory().release(permits);
+                LOGGER.info("Released the Jenkins launch of {}", taskPath);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.logging.Logger;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+
+/**
+ * Captures the output of the nested build launching Jenkins.
+ * <p>
+ * Every line is written to a log file through a buffered writer. The console only gets what the
+ * {@link JenkinsLogVerbosity} asks for; the last lines are kept in a ring buffer so they can be shown when Jenkins
+ * fails to start.
+ */
+final class JenkinsLogCapture implements Closeable {
+    /** Name of the log file in the reports directory of the task. */
+    static final String LOG_FILE = "jenkins.log";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String INDENT = "    ";
+
+    private final Path logFile;
+    private final JenkinsLogVerbosity verbosity;
+    private final int tailLines;
+    private final Logger logger;
+    private final BufferedWriter writer;
+    private final ArrayDeque<String> tail;
+
+    /**
+     * @param logFile   file receiving the full output
+     * @param verbosity what to show on the console
+     * @param tailLines number of trailing lines shown on failure with {@link JenkinsLogVerbosity#TAIL}
+     * @param logger    logger of the task
+     * @throws IOException if the log file cannot be created
+     */
+    JenkinsLogCapture(Path logFile, JenkinsLogVerbosity verbosity, int tailLines, Logger logger) throws IOException {
+        this.logFile = logFile;
+        this.verbosity = verbosity;
+        this.tailLines = verbosity == JenkinsLogVerbosity.TAIL ? Math.max(0, tailLines) : 0;
+        this.logger = logger;
+        this.writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(logFile), StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.tail = new ArrayDeque<>(this.tailLines);
+    }
+
+    /**
+     * @param line line of output
+     * @throws IOException if the log file cannot be written
+     */
+    void accept(String line) throws IOException {
+        writer.write(line);
+        writer.newLine();
+        if (verbosity == JenkinsLogVerbosity.FULL) {
+            logger.lifecycle(INDENT + line);
+        } else if (tailLines > 0) {
+            if (tail.size() == tailLines) {
+                tail.removeFirst();
+            }
+            tail.addLast(line);
+        }
+    }
+
+    /**
+     * Shows a line that reports the outcome of the launch, unless it has been shown already.
+     *
+     * @param line line of output already passed to {@link #accept(String)}
+     */
+    void outcome(String line) {
+        if (verbosity != JenkinsLogVerbosity.FULL) {
+            logger.lifecycle(INDENT + line);
+        }
+    }
+
+    /**
+     * Shows the tail of the log, if kept, and where to find the full log.
+     *
+     * @throws IOException if the log file cannot be written
+     */
+    void failed() throws IOException {
+        writer.flush();
+        if (!tail.isEmpty()) {
+            logger.error("Last {} lines of the Jenkins log:", tail.size());
+            for (var line : tail) {
+                logger.error(INDENT + line);
+            }
+        }
+        logger.error("Full Jenkins log: {}", logFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,54 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Finds the Jenkins JVM that a nested Gradle build launched.
+ * <p>
+ * The JVM is a child of the Gradle daemon, which an earlier build may have started, so it is not always a descendant
+ * of the launched Gradle client. It is recognized by a marker in its arguments instead, such as the unique
+ * {@link ServerAction#commonLibFolderArgument(String) common lib folder}. Descendants of the client are searched first,
+ * so the whole process table is only listed when the daemon was already running.
+ */
+final class JenkinsProcess {
+    private JenkinsProcess() {
+    }
+
+    /**
+     * @param client the launched Gradle client
+     * @param marker argument of the Jenkins JVM
+     * @return the Jenkins JVM, if it is running
+     */
+    static Optional<ProcessHandle> find(ProcessHandle client, String marker) {
+        return Stream.concat(client.descendants(), ProcessHandle.allProcesses())
+                .filter(process -> hasArgument(process, marker))
+                .findFirst();
+    }
+
+    /**
+     * @param jenkins          the Jenkins JVM
+     * @param fallbackJavaHome JDK to use when the one running Jenkins has no {@code jcmd}
+     * @return the {@code jcmd} executable of the JDK running Jenkins
+     */
+    static Path jcmd(ProcessHandle jenkins, String fallbackJavaHome) {
+        var executable = File.separatorChar == '\\' ? "jcmd.exe" : "jcmd";
+        var sibling = jenkins.info().command().map(java -> Path.of(java).resolveSibling(executable));
+        if (sibling.isPresent() && Files.isExecutable(sibling.get())) {
+            return sibling.get();
+        }
+        return Path.of(fallbackJavaHome, "bin", executable);
+    }
+
+    private static boolean hasArgument(ProcessHandle process, String marker) {
+        var info = process.info();
+        return info.arguments()
+                .map(arguments -> Arrays.asList(arguments).contains(marker))
+                .or(() -> info.commandLine().map(commandLine -> commandLine.contains(marker)))
+                .orElse(false);
+    }
+}
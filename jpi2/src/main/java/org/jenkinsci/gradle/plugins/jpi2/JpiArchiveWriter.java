@@ -0,0 +1,384 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.Task;
+import org.gradle.api.file.Directory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.bundling.AbstractArchiveTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a plugin archive from its exploded layout in a single pass, storing nested jars rather than deflating them a
+ * second time.
+ * <p>
+ * Every other entry is deflated on a dedicated pool with one thread per core. Only a few entries ahead of the one
+ * being written are prepared at a time, so memory stays bounded however large the plugin is. Entries are written in
+ * path order, with the manifest first, and each is deflated with the same settings as
+ * {@link java.util.zip.ZipOutputStream}, so the same layout always gives the same bytes, however the work was
+ * scheduled. Jenkins also unpacks stored jars faster when it installs the plugin.
+ */
+final class JpiArchiveWriter {
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int UTF8_NAMES = 0x0800;
+    private static final int VERSION = 20;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+    private static final int MAX_ENTRIES = 0xFFFF;
+    /** 1980-02-01 00:00, the time Gradle gives every entry when file timestamps are not preserved. */
+    private static final int CONSTANT_DOS_TIME = (2 << 21) | (1 << 16);
+
+    private JpiArchiveWriter() {
+    }
+
+    /**
+     * @param name entry name
+     * @return whether the entry is a library jar that is stored as it is
+     */
+    static boolean isNestedJar(String name) {
+        return name.startsWith("WEB-INF/lib/") && name.endsWith(".jar");
+    }
+
+    /**
+     * Writes {@code archive} from the files in {@code layout}.
+     *
+     * @param layout             exploded plugin archive
+     * @param archive            archive to write
+     * @param preserveTimestamps whether entries keep the modification time of their file, taken in UTC
+     */
+    static void write(Path layout, File archive, boolean preserveTimestamps) {
+        var written = new File(archive.getParentFile(), archive.getName() + ".tmp");
+        var threads = Runtime.getRuntime().availableProcessors();
+        var executor = Executors.newFixedThreadPool(threads, new WriterThreads());
+        try {
+            var entries = entries(layout);
+            if (entries.size() > MAX_ENTRIES) {
+                throw new GradleException(layout + " has more than " + MAX_ENTRIES + " entries");
+            }
+            Files.createDirectories(archive.getParentFile().toPath());
+            try (var output = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(written.toPath())))) {
+                write(entries, output, executor, 2 * threads, preserveTimestamps);
+            }
+            Files.move(written.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | UncheckedIOException e) {
+            throw new GradleException("Unable to write " + archive, e);
+        } finally {
+            executor.shutdownNow();
+            written.delete();
+        }
+    }
+
+    /**
+     * @return the entries of the layout, with the manifest first as {@link java.util.jar.JarInputStream} expects
+     */
+    private static List<Entry> entries(Path layout) throws IOException {
+        var entries = new ArrayList<Entry>();
+        entries.add(new Entry("META-INF/", null));
+        var manifest = layout.resolve(ExplodedJpiTask.MANIFEST_PATH);
+        if (Files.isRegularFile(manifest)) {
+            entries.add(new Entry(ExplodedJpiTask.MANIFEST_PATH, manifest));
+        }
+        List<Path> paths;
+        try (var walk = Files.walk(layout)) {
+            paths = walk.filter(path -> !path.equals(layout)).toList();
+        }
+        paths.stream()
+                .map(path -> {
+                    var name = layout.relativize(path).toString().replace(File.separatorChar, '/');
+                    return Files.isDirectory(path) ? new Entry(name + "/", null) : new Entry(name, path);
+                })
+                .filter(entry -> !entry.name.equals("META-INF/") && !entry.name.equals(ExplodedJpiTask.MANIFEST_PATH))
+                .sorted((a, b) -> a.name.compareTo(b.name))
+                .forEach(entries::add);
+        return entries;
+    }
+
+    private static void write(List<Entry> entries, CountingOutputStream output, ExecutorService executor, int ahead,
+                              boolean preserveTimestamps) throws IOException {
+        var central = new ByteArrayOutputStream();
+        var pending = new ArrayDeque<Future<Prepared>>();
+        var next = 0;
+        for (var entry : entries) {
+            while (next < entries.size() && pending.size() < ahead) {
+                var upcoming = entries.get(next++);
+                pending.add(executor.submit(() -> prepare(upcoming)));
+            }
+            var prepared = join(pending.remove());
+            var name = entry.name.getBytes(StandardCharsets.UTF_8);
+            var directory = entry.file == null;
+            var method = prepared.deflated != null ? ZipEntry.DEFLATED : ZipEntry.STORED;
+            var compressedSize = prepared.deflated != null ? prepared.deflated.length : prepared.size;
+            var dosTime = preserveTimestamps && !directory
+                    ? dosTime(Files.getLastModifiedTime(entry.file).toMillis())
+                    : CONSTANT_DOS_TIME;
+            var offset = output.count;
+            if (offset > MAX_OFFSET || prepared.size > MAX_OFFSET) {
+                throw new GradleException("Archive is too large for the plugin archive writer");
+            }
+
+            writeInt(output, LOCAL_HEADER);
+            writeShort(output, VERSION);
+            writeShort(output, UTF8_NAMES);
+            writeShort(output, method);
+            writeInt(output, dosTime);
+            writeInt(output, (int) prepared.crc);
+            writeInt(output, (int) compressedSize);
+            writeInt(output, (int) prepared.size);
+            writeShort(output, name.length);
+            writeShort(output, 0);
+            output.write(name);
+            if (prepared.deflated != null) {
+                output.write(prepared.deflated);
+            } else if (!directory) {
+                try (var input = Files.newInputStream(entry.file)) {
+                    input.transferTo(output);
+                }
+            }
+
+            writeInt(central, CENTRAL_HEADER);
+            writeShort(central, VERSION);
+            writeShort(central, VERSION);
+            writeShort(central, UTF8_NAMES);
+            writeShort(central, method);
+            writeInt(central, dosTime);
+            writeInt(central, (int) prepared.crc);
+            writeInt(central, (int) compressedSize);
+            writeInt(central, (int) prepared.size);
+            writeShort(central, name.length);
+            writeShort(central, 0);
+            writeShort(central, 0);
+            writeShort(central, 0);
+            writeShort(central, 0);
+            writeInt(central, directory ? 0x10 : 0);
+            writeInt(central, (int) offset);
+            central.write(name);
+        }
+        var centralOffset = output.count;
+        if (centralOffset > MAX_OFFSET) {
+            throw new GradleException("Archive is too large for the plugin archive writer");
+        }
+        central.writeTo(output);
+        writeInt(output, END_OF_CENTRAL_DIRECTORY);
+        writeShort(output, 0);
+        writeShort(output, 0);
+        writeShort(output, entries.size());
+        writeShort(output, entries.size());
+        writeInt(output, central.size());
+        writeInt(output, (int) centralOffset);
+        writeShort(output, 0);
+    }
+
+    private static Prepared join(Future<Prepared> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while writing the plugin archive", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new GradleException("Unable to prepare an entry of the plugin archive", e.getCause());
+        }
+    }
+
+    /**
+     * Computes the checksum of a stored entry, or deflates any other entry.
+     */
+    private static Prepared prepare(Entry entry) throws IOException {
+        if (entry.file == null) {
+            return new Prepared(null, 0, 0);
+        }
+        var store = isNestedJar(entry.name);
+        var deflater = store ? null : new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        var crc = new CRC32();
+        var compressed = store ? null : new ByteArrayOutputStream();
+        var buffer = new byte[8192];
+        var out = new byte[8192];
+        long size = 0;
+        try (InputStream input = Files.newInputStream(entry.file)) {
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                crc.update(buffer, 0, read);
+                size += read;
+                if (deflater != null) {
+                    deflater.setInput(buffer, 0, read);
+                    while (!deflater.needsInput()) {
+                        compressed.write(out, 0, deflater.deflate(out));
+                    }
+                }
+            }
+            if (deflater == null) {
+                return new Prepared(null, crc.getValue(), size);
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed.write(out, 0, deflater.deflate(out));
+            }
+            return new Prepared(compressed.toByteArray(), crc.getValue(), size);
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    private static int dosTime(long time) {
+        var dateTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC);
+        if (dateTime.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (dateTime.getYear() - 1980) << 25
+                | dateTime.getMonthValue() << 21
+                | dateTime.getDayOfMonth() << 16
+                | dateTime.getHour() << 11
+                | dateTime.getMinute() << 5
+                | dateTime.getSecond() >> 1;
+    }
+
+    private static void writeShort(OutputStream output, int value) throws IOException {
+        output.write(value & 0xFF);
+        output.write((value >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream output, int value) throws IOException {
+        writeShort(output, value & 0xFFFF);
+        writeShort(output, (value >>> 16) & 0xFFFF);
+    }
+
+    /**
+     * @param name entry name, ending with {@code /} for directories
+     * @param file file of the entry, or {@code null} for directories
+     */
+    private record Entry(String name, Path file) {
+    }
+
+    /**
+     * @param deflated compressed data, or {@code null} for stored entries and directories
+     */
+    private record Prepared(byte[] deflated, long crc, long size) {
+    }
+
+    private static final class WriterThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            var thread = new Thread(runnable, "jpi-archive-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long count;
+
+        private CountingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Task action writing the archive of the task it is added to from the exploded layout.
+     * <p>
+     * The copy spec of the task is not used, so a spec that adds files beyond the layout, or leaves files of the layout
+     * out, fails the build rather than silently missing from the archive.
+     */
+    static final class Write implements Action<Task> {
+        private final Provider<Directory> layout;
+
+        Write(Provider<Directory> layout) {
+            this.layout = layout;
+        }
+
+        @Override
+        public void execute(@NotNull Task task) {
+            var archiveTask = (AbstractArchiveTask) task;
+            var root = layout.get().getAsFile().toPath().toAbsolutePath().normalize();
+            checkSources(archiveTask, root);
+            write(root, archiveTask.getArchiveFile().get().getAsFile(), archiveTask.isPreserveFileTimestamps());
+        }
+
+        private static void checkSources(AbstractArchiveTask task, Path layout) {
+            var packed = new HashSet<Path>();
+            var added = new TreeSet<String>();
+            for (File file : task.getSource()) {
+                var path = file.toPath().toAbsolutePath().normalize();
+                if (path.startsWith(layout)) {
+                    packed.add(path);
+                } else {
+                    added.add(file.getPath());
+                }
+            }
+            var left = new TreeSet<String>();
+            try (var files = Files.walk(layout)) {
+                files.filter(Files::isRegularFile)
+                        .filter(file -> !packed.contains(file))
+                        .forEach(file -> left.add(layout.relativize(file).toString().replace(File.separatorChar, '/')));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (added.isEmpty() && left.isEmpty()) {
+                return;
+            }
+            var message = new StringBuilder("The ").append(task.getName())
+                    .append(" task packs the explodedJpi layout as it is, so its own copy spec cannot change the archive.");
+            if (!added.isEmpty()) {
+                message.append("\nFiles added with from: ").append(String.join(", ", added));
+            }
+            if (!left.isEmpty()) {
+                message.append("\nFiles of the layout left out: ").append(String.join(", ", left));
+            }
+            message.append("\nAdd or exclude files through the webapp or webInf files of explodedJpi instead.");
+            throw new GradleException(message.toString());
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes the JSON reports of {@link TestServerTask}, indented by two spaces.
+ * <p>
+ * Values are maps with string keys, lists, strings, numbers, booleans or {@code null}.
+ */
+final class JsonWriter {
+    private static final String INDENT = "  ";
+
+    private JsonWriter() {
+    }
+
+    /**
+     * @param value value to write
+     * @return the JSON document, ending with a line break
+     */
+    static String write(Object value) {
+        var out = new StringBuilder();
+        write(out, value, "");
+        return out.append('\n').toString();
+    }
+
+    private static void write(StringBuilder out, Object value, String indent) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof String string) {
+            quote(out, string);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else if (value instanceof Map<?, ?> map) {
+            writeMap(out, map, indent);
+        } else if (value instanceof List<?> list) {
+            writeList(out, list, indent);
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass().getName() + " as JSON");
+        }
+    }
+
+    private static void writeMap(StringBuilder out, Map<?, ?> map, String indent) {
+        if (map.isEmpty()) {
+            out.append("{}");
+            return;
+        }
+        var inner = indent + INDENT;
+        out.append("{\n");
+        for (Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator(); entries.hasNext(); ) {
+            var entry = entries.next();
+            out.append(inner);
+            quote(out, String.valueOf(entry.getKey()));
+            out.append(": ");
+            write(out, entry.getValue(), inner);
+            out.append(entries.hasNext() ? ",\n" : "\n");
+        }
+        out.append(indent).append('}');
+    }
+
+    private static void writeList(StringBuilder out, List<?> list, String indent) {
+        if (list.isEmpty()) {
+            out.append("[]");
+            return;
+        }
+        var inner = indent + INDENT;
+        out.append("[\n");
+        for (int i = 0; i < list.size(); i++) {
+            out.append(inner);
+            write(out, list.get(i), inner);
+            out.append(i < list.size() - 1 ? ",\n" : "\n");
+        }
+        out.append(indent).append(']');
+    }
+
+    private static void quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
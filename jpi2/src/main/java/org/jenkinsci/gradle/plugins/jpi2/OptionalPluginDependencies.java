@@ -0,0 +1,151 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.jar.JarFile;
+
+/**
+ * Resolves the plugins that the resolved plugins of a configuration depend on optionally.
+ * <p>
+ * Maven leaves optional dependencies out of the dependency graph, so those plugins are not resolved with the rest.
+ * Their short names and versions come from the {@code Plugin-Dependencies} of the resolved plugins, and their groups
+ * from the optional dependencies in the POMs of those plugins. Plugins that cannot be found are left out.
+ * <p>
+ * Created while the build is configured, so resolving only goes through the configuration container and
+ * dependency handler it was given, never through the project.
+ */
+final class OptionalPluginDependencies implements Callable<Set<File>> {
+    private final Configuration plugins;
+    private final ConfigurationContainer configurations;
+    private final DependencyHandler dependencies;
+
+    OptionalPluginDependencies(Configuration plugins, ConfigurationContainer configurations, DependencyHandler dependencies) {
+        this.plugins = plugins;
+        this.configurations = configurations;
+        this.dependencies = dependencies;
+    }
+
+    @Override
+    public Set<File> call() {
+        var present = new HashSet<String>();
+        var missing = new TreeMap<String, String>();
+        var poms = new ArrayList<String>();
+        for (ResolvedArtifact artifact : plugins.getResolvedConfiguration().getResolvedArtifacts()) {
+            if (!HpiMetadataRule.PLUGIN_PACKAGINGS.contains(artifact.getExtension())
+                    || !(artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier module)) {
+                continue;
+            }
+            try (var jar = new JarFile(artifact.getFile())) {
+                var attributes = jar.getManifest() == null ? null : jar.getManifest().getMainAttributes();
+                var shortName = attributes == null ? null : attributes.getValue("Short-Name");
+                present.add(shortName != null ? shortName : module.getModule());
+                if (attributes != null) {
+                    RequiredPluginClosure.optionalPluginVersions(attributes.getValue("Plugin-Dependencies"))
+                            .forEach((name, version) -> missing.merge(name, version,
+                                    (a, b) -> VerifyPluginLoadTask.compareVersions(a, b) >= 0 ? a : b));
+                }
+            } catch (IOException e) {
+                throw new GradleException("Could not read manifest of " + artifact.getFile(), e);
+            }
+            poms.add(module.getGroup() + ":" + module.getModule() + ":" + module.getVersion());
+        }
+        missing.keySet().removeAll(present);
+        if (missing.isEmpty()) {
+            return Set.of();
+        }
+
+        var declared = optionalDependencies(resolve(poms, "pom"), missing.keySet());
+        var coordinates = new ArrayList<String>();
+        missing.forEach((name, version) -> {
+            var dependency = declared.get(name);
+            // Entries of Plugin-Dependencies without a version fall back to the version in the POM.
+            var effectiveVersion = version.isEmpty() && dependency != null ? dependency.version() : version;
+            if (dependency != null && !effectiveVersion.isEmpty() && !effectiveVersion.contains("${")) {
+                coordinates.add(dependency.group() + ":" + name + ":" + effectiveVersion);
+            }
+        });
+        var files = new LinkedHashSet<File>();
+        for (var extension : HpiMetadataRule.PLUGIN_PACKAGINGS) {
+            files.addAll(resolve(coordinates, extension));
+        }
+        return files;
+    }
+
+    /**
+     * @return the optional dependencies named in {@code artifactIds}, by artifact ID
+     */
+    private static Map<String, PomDependency> optionalDependencies(Set<File> poms, Set<String> artifactIds) {
+        var builder = PomElements.createDocumentBuilder();
+        var dependencies = new HashMap<String, PomDependency>();
+        for (var pom : poms) {
+            Element project;
+            try {
+                project = builder.parse(pom).getDocumentElement();
+            } catch (IOException | SAXException e) {
+                throw new GradleException("Could not parse " + pom, e);
+            }
+            var projectGroup = PomElements.directChildText(project, "groupId");
+            var parent = PomElements.directChild(project, "parent");
+            if (projectGroup.isEmpty() && parent != null) {
+                projectGroup = PomElements.directChildText(parent, "groupId");
+            }
+            var declared = PomElements.directChild(project, "dependencies");
+            if (declared == null) {
+                continue;
+            }
+            for (var dependency : PomElements.childElements(declared)) {
+                var artifactId = PomElements.directChildText(dependency, "artifactId");
+                if (artifactIds.contains(artifactId) && "true".equals(PomElements.directChildText(dependency, "optional"))) {
+                    var group = PomElements.directChildText(dependency, "groupId")
+                            .replace("${project.groupId}", projectGroup)
+                            .replace("${pom.groupId}", projectGroup);
+                    dependencies.putIfAbsent(artifactId, new PomDependency(group, PomElements.directChildText(dependency, "version")));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    /**
+     * @return the files with the given extension of the given modules; missing ones are left out
+     */
+    private Set<File> resolve(List<String> coordinates, String extension) {
+        if (coordinates.isEmpty()) {
+            return Set.of();
+        }
+        var detached = configurations.detachedConfiguration(coordinates.stream()
+                .map(coordinate -> dependencies.create(coordinate + "@" + extension))
+                .toArray(Dependency[]::new));
+        return detached.getIncoming().artifactView(new Action<>() {
+            @Override
+            public void execute(@NotNull ArtifactView.ViewConfiguration view) {
+                view.setLenient(true);
+            }
+        }).getFiles().getFiles();
+    }
+
+    private record PomDependency(String group, String version) {
+    }
+}
@@ -0,0 +1,247 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.LibraryElements;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Lazily selects and names the plugin archives of a resolved configuration for staging into a Jenkins
+ * {@code plugins} directory.
+ * <p>
+ * Everything is derived from resolution-result providers, so {@code prepareServer} and {@code prepareRun} are
+ * configured without resolving anything.
+ * <p>
+ * Plugin projects of the same build are reached the same way as published plugins: their {@code defaultRuntimeElements}
+ * configuration carries the {@code jpi} archive, plus secondary variants for the {@code .hpl} file and its
+ * {@linkplain GenerateHplTask#getLibrariesDigest() digest}. No other project is ever looked at directly.
+ */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
+final class PluginArtifacts {
+    /** {@link LibraryElements} of the HPL variants; libraries do not offer it, so they never match by accident. */
+    static final String HPL_LIBRARY_ELEMENTS = "jenkins-hpl";
+
+    private PluginArtifacts() {
+    }
+
+    /**
+     * @param configuration configuration resolving to plugin archives (usually {@code defaultRuntime})
+     * @param pluginSet     which plugins to keep
+     * @param index         build-wide manifest cache, consulted for {@link ServerPluginSet#REQUIRED}
+     * @return the plugin archives, sorted by file name
+     */
+    static Provider<List<File>> files(Configuration configuration, ServerPluginSet pluginSet, Provider<PluginManifestIndex> index) {
+        return configuration.getIncoming().getArtifacts().getResolvedArtifacts()
+                .zip(configuration.getIncoming().getResolutionResult().getRootComponent(), new Select(pluginSet, index));
+    }
+
+    /**
+     * @param configuration configuration resolving to plugin archives (usually {@code defaultRuntime})
+     * @return the archives of published plugins, leaving out plugin projects of this build
+     */
+    static Provider<List<File>> externalFiles(Configuration configuration) {
+        var view = configuration.getIncoming().artifactView(new Action<>() {
+            @Override
+            public void execute(@NotNull ArtifactView.ViewConfiguration view) {
+                view.componentFilter(new ExternalComponents());
+            }
+        });
+        return view.getArtifacts().getResolvedArtifacts().map(new PluginFiles());
+    }
+
+    /**
+     * @param configuration configuration whose plugin project dependencies to look at (usually {@code defaultRuntime})
+     * @param objects       object factory for the attribute values
+     * @param artifactType  {@link ArtifactType#HPL} or {@link ArtifactType#HPL_REFERENCES}
+     * @return the matching HPL variant files of the plugin projects {@code configuration} depends on
+     */
+    static FileCollection projectHplFiles(Configuration configuration, ObjectFactory objects, String artifactType) {
+        return configuration.getIncoming().artifactView(new Action<>() {
+            @Override
+            public void execute(@NotNull ArtifactView.ViewConfiguration view) {
+                view.componentFilter(new ProjectComponents());
+                view.attributes(attributes -> hplAttributes(attributes, objects, artifactType));
+                // Library projects have no HPL variant; they are skipped rather than failing the view.
+                view.lenient(true);
+            }
+        }).getFiles();
+    }
+
+    /**
+     * @param attributes   attributes of an HPL variant or of a view selecting it
+     * @param objects      object factory for the attribute values
+     * @param artifactType {@link ArtifactType#HPL} or {@link ArtifactType#HPL_REFERENCES}
+     */
+    static void hplAttributes(AttributeContainer attributes, ObjectFactory objects, String artifactType) {
+        attributes.attribute(ArtifactType.ARTIFACT_TYPE_ATTRIBUTE, objects.named(ArtifactType.class, artifactType));
+        attributes.attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, objects.named(LibraryElements.class, HPL_LIBRARY_ELEMENTS));
+    }
+
+    /**
+     * @param configuration   configuration resolving to plugin archives (usually {@code defaultRuntime})
+     * @param targetExtension archive extension to normalise to (e.g. {@code jpi} or {@code hpi})
+     * @return a rename transformer dropping the version from each plugin archive of {@code configuration}
+     */
+    static Transformer<String, String> renamer(Configuration configuration, String targetExtension) {
+        return new Rename(configuration.getIncoming().getArtifacts().getResolvedArtifacts()
+                .zip(configuration.getIncoming().getResolutionResult().getRootComponent(), new Names(targetExtension)));
+    }
+
+    private static boolean isPlugin(ResolvedArtifactResult artifact) {
+        var name = artifact.getFile().getName();
+        var dot = name.lastIndexOf('.');
+        return dot >= 0 && HpiMetadataRule.PLUGIN_PACKAGINGS.contains(name.substring(dot + 1));
+    }
+
+    private static String baseName(String fileName) {
+        var dot = fileName.lastIndexOf('.');
+        return dot < 0 ? fileName : fileName.substring(0, dot);
+    }
+
+    private static List<ResolvedArtifactResult> plugins(Collection<ResolvedArtifactResult> artifacts) {
+        return artifacts.stream()
+                .filter(PluginArtifacts::isPlugin)
+                .sorted(Comparator.comparing(it -> it.getFile().getName()))
+                .toList();
+    }
+
+    private static Map<ComponentIdentifier, ModuleVersionIdentifier> moduleVersions(ResolvedComponentResult root) {
+        Map<ComponentIdentifier, ModuleVersionIdentifier> result = new HashMap<>();
+        Set<ComponentIdentifier> visited = new HashSet<>();
+        var queue = new ArrayDeque<ResolvedComponentResult>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            var component = queue.removeFirst();
+            if (!visited.add(component.getId())) {
+                continue;
+            }
+            if (component.getModuleVersion() != null) {
+                result.put(component.getId(), component.getModuleVersion());
+            }
+            component.getDependencies().stream()
+                    .filter(it -> it instanceof ResolvedDependencyResult)
+                    .map(it -> ((ResolvedDependencyResult) it).getSelected())
+                    .forEach(queue::add);
+        }
+        return result;
+    }
+
+    private static final class ExternalComponents implements Spec<ComponentIdentifier> {
+        @Override
+        public boolean isSatisfiedBy(ComponentIdentifier id) {
+            return !(id instanceof ProjectComponentIdentifier);
+        }
+    }
+
+    private static final class ProjectComponents implements Spec<ComponentIdentifier> {
+        @Override
+        public boolean isSatisfiedBy(ComponentIdentifier id) {
+            return id instanceof ProjectComponentIdentifier;
+        }
+    }
+
+    /**
+     * Picks the plugin archives.
+     */
+    private static final class PluginFiles implements Transformer<List<File>, Set<ResolvedArtifactResult>> {
+        @NotNull
+        @Override
+        public List<File> transform(@NotNull Set<ResolvedArtifactResult> artifacts) {
+            return plugins(artifacts).stream().map(ResolvedArtifactResult::getFile).toList();
+        }
+    }
+
+    /**
+     * Picks the plugin archives, narrowed to the required closure for {@link ServerPluginSet#REQUIRED}.
+     */
+    private static final class Select implements BiFunction<Set<ResolvedArtifactResult>, ResolvedComponentResult, List<File>> {
+        private final ServerPluginSet pluginSet;
+        private final Provider<PluginManifestIndex> index;
+
+        Select(ServerPluginSet pluginSet, Provider<PluginManifestIndex> index) {
+            this.pluginSet = pluginSet;
+            this.index = index;
+        }
+
+        @Override
+        public List<File> apply(Set<ResolvedArtifactResult> artifacts, ResolvedComponentResult root) {
+            Collection<ResolvedArtifactResult> plugins = plugins(artifacts);
+            if (pluginSet == ServerPluginSet.REQUIRED) {
+                plugins = RequiredPluginClosure.compute(root, plugins, index.get());
+            }
+            return plugins.stream().map(ResolvedArtifactResult::getFile).toList();
+        }
+    }
+
+    /**
+     * Maps each plugin archive file name, without extension, to its versionless target name.
+     */
+    private static final class Names implements BiFunction<Set<ResolvedArtifactResult>, ResolvedComponentResult, Map<String, String>> {
+        private final String targetExtension;
+
+        Names(String targetExtension) {
+            this.targetExtension = targetExtension;
+        }
+
+        @Override
+        public Map<String, String> apply(Set<ResolvedArtifactResult> artifacts, ResolvedComponentResult root) {
+            var moduleVersions = moduleVersions(root);
+            Map<String, String> names = new HashMap<>();
+            for (ResolvedArtifactResult artifact : plugins(artifacts)) {
+                var fileName = artifact.getFile().getName();
+                var moduleVersion = moduleVersions.get(artifact.getId().getComponentIdentifier());
+                names.put(baseName(fileName), moduleVersion == null ? fileName
+                        : new DropVersionTransformer(moduleVersion.getName(), moduleVersion.getVersion(), targetExtension).transform(fileName));
+            }
+            return names;
+        }
+    }
+
+    /**
+     * Renames staged plugin archives; the name table is computed on first use, i.e. when the copy runs.
+     * Lookups ignore the extension because renames of the enclosing spec may already have normalised it.
+     */
+    private static final class Rename implements Transformer<String, String> {
+        private final Provider<Map<String, String>> names;
+        private transient Map<String, String> resolved;
+
+        Rename(Provider<Map<String, String>> names) {
+            this.names = names;
+        }
+
+        @NotNull
+        @Override
+        public String transform(@NotNull String fileName) {
+            if (resolved == null) {
+                resolved = names.get();
+            }
+            return resolved.getOrDefault(baseName(fileName), fileName);
+        }
+    }
+}
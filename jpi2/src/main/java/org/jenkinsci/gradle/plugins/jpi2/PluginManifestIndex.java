@@ -0,0 +1,59 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * A shared Gradle build service that reads the manifest of each plugin archive once per build.
+ * <p>
+ * In a multi-project build every plugin project stages mostly the same plugins, so without sharing, each
+ * {@code prepareServer} task would open the same archives again. Entries are keyed by path, size and modification
+ * time, so an archive rebuilt during the build is read again.
+ */
+public abstract class PluginManifestIndex implements BuildService<BuildServiceParameters.None> {
+    /** Name the service is registered under. */
+    static final String NAME = "pluginManifestIndex";
+
+    private final Map<Key, PluginManifest> manifests = new ConcurrentHashMap<>();
+
+    /**
+     * @param file plugin archive
+     * @return the plugin attributes of its manifest
+     * @throws GradleException if the archive cannot be read
+     */
+    public PluginManifest get(File file) {
+        return manifests.computeIfAbsent(new Key(file.getAbsolutePath(), file.length(), file.lastModified()), key -> read(file));
+    }
+
+    private static PluginManifest read(File file) {
+        try (var jar = new JarFile(file)) {
+            var manifest = jar.getManifest();
+            var attributes = (manifest != null ? manifest : new Manifest()).getMainAttributes();
+            return new PluginManifest(attributes.getValue("Short-Name"),
+                    RequiredPluginClosure.requiredPluginNames(attributes.getValue("Plugin-Dependencies")));
+        } catch (IOException e) {
+            throw new GradleException("Could not read manifest of " + file, e);
+        }
+    }
+
+    /**
+     * Plugin attributes of a manifest.
+     *
+     * @param shortName       {@code Short-Name}, {@code null} if absent
+     * @param requiredPlugins short names of the non-optional {@code Plugin-Dependencies}
+     */
+    public record PluginManifest(String shortName, List<String> requiredPlugins) {
+    }
+
+    private record Key(String path, long length, long lastModified) {
+    }
+}
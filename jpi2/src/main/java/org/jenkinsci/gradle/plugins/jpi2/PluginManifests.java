@@ -0,0 +1,62 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.bundling.Jar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Manifest;
+
+/**
+ * Merges the manifest of a plugin the way the {@code jpi} archive gets it.
+ * <p>
+ * Attributes set in a {@code manifest {}} block come first. The generated Jenkins manifest and each further fragment
+ * are then merged over them, as Gradle does for manifests added with {@code from}.
+ */
+final class PluginManifests {
+    private PluginManifests() {
+    }
+
+    /**
+     * @param task a jar or war task
+     * @return the attributes set directly on the manifest of {@code task}, leaving out manifests merged with
+     * {@code from}, which are only read when the task runs
+     */
+    static Map<String, String> declaredAttributes(Jar task) {
+        var attributes = new LinkedHashMap<String, String>();
+        task.getManifest().getAttributes().forEach((name, value) -> {
+            var resolved = value instanceof Provider<?> provider ? provider.getOrNull() : value;
+            if (resolved != null) {
+                attributes.put(name, resolved.toString());
+            }
+        });
+        return attributes;
+    }
+
+    /**
+     * @param declared   attributes from {@code manifest {}} blocks, overridden by the manifest files
+     * @param upstream   Jenkins manifest
+     * @param additional further manifest fragments, in order
+     * @return the merged manifest
+     * @throws IOException if a manifest file cannot be read
+     */
+    static Manifest merge(Map<String, String> declared, File upstream, Iterable<File> additional) throws IOException {
+        var manifest = new Manifest();
+        declared.forEach(manifest.getMainAttributes()::putValue);
+        mergeFrom(manifest, upstream);
+        for (File fragment : additional) {
+            mergeFrom(manifest, fragment);
+        }
+        return manifest;
+    }
+
+    private static void mergeFrom(Manifest manifest, File file) throws IOException {
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            manifest.getMainAttributes().putAll(new Manifest(is).getMainAttributes());
+        }
+    }
+}
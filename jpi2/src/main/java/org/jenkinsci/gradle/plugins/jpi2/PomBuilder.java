@@ -5,28 +5,48 @@ import groovy.util.Node;
 import groovy.util.NodeList;
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.Transformer;
 import org.gradle.api.XmlProvider;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.provider.Provider;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Action to update the POM file with resolved dependencies, repositories, plugin metadata,
  * developers, and licenses.
+ * <p>
+ * The action is stored with the POM generation task, so it only holds providers: no project, no extension.
  */
 class PomBuilder implements Action<XmlProvider> {
-    private final Configuration runtimeClasspath;
-    private final Project project;
-    private final JenkinsPluginExtension extension;
+    private final Provider<Map<String, String>> resolvedVersions;
+    private final Provider<Map<String, String>> repositoryUrls;
+    private final Provider<List<PluginDeveloper>> developers;
+    private final Provider<List<PluginLicense>> licenses;
+    private final Provider<String> packaging;
 
     public PomBuilder(Configuration runtimeClasspath, Project project, JenkinsPluginExtension extension) {
-        this.runtimeClasspath = runtimeClasspath;
-        this.project = project;
-        this.extension = extension;
+        this.resolvedVersions = runtimeClasspath.getIncoming().getResolutionResult().getRootComponent()
+                .map(new FirstLevelVersions());
+        var repositories = project.getRepositories();
+        this.repositoryUrls = project.provider(() -> {
+            Map<String, String> urls = new LinkedHashMap<>();
+            repositories.withType(MavenArtifactRepository.class).forEach(it -> urls.put(it.getName(), it.getUrl().toString()));
+            return urls;
+        });
+        this.developers = extension.getPluginDevelopers();
+        this.licenses = extension.getPluginLicenses();
+        this.packaging = extension.getArchiveExtension();
     }
 
     private static Optional<String> getNodeElement(Node dependencyNode, String elementName) {
@@ -52,8 +72,7 @@ class PomBuilder implements Action<XmlProvider> {
     }
 
     private void resolveDependencyVersions(Node root) {
-        var resolvedDependencies = runtimeClasspath.getResolvedConfiguration()
-                .getFirstLevelModuleDependencies();
+        var versions = resolvedVersions.get();
 
         final var originalDependencies = root.getAt(new QName(POM_NS, "dependencies"));
         final var dependencies = originalDependencies.isEmpty()
@@ -74,16 +93,14 @@ class PomBuilder implements Action<XmlProvider> {
             assert groupId.isPresent();
             assert artifactId.isPresent();
 
-            var resolvedDependency = resolvedDependencies.stream()
-                    .filter(it -> it.getModuleGroup().equals(groupId.get()) && it.getModuleName().equals(artifactId.get()))
-                    .findFirst();
+            var resolvedDependency = Optional.ofNullable(versions.get(groupId.get() + ":" + artifactId.get()));
 
             if (resolvedDependency.isPresent()) {
                 if (version.isPresent()) {
                     var versionNode = (Node) dependencyNode.getAt(new QName(POM_NS, "version")).get(0);
                     dependencyNode.remove(versionNode);
                 }
-                dependencyNode.appendNode(new QName(POM_NS, "version"), resolvedDependency.get().getModuleVersion());
+                dependencyNode.appendNode(new QName(POM_NS, "version"), resolvedDependency.get());
             } else {
                 System.err.println("Dependency not found: " + groupId + ":" + artifactId);
             }
@@ -96,17 +113,15 @@ class PomBuilder implements Action<XmlProvider> {
                 ? root.appendNode("repositories")
                 : (Node) originalRepositories.get(0);
 
-        project.getRepositories().forEach(it -> {
-            if (it instanceof MavenArtifactRepository m) {
-                var repository = repositories.appendNode("repository");
-                repository.appendNode("id", it.getName());
-                repository.appendNode("url", m.getUrl());
-            }
+        repositoryUrls.get().forEach((name, url) -> {
+            var repository = repositories.appendNode("repository");
+            repository.appendNode("id", name);
+            repository.appendNode("url", url);
         });
     }
 
     private void addDevelopers(Node root) {
-        var devs = extension.getPluginDevelopers().get();
+        var devs = developers.get();
         if (devs.isEmpty()) {
             return;
         }
@@ -148,12 +163,12 @@ class PomBuilder implements Action<XmlProvider> {
     }
 
     private void addLicenses(Node root) {
-        var licenses = extension.getPluginLicenses().get();
-        if (licenses.isEmpty()) {
+        var pluginLicenses = licenses.get();
+        if (pluginLicenses.isEmpty()) {
             return;
         }
         var licensesNode = root.appendNode(new QName(POM_NS, "licenses"));
-        for (var license : licenses) {
+        for (var license : pluginLicenses) {
             var licenseNode = licensesNode.appendNode(new QName(POM_NS, "license"));
             appendIfPresent(licenseNode, "name", license.getName().getOrNull());
             appendIfPresent(licenseNode, "url", license.getUrl().getOrNull());
@@ -164,11 +179,11 @@ class PomBuilder implements Action<XmlProvider> {
 
     private void fixPackaging(Node root) {
         var packagingList = root.getAt(new QName(POM_NS, "packaging"));
-        var packaging = extension.getArchiveExtension().get();
+        var value = packaging.get();
         if (!packagingList.isEmpty()) {
-            ((Node) packagingList.get(0)).setValue(packaging);
+            ((Node) packagingList.get(0)).setValue(value);
         } else {
-            root.appendNode(new QName(POM_NS, "packaging"), packaging);
+            root.appendNode(new QName(POM_NS, "packaging"), value);
         }
     }
 
@@ -177,4 +192,22 @@ class PomBuilder implements Action<XmlProvider> {
             parent.appendNode(new QName(POM_NS, name), value);
         }
     }
+
+    /**
+     * Maps {@code group:name} of each first-level dependency to its resolved version.
+     */
+    private static final class FirstLevelVersions implements Transformer<Map<String, String>, ResolvedComponentResult> {
+        @NotNull
+        @Override
+        public Map<String, String> transform(@NotNull ResolvedComponentResult root) {
+            Map<String, String> versions = new HashMap<>();
+            root.getDependencies().stream()
+                    .filter(it -> !it.isConstraint())
+                    .filter(it -> it instanceof ResolvedDependencyResult)
+                    .map(it -> ((ResolvedDependencyResult) it).getSelected().getModuleVersion())
+                    .filter(Objects::nonNull)
+                    .forEach(it -> versions.putIfAbsent(it.getGroup() + ":" + it.getName(), it.getVersion()));
+            return versions;
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.GradleException;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the elements of POM files without resolving external entities or DTDs.
+ */
+final class PomElements {
+    private PomElements() {
+    }
+
+    /**
+     * @return a parser for POM files
+     * @throws GradleException if the XML parser cannot be configured
+     */
+    static DocumentBuilder createDocumentBuilder() {
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setExpandEntityReferences(false);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new GradleException("Unable to create POM parser", e);
+        }
+    }
+
+    /**
+     * @return trimmed text of the first child element with the given name, empty if there is none
+     */
+    static String directChildText(Element parent, String childName) {
+        var child = directChild(parent, childName);
+        return child == null ? "" : child.getTextContent().trim();
+    }
+
+    /**
+     * @return the first child element with the given name, {@code null} if there is none
+     */
+    static Element directChild(Element parent, String childName) {
+        for (var child : childElements(parent)) {
+            if (childName.equals(child.getTagName())) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the child elements of {@code parent}, in document order
+     */
+    static List<Element> childElements(Element parent) {
+        var elements = new ArrayList<Element>();
+        var childNodes = parent.getChildNodes();
+        for (int i = 0; i < childNodes.getLength(); i++) {
+            Node child = childNodes.item(i);
+            if (child instanceof Element element) {
+                elements.add(element);
+            }
+        }
+        return elements;
+    }
+}
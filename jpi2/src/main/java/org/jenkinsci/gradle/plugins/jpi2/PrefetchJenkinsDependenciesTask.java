@@ -0,0 +1,317 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.Action;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.ConfigurationContainer;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.dsl.DependencyHandler;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.UntrackedTask;
+import org.jetbrains.annotations.NotNull;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copies everything the plugin build resolves into a Maven repository layout, so that a CI agent can restore a
+ * single directory and build with {@code --offline}.
+ * <p>
+ * Besides the artifacts of each configuration, the bundle holds the POM and Gradle Module Metadata of every module in
+ * the graphs, together with the parent and imported POMs Gradle needs to read them. Builds started with the
+ * {@value #BUNDLE_PROPERTY} Gradle property look modules up in the bundle before any other repository.
+ */
+@UntrackedTask(because = "The bundle mirrors whatever the configurations resolve to")
+public abstract class PrefetchJenkinsDependenciesTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "prefetchJenkinsDependencies";
+    /** Gradle property naming a bundle directory to resolve from, absolute or relative to each project. */
+    public static final String BUNDLE_PROPERTY = "jpi2.dependencyBundle";
+    /** Name of the repository that serves the bundle. */
+    public static final String BUNDLE_REPOSITORY_NAME = "jenkinsDependencyBundle";
+
+    private static final Logger LOGGER = Logging.getLogger(PrefetchJenkinsDependenciesTask.class);
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+
+    /** @return artifacts of the prefetched configurations; resolving them downloads what is not cached yet */
+    @Internal
+    public abstract SetProperty<ResolvedArtifactResult> getArtifacts();
+
+    /** @return roots of the prefetched dependency graphs, used to find modules without artifacts such as BOMs */
+    @Internal
+    public abstract SetProperty<ResolvedComponentResult> getRootComponents();
+
+    /**
+     * @return POM and {@code .module} files of the modules in the graphs, and the parent and imported POMs they need;
+     * usually provided by {@link ModuleMetadata}
+     */
+    @Internal
+    public abstract SetProperty<ResolvedArtifactResult> getMetadata();
+
+    /** @return directory the Maven repository layout is written to */
+    @OutputDirectory
+    public abstract DirectoryProperty getBundleDirectory();
+
+    @TaskAction
+    void prefetch() {
+        var bundle = getBundleDirectory().get().getAsFile().toPath();
+        var artifactCount = copyAll(getArtifacts().get(), bundle);
+        var metadataCount = copyAll(getMetadata().get(), bundle);
+        getLogger().lifecycle("Prefetched {} artifacts and {} metadata files into {}", artifactCount, metadataCount, bundle);
+    }
+
+    private static int copyAll(Set<ResolvedArtifactResult> artifacts, Path bundle) {
+        var count = 0;
+        for (var artifact : artifacts) {
+            if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier module) {
+                copy(artifact.getFile(), modulePath(bundle, module.getGroup(), module.getModule(), module.getVersion()));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Set<String> moduleCoordinates(Set<ResolvedComponentResult> roots) {
+        var seen = new HashSet<ResolvedComponentResult>();
+        var queue = new ArrayDeque<>(roots);
+        var modules = new TreeSet<String>();
+        while (!queue.isEmpty()) {
+            var component = queue.poll();
+            if (!seen.add(component)) {
+                continue;
+            }
+            if (component.getId() instanceof ModuleComponentIdentifier module) {
+                modules.add(coordinate(module.getGroup(), module.getModule(), module.getVersion()));
+            }
+            for (var dependency : component.getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult resolved) {
+                    queue.add(resolved.getSelected());
+                }
+            }
+        }
+        return modules;
+    }
+
+    private static Path modulePath(Path bundle, String group, String module, String version) {
+        return bundle.resolve(group.replace('.', '/')).resolve(module).resolve(version);
+    }
+
+    /**
+     * Writes to a temporary file first, so that an interrupted run never leaves a partial file in the bundle.
+     * A file already in the bundle is only kept when its content is the same.
+     */
+    private static void copy(File file, Path directory) {
+        var target = directory.resolve(file.getName());
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(target) && Files.size(target) == file.length()
+                    && Arrays.equals(sha256(target), sha256(file.toPath()))) {
+                return;
+            }
+            var temporary = Files.createTempFile(directory, file.getName(), ".tmp");
+            Files.copy(file.toPath(), temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new GradleException("Unable to copy " + file + " into " + directory, e);
+        }
+    }
+
+    private static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (var input = new DigestInputStream(Files.newInputStream(file), digest)) {
+            input.transferTo(OutputStream.nullOutputStream());
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Resolves the POM and {@code .module} file of every module in the graphs, and follows the {@code parent} and
+     * {@code import} references of the POMs.
+     * Properties are interpolated from the POM and its parents, which covers how BOMs are usually imported.
+     * <p>
+     * Created while the build is configured, so resolving only goes through the configuration container and
+     * dependency handler it was given, never through the project.
+     */
+    static final class ModuleMetadata implements Callable<Set<ResolvedArtifactResult>> {
+        private final ConfigurationContainer configurations;
+        private final DependencyHandler dependencies;
+        private final Provider<Set<ResolvedComponentResult>> rootComponents;
+
+        ModuleMetadata(ConfigurationContainer configurations, DependencyHandler dependencies,
+                       Provider<Set<ResolvedComponentResult>> rootComponents) {
+            this.configurations = configurations;
+            this.dependencies = dependencies;
+            this.rootComponents = rootComponents;
+        }
+
+        @Override
+        public Set<ResolvedArtifactResult> call() {
+            var modules = moduleCoordinates(rootComponents.get());
+            var collector = new PomCollector();
+            collector.collect(modules);
+            var metadata = new HashSet<>(collector.resolved);
+            // Modules published with Gradle Module Metadata resolve to other variants than their POM describes.
+            metadata.addAll(resolve(modules, "module"));
+            return metadata;
+        }
+
+        /**
+         * @return the artifacts with the given extension of the given modules; missing ones are left out
+         */
+        private Set<ResolvedArtifactResult> resolve(Collection<String> coordinates, String extension) {
+            if (coordinates.isEmpty()) {
+                return Set.of();
+            }
+            var detached = configurations.detachedConfiguration(coordinates.stream()
+                    .map(coordinate -> dependencies.create(coordinate + "@" + extension))
+                    .toArray(Dependency[]::new));
+            return detached.getIncoming().artifactView(new Action<>() {
+                @Override
+                public void execute(@NotNull ArtifactView.ViewConfiguration view) {
+                    view.setLenient(true);
+                }
+            }).getArtifacts().getArtifacts();
+        }
+
+        private final class PomCollector {
+            private final DocumentBuilder builder = PomElements.createDocumentBuilder();
+            private final Map<String, File> poms = new HashMap<>();
+            private final Map<String, Map<String, String>> properties = new HashMap<>();
+            private final Set<ResolvedArtifactResult> resolved = new HashSet<>();
+
+            void collect(Set<String> modules) {
+                for (var artifact : resolve(modules, "pom")) {
+                    if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier module) {
+                        poms.put(coordinate(module.getGroup(), module.getModule(), module.getVersion()), artifact.getFile());
+                        resolved.add(artifact);
+                    }
+                }
+                for (var coordinate : new ArrayList<>(poms.keySet())) {
+                    visit(coordinate);
+                }
+            }
+
+            private Map<String, String> visit(String coordinate) {
+                var known = properties.get(coordinate);
+                if (known != null) {
+                    return known;
+                }
+                var pom = poms.computeIfAbsent(coordinate, this::fetch);
+                if (pom == null) {
+                    return Map.of();
+                }
+                // Guards against cycles while the parents are visited.
+                properties.put(coordinate, Map.of());
+
+                var parts = coordinate.split(":");
+                var root = parse(pom);
+                var effective = new HashMap<String, String>();
+                var parent = PomElements.directChild(root, "parent");
+                if (parent != null) {
+                    var parentVersion = PomElements.directChildText(parent, "version");
+                    effective.putAll(visit(coordinate(PomElements.directChildText(parent, "groupId"), PomElements.directChildText(parent, "artifactId"), parentVersion)));
+                    effective.put("project.parent.version", parentVersion);
+                }
+                var ownProperties = PomElements.directChild(root, "properties");
+                if (ownProperties != null) {
+                    for (var property : PomElements.childElements(ownProperties)) {
+                        effective.put(property.getTagName(), property.getTextContent().trim());
+                    }
+                }
+                effective.put("project.groupId", parts[0]);
+                effective.put("project.version", parts[2]);
+                effective.put("version", parts[2]);
+                properties.put(coordinate, effective);
+
+                var dependencyManagement = PomElements.directChild(root, "dependencyManagement");
+                var managed = dependencyManagement != null ? PomElements.directChild(dependencyManagement, "dependencies") : null;
+                if (managed != null) {
+                    for (var dependency : PomElements.childElements(managed)) {
+                        if ("import".equals(PomElements.directChildText(dependency, "scope"))) {
+                            var imported = coordinate(
+                                    interpolate(PomElements.directChildText(dependency, "groupId"), effective),
+                                    interpolate(PomElements.directChildText(dependency, "artifactId"), effective),
+                                    interpolate(PomElements.directChildText(dependency, "version"), effective));
+                            if (!imported.contains("${")) {
+                                visit(imported);
+                            }
+                        }
+                    }
+                }
+                return effective;
+            }
+
+            private File fetch(String coordinate) {
+                for (var artifact : resolve(List.of(coordinate), "pom")) {
+                    resolved.add(artifact);
+                    return artifact.getFile();
+                }
+                LOGGER.warn("Could not fetch the POM of {}; builds using the bundle may not resolve it", coordinate);
+                return null;
+            }
+
+            private Element parse(File pom) {
+                try {
+                    return builder.parse(pom).getDocumentElement();
+                } catch (SAXException | IOException e) {
+                    throw new GradleException("Failed to parse POM: " + pom, e);
+                }
+            }
+        }
+    }
+
+    private static String coordinate(String group, String module, String version) {
+        return group + ":" + module + ":" + version;
+    }
+
+    private static String interpolate(String value, Map<String, String> properties) {
+        var matcher = PROPERTY_REFERENCE.matcher(value);
+        var result = new StringBuilder();
+        while (matcher.find()) {
+            var replacement = properties.get(matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(replacement != null ? replacement : matcher.group()));
+        }
+        matcher.appendTail(result);
+        return result.toString().trim();
+    }
+}
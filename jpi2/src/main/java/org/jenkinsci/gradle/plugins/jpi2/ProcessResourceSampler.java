@@ -0,0 +1,212 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Samples RSS, CPU time and thread count of the Jenkins process tree from {@code /proc}.
+ * <p>
+ * The Jenkins JVM is located once through {@link JenkinsProcess}; after that only it and its descendants are read.
+ * CPU times are converted with the clock tick rate reported by {@code getconf CLK_TCK}. On systems without
+ * {@code /proc} nothing is sampled.
+ */
+final class ProcessResourceSampler implements Runnable {
+    static final String REPORT_FILE = "resources.json";
+
+    private static final Path PROC = Paths.get("/proc");
+    /** {@code USER_HZ} of nearly every Linux build, used when {@code getconf} is not available. */
+    private static final long DEFAULT_CLOCK_TICKS_PER_SECOND = 100;
+    private static final long INTERVAL_MILLIS = 250;
+    private static final long LOOKUP_INTERVAL_MILLIS = 1000;
+
+    private final ProcessHandle client;
+    private final String marker;
+    private final long clockTicksPerSecond;
+    private final Map<Long, Long> cpuTicksByPid = new HashMap<>();
+    private volatile boolean running = true;
+    private Thread thread;
+    private ProcessHandle jenkins;
+    private long lastLookup;
+    private long peakRssKilobytes;
+    private int peakThreads;
+    private int samples;
+
+    /**
+     * @param client the launched Gradle client
+     * @param marker argument of the Jenkins JVM, see {@link JenkinsProcess#find(ProcessHandle, String)}
+     */
+    ProcessResourceSampler(ProcessHandle client, String marker) {
+        this.client = client;
+        this.marker = marker;
+        this.clockTicksPerSecond = clockTicksPerSecond();
+    }
+
+    /**
+     * @return {@code true} if the platform exposes {@code /proc}
+     */
+    static boolean isSupported() {
+        return Files.isDirectory(PROC.resolve("self"));
+    }
+
+    /**
+     * Starts sampling on a daemon thread.
+     */
+    void start() {
+        thread = new Thread(this, "testServer resource sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            sample();
+            try {
+                Thread.sleep(INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the sampling thread, waits for it to end and takes a final sample.
+     *
+     * @throws InterruptedException if interrupted while waiting for the thread
+     */
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join();
+        }
+        sample();
+    }
+
+    synchronized long getPeakRssMegabytes() {
+        return peakRssKilobytes / 1024;
+    }
+
+    synchronized int getPeakThreads() {
+        return peakThreads;
+    }
+
+    synchronized double getCpuSeconds() {
+        long ticks = cpuTicksByPid.values().stream().mapToLong(Long::longValue).sum();
+        return (double) ticks / clockTicksPerSecond;
+    }
+
+    /**
+     * @param file report to write
+     * @throws IOException if the report cannot be written
+     */
+    synchronized void write(Path file) throws IOException {
+        var report = new LinkedHashMap<String, Object>();
+        report.put("samples", samples);
+        report.put("processes", cpuTicksByPid.size());
+        report.put("peakRssMegabytes", getPeakRssMegabytes());
+        report.put("peakThreads", peakThreads);
+        report.put("cpuSeconds", getCpuSeconds());
+        report.put("clockTicksPerSecond", clockTicksPerSecond);
+        Files.writeString(file, JsonWriter.write(report), StandardCharsets.UTF_8);
+    }
+
+    private synchronized void sample() {
+        var tree = processTree();
+        if (tree.isEmpty()) {
+            return;
+        }
+        long rss = 0;
+        int threads = 0;
+        for (Long pid : tree) {
+            var status = read(PROC.resolve(pid + "/status"));
+            var stat = statFields(pid);
+            if (status == null || stat == null) {
+                continue;
+            }
+            for (String line : status.split("\n")) {
+                if (line.startsWith("VmRSS:")) {
+                    rss += firstNumber(line);
+                } else if (line.startsWith("Threads:")) {
+                    threads += (int) firstNumber(line);
+                }
+            }
+            cpuTicksByPid.put(pid, Long.parseLong(stat.get(11)) + Long.parseLong(stat.get(12)));
+        }
+        samples++;
+        peakRssKilobytes = Math.max(peakRssKilobytes, rss);
+        peakThreads = Math.max(peakThreads, threads);
+    }
+
+    /**
+     * @return the Jenkins JVM and its descendants, empty until the JVM has started
+     */
+    private List<Long> processTree() {
+        if (jenkins == null) {
+            // Until Jenkins has started, the process table is only searched once in a while.
+            var now = System.nanoTime();
+            if (lastLookup != 0 && now - lastLookup < TimeUnit.MILLISECONDS.toNanos(LOOKUP_INTERVAL_MILLIS)) {
+                return List.of();
+            }
+            lastLookup = now;
+            jenkins = JenkinsProcess.find(client, marker).orElse(null);
+            if (jenkins == null) {
+                return List.of();
+            }
+        }
+        return Stream.concat(Stream.of(jenkins), jenkins.descendants())
+                .map(ProcessHandle::pid)
+                .toList();
+    }
+
+    private static long clockTicksPerSecond() {
+        try {
+            var getconf = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            var output = new String(getconf.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (getconf.waitFor() == 0) {
+                return Long.parseLong(output);
+            }
+        } catch (IOException | NumberFormatException e) {
+            // Fall back to the default below.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return DEFAULT_CLOCK_TICKS_PER_SECOND;
+    }
+
+    /**
+     * @return the fields of {@code /proc/[pid]/stat} after the command name, so index 0 is the state and index 1 the
+     * parent pid; {@code null} if the process is gone
+     */
+    private static List<String> statFields(long pid) {
+        var stat = read(PROC.resolve(pid + "/stat"));
+        if (stat == null) {
+            return null;
+        }
+        var end = stat.lastIndexOf(')');
+        return end < 0 ? null : List.of(stat.substring(end + 2).trim().split(" "));
+    }
+
+    private static String read(Path file) {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static long firstNumber(String line) {
+        var digits = line.replaceAll("[^0-9 ]", " ").trim().split("\\s+")[0];
+        return digits.isEmpty() ? 0 : Long.parseLong(digits);
+    }
+}
@@ -0,0 +1,150 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the set of plugin artifacts a plugin actually requires at runtime.
+ * <p>
+ * The roots are the plugins declared directly (or reached through non-plugin libraries). From there, only
+ * non-optional {@code Plugin-Dependencies} entries of each plugin's manifest are followed. Manifests come from the
+ * build-wide {@link PluginManifestIndex}, so each archive is read once however many projects stage it.
+ */
+final class RequiredPluginClosure {
+    private static final String OPTIONAL_RESOLUTION = "resolution:=optional";
+
+    private RequiredPluginClosure() {
+    }
+
+    /**
+     * @param root      root of the resolved {@code defaultRuntime} dependency graph
+     * @param artifacts all resolved plugin artifacts of that configuration
+     * @param index     source of the plugin manifests
+     * @return the subset of {@code artifacts} that is required, in the order of {@code artifacts}
+     */
+    static Set<ResolvedArtifactResult> compute(ResolvedComponentResult root, Collection<ResolvedArtifactResult> artifacts,
+                                               PluginManifestIndex index) {
+        Map<String, ResolvedArtifactResult> byShortName = new HashMap<>();
+        Map<ResolvedArtifactResult, List<String>> requiredByArtifact = new HashMap<>();
+        for (ResolvedArtifactResult artifact : artifacts) {
+            var manifest = index.get(artifact.getFile());
+            byShortName.put(manifest.shortName() != null ? manifest.shortName() : fallbackShortName(artifact), artifact);
+            requiredByArtifact.put(artifact, manifest.requiredPlugins());
+        }
+
+        Set<ResolvedArtifactResult> required = new HashSet<>();
+        Deque<ResolvedArtifactResult> queue = new ArrayDeque<>(directPlugins(root, artifacts));
+        while (!queue.isEmpty()) {
+            var artifact = queue.removeFirst();
+            if (!required.add(artifact)) {
+                continue;
+            }
+            for (String name : requiredByArtifact.getOrDefault(artifact, List.of())) {
+                var dependency = byShortName.get(name);
+                if (dependency != null) {
+                    queue.addLast(dependency);
+                }
+            }
+        }
+
+        Set<ResolvedArtifactResult> result = new LinkedHashSet<>();
+        for (ResolvedArtifactResult artifact : artifacts) {
+            if (required.contains(artifact)) {
+                result.add(artifact);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param pluginDependencies value of a {@code Plugin-Dependencies} manifest attribute, may be {@code null}
+     * @return short names of the non-optional entries
+     */
+    static List<String> requiredPluginNames(String pluginDependencies) {
+        if (pluginDependencies == null || pluginDependencies.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(pluginDependencies.split(","))
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty() && !entry.contains(OPTIONAL_RESOLUTION))
+                .map(entry -> entry.substring(0, entry.contains(":") ? entry.indexOf(':') : entry.length()))
+                .toList();
+    }
+
+    /**
+     * @param pluginDependencies value of a {@code Plugin-Dependencies} manifest attribute, may be {@code null}
+     * @return versions of the optional entries by short name; an empty string for an entry without a version
+     */
+    static Map<String, String> optionalPluginVersions(String pluginDependencies) {
+        Map<String, String> versions = new LinkedHashMap<>();
+        if (pluginDependencies == null || pluginDependencies.isBlank()) {
+            return versions;
+        }
+        for (String entry : pluginDependencies.split(",")) {
+            var segments = entry.split(";");
+            var optional = Arrays.stream(segments).skip(1).map(String::trim).anyMatch(OPTIONAL_RESOLUTION::equals);
+            var plugin = segments[0].trim();
+            if (!optional || plugin.isEmpty()) {
+                continue;
+            }
+            var colon = plugin.indexOf(':');
+            versions.put(colon < 0 ? plugin : plugin.substring(0, colon).trim(), colon < 0 ? "" : plugin.substring(colon + 1).trim());
+        }
+        return versions;
+    }
+
+    private static Set<ResolvedArtifactResult> directPlugins(ResolvedComponentResult root, Collection<ResolvedArtifactResult> artifacts) {
+        Map<ComponentIdentifier, List<ResolvedArtifactResult>> byComponent = new HashMap<>();
+        for (ResolvedArtifactResult artifact : artifacts) {
+            byComponent.computeIfAbsent(artifact.getId().getComponentIdentifier(), id -> new ArrayList<>()).add(artifact);
+        }
+        Set<ResolvedArtifactResult> roots = new LinkedHashSet<>();
+        Set<ComponentIdentifier> visited = new HashSet<>();
+        Deque<ResolvedComponentResult> queue = new ArrayDeque<>(selected(root));
+        while (!queue.isEmpty()) {
+            var component = queue.removeFirst();
+            if (!visited.add(component.getId())) {
+                continue;
+            }
+            var plugins = byComponent.getOrDefault(component.getId(), List.of());
+            if (plugins.isEmpty()) {
+                // Libraries may pull in plugins; those are required just like direct ones.
+                queue.addAll(selected(component));
+            } else {
+                roots.addAll(plugins);
+            }
+        }
+        return roots;
+    }
+
+    private static List<ResolvedComponentResult> selected(ResolvedComponentResult component) {
+        return component.getDependencies().stream()
+                .filter(it -> !it.isConstraint())
+                .filter(it -> it instanceof ResolvedDependencyResult)
+                .map(it -> ((ResolvedDependencyResult) it).getSelected())
+                .toList();
+    }
+
+    private static String fallbackShortName(ResolvedArtifactResult artifact) {
+        if (artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier module) {
+            return module.getModule();
+        }
+        return artifact.getFile().getName();
+    }
+}
@@ -4,47 +4,73 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.ModuleDependency;
-import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.artifacts.ResolvedDependency;
-import org.gradle.api.artifacts.component.ComponentIdentifier;
-import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.specs.Spec;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import static org.jenkinsci.gradle.plugins.jpi2.ArtifactType.ARTIFACT_TYPE_ATTRIBUTE;
 
 /**
  * Resolves the library JARs that should be bundled into the plugin or referenced by HPL.
+ * <p>
+ * Nothing is resolved until the returned file collection is first used, so realizing a task that takes the
+ * libraries as an input does not resolve dependencies while the build is configured.
  */
+@SuppressWarnings({
+        "Convert2Lambda", // Gradle doesn't like lambdas
+})
 class RuntimeClasspathArtifacts {
     private final Project project;
+    private final String projectPath;
     private final Configuration configuration;
     private final Configuration jenkinsCore;
+    private final Provider<String> jenkinsVersion;
+    private final Provider<JenkinsCoreModules> jenkinsCoreModules;
+    private FileCollection bundledLibraries;
 
-    RuntimeClasspathArtifacts(Project project, Configuration configuration, Configuration jenkinsCore) {
+    RuntimeClasspathArtifacts(Project project, Configuration configuration, Configuration jenkinsCore,
+                              Provider<String> jenkinsVersion, Provider<JenkinsCoreModules> jenkinsCoreModules) {
         this.project = project;
+        this.projectPath = project.getPath();
         this.configuration = configuration;
         this.jenkinsCore = jenkinsCore;
+        this.jenkinsVersion = jenkinsVersion;
+        this.jenkinsCoreModules = jenkinsCoreModules;
     }
 
     @NotNull
     FileCollection getBundledLibraries() {
+        return project.files(new Callable<FileCollection>() {
+            @Override
+            public FileCollection call() {
+                if (bundledLibraries == null) {
+                    bundledLibraries = resolveBundledLibraries();
+                }
+                return bundledLibraries;
+            }
+        });
+    }
+
+    @NotNull
+    private FileCollection resolveBundledLibraries() {
         var directJarDependencies = getDirectJarDependencies();
         var detachedConfiguration = project.getConfigurations().detachedConfiguration(directJarDependencies.toArray(new Dependency[0]));
         detachedConfiguration.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.PLUGIN_JAR));
         detachedConfiguration.shouldResolveConsistentlyWith(configuration);
 
         var jpiProvidedJars = getJarArtifactsFromJpiPlugins();
-        return detachedConfiguration.filter(file -> !jpiProvidedJars.contains(file.getName()));
+        return detachedConfiguration.filter(new NotProvidedByPlugins(jpiProvidedJars));
     }
 
     @NotNull
@@ -54,42 +80,28 @@ class RuntimeClasspathArtifacts {
         var jenkinsCoreModules = getAllJenkinsCoreDependencies();
         var jpiPluginTransitives = getAllJpiPluginTransitiveDependencies();
 
-        var projectPathMap = buildProjectPathMap();
-
         return resolvedDependencies.stream()
-                .filter(dependency -> isDependencyUnseen(dependency, jenkinsCoreModules))
+                .filter(dependency -> !jenkinsCoreModules.contains(dependency.getModuleGroup() + ":" + dependency.getModuleName()))
                 .filter(dependency -> isDependencyUnseen(dependency, jpiPluginTransitives))
                 .flatMap(dependency -> dependency.getModuleArtifacts().stream()
                         .filter(artifact -> "jar".equals(artifact.getExtension()))
                         .flatMap(artifact -> requestedDependencies.stream()
-                                .filter(reqDep -> matches(dependency, reqDep, projectPathMap))
+                                .filter(reqDep -> matches(dependency, reqDep))
                                 .findFirst()
                                 .stream()))
                 .collect(Collectors.toCollection(ArrayList::new));
     }
 
+    /**
+     * Served by {@link JenkinsCoreModules}, so {@code jenkinsCore} is resolved once per project and build.
+     */
     @NotNull
-    private Map<String, String> buildProjectPathMap() {
-        var projectPathMap = new HashMap<String, String>();
-
-        configuration.getResolvedConfiguration().getResolvedArtifacts()
-                .stream()
-                .filter(it -> it.getId().getComponentIdentifier() instanceof ProjectComponentIdentifier)
-                .forEach(artifact -> {
-                    ComponentIdentifier componentIdentifier = artifact.getId().getComponentIdentifier();
-                    if (componentIdentifier instanceof ProjectComponentIdentifier p) {
-                        var moduleGroup = artifact.getModuleVersion().getId().getGroup();
-                        var moduleName = artifact.getModuleVersion().getId().getName();
-                        var key = moduleGroup + ":" + moduleName;
-                        projectPathMap.put(key, p.getProjectPath());
-                    }
-                });
-
-        return projectPathMap;
+    private Set<String> getAllJenkinsCoreDependencies() {
+        return jenkinsCoreModules.get().get(projectPath, jenkinsVersion.get(), this::resolveAllJenkinsCoreDependencies);
     }
 
     @NotNull
-    private Set<ResolvedDependency> getAllJenkinsCoreDependencies() {
+    private Set<String> resolveAllJenkinsCoreDependencies() {
         var allDependencies = new HashSet<ResolvedDependency>();
         var firstLevelDependencies = jenkinsCore.getResolvedConfiguration().getFirstLevelModuleDependencies();
 
@@ -97,7 +109,9 @@ class RuntimeClasspathArtifacts {
             collectAllDependencies(dependency, allDependencies);
         }
 
-        return allDependencies;
+        return allDependencies.stream()
+                .map(dependency -> dependency.getModuleGroup() + ":" + dependency.getModuleName())
+                .collect(Collectors.toSet());
     }
 
     private void collectAllDependencies(ResolvedDependency dependency, Set<ResolvedDependency> collector) {
@@ -159,32 +173,32 @@ class RuntimeClasspathArtifacts {
         return jpiProvidedJars;
     }
 
-    private boolean matches(ResolvedDependency dependency, Dependency reqDep, Map<String, String> projectPathMap) {
-        if (reqDep instanceof ProjectDependency projectDependency) {
-            var key = (projectDependency.getGroup() == null ? "" : projectDependency.getGroup()) +
-                    ":" + projectDependency.getName();
-            var projectPath = projectPathMap.get(key);
-
-            if (projectPath == null) {
-                return false;
-            }
-
-            var dependencyProject = project.getRootProject().getAllprojects().stream()
-                    .filter(it -> it.getPath().equals(projectPath))
-                    .findFirst();
-
-            assert dependencyProject.isPresent();
-
-            if (dependencyProject.get().getTasks().findByName("jpi") == null) {
-                return Objects.equals(reqDep.getGroup(), dependency.getModuleGroup()) &&
-                        reqDep.getName().equals(dependency.getModuleName());
-            }
-            return false;
-        } else if (reqDep instanceof ModuleDependency moduleDependency) {
+    /**
+     * Plugin projects of the build publish their archive through {@code defaultRuntimeElements}, so they never resolve to a
+     * jar here; any matching project dependency is a plain library.
+     */
+    private static boolean matches(ResolvedDependency dependency, Dependency reqDep) {
+        if (reqDep instanceof ModuleDependency moduleDependency) {
             return Objects.equals(moduleDependency.getGroup(), dependency.getModuleGroup()) &&
                     Objects.equals(moduleDependency.getName(), dependency.getModuleName());
         } else {
             return false;
         }
     }
+
+    /**
+     * Drops jars that dependency plugins already bundle.
+     */
+    private static final class NotProvidedByPlugins implements Spec<File> {
+        private final Set<String> jpiProvidedJars;
+
+        NotProvidedByPlugins(Set<String> jpiProvidedJars) {
+            this.jpiProvidedJars = jpiProvidedJars;
+        }
+
+        @Override
+        public boolean isSatisfiedBy(File file) {
+            return !jpiProvidedJars.contains(file.getName());
+        }
+    }
 }
@@ -3,12 +3,16 @@ package org.jenkinsci.gradle.plugins.jpi2;
 import org.gradle.api.Action;
 import org.gradle.api.Task;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.provider.ProviderFactory;
 import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.TaskProvider;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -19,16 +23,59 @@ import java.util.List;
         "Convert2Lambda", // Gradle doesn't like lambdas
 })
 class ServerAction implements Action<JavaExec> {
-    private final Configuration serverTaskClasspath;
+    /** Internal Gradle property, set by {@link TestServerTask}, naming the JFR file to record startup into. */
+    static final String STARTUP_RECORDING_PROPERTY = "jpi2.internal.startupRecording";
+    /** Name of the startup flight recording, which {@link TestServerTask} stops once Jenkins is fully up. */
+    static final String STARTUP_RECORDING_NAME = "jpi2-startup";
+    /** Internal Gradle property, set by {@link TestServerTask}, asking Jenkins to log how long each startup task took. */
+    static final String LOG_STARTUP_PERFORMANCE_PROPERTY = "jpi2.internal.logStartupPerformance";
+
+    private final Provider<Configuration> serverTaskClasspath;
     private final String projectRoot;
     private final Provider<String> workDir;
     private final TaskProvider<?> prepareServer;
+    private final Provider<Directory> cdsDirectory;
+    private final FileCollection cdsPluginFiles;
+    private final Provider<String> jenkinsVersion;
+    private final Provider<String> startupRecording;
+    private final Provider<String> logStartupPerformance;
 
-    public ServerAction(Configuration serverTaskClasspath, String projectRoot, Provider<String> workDir, TaskProvider<?> prepareServer) {
+    public ServerAction(Provider<Configuration> serverTaskClasspath, String projectRoot, Provider<String> workDir, TaskProvider<?> prepareServer,
+                        Provider<Directory> cdsDirectory, FileCollection cdsPluginFiles, Provider<String> jenkinsVersion,
+                        ProviderFactory providers) {
         this.serverTaskClasspath = serverTaskClasspath;
         this.projectRoot = projectRoot;
         this.workDir = workDir;
         this.prepareServer = prepareServer;
+        this.cdsDirectory = cdsDirectory;
+        this.cdsPluginFiles = cdsPluginFiles;
+        this.jenkinsVersion = jenkinsVersion;
+        this.startupRecording = providers.gradleProperty(STARTUP_RECORDING_PROPERTY);
+        this.logStartupPerformance = providers.gradleProperty(LOG_STARTUP_PERFORMANCE_PROPERTY);
+    }
+
+    /**
+     * @param workDir Jenkins home
+     * @return the {@code --commonLibFolder} argument; unique per work directory, so it identifies the Jenkins JVM
+     */
+    static String commonLibFolderArgument(String workDir) {
+        return "--commonLibFolder=" + workDir + "/lib";
+    }
+
+    /**
+     * @param projectRoot root directory of the plugin project
+     * @param workDir     Jenkins home
+     * @param httpPort    HTTP port to listen on
+     * @return arguments for {@code executable.Main}
+     */
+    static List<String> jenkinsArguments(String projectRoot, String workDir, String httpPort) {
+        return List.of(
+                "--webroot=" + projectRoot + "/build/jenkins/war",
+                "--pluginroot=" + projectRoot + "/build/jenkins/plugins",
+                "--extractedFilesFolder=" + projectRoot + "/build/jenkins/extracted",
+                commonLibFolderArgument(workDir),
+                "--httpPort=" + httpPort
+        );
     }
 
     @Override
@@ -37,28 +84,71 @@ class ServerAction implements Action<JavaExec> {
         spec.setStandardOutput(System.out);
         spec.setErrorOutput(System.err);
         spec.getMainClass().set("executable.Main");
-        spec.doFirst(task -> {
+        spec.doFirst(new ConfigureLaunch(projectRoot, workDir, cdsDirectory, cdsPluginFiles, jenkinsVersion,
+                startupRecording, logStartupPerformance));
+
+        spec.dependsOn(prepareServer);
+
+        spec.getOutputs().upToDateWhen(new NeverUpToDate());
+    }
+
+    /**
+     * Completes the launch configuration right before Jenkins starts, when the work directory, the CDS archive and
+     * the startup recording settings are known.
+     */
+    private static final class ConfigureLaunch implements Action<Task> {
+        private final String projectRoot;
+        private final Provider<String> workDir;
+        private final Provider<Directory> cdsDirectory;
+        private final FileCollection cdsPluginFiles;
+        private final Provider<String> jenkinsVersion;
+        private final Provider<String> startupRecording;
+        private final Provider<String> logStartupPerformance;
+
+        ConfigureLaunch(String projectRoot, Provider<String> workDir, Provider<Directory> cdsDirectory, FileCollection cdsPluginFiles,
+                        Provider<String> jenkinsVersion, Provider<String> startupRecording, Provider<String> logStartupPerformance) {
+            this.projectRoot = projectRoot;
+            this.workDir = workDir;
+            this.cdsDirectory = cdsDirectory;
+            this.cdsPluginFiles = cdsPluginFiles;
+            this.jenkinsVersion = jenkinsVersion;
+            this.startupRecording = startupRecording;
+            this.logStartupPerformance = logStartupPerformance;
+        }
+
+        @Override
+        public void execute(@NotNull Task task) {
+            var spec = (JavaExec) task;
             var resolvedWorkDir = workDir.get();
+            WorkDirectorySettings.migrateLegacyHome(Path.of(resolvedWorkDir), task.getLogger());
             var args = new ArrayList<String>();
-            args.addAll(List.of(
-                    "--webroot=" + projectRoot + "/build/jenkins/war",
-                    "--pluginroot=" + projectRoot + "/build/jenkins/plugins",
-                    "--extractedFilesFolder=" + projectRoot + "/build/jenkins/extracted",
-                    "--commonLibFolder=" + resolvedWorkDir + "/lib",
-                    "--httpPort=" + System.getProperty("server.port", "8080")
-            ));
+            args.addAll(jenkinsArguments(projectRoot, resolvedWorkDir, System.getProperty("server.port", "8080")));
             args.addAll(spec.getArgs());
             spec.setArgs(args);
             spec.environment("JENKINS_HOME", resolvedWorkDir);
-        });
-
-        spec.dependsOn(prepareServer);
 
-        spec.getOutputs().upToDateWhen(new Spec<>() {
-            @Override
-            public boolean isSatisfiedBy(Task element) {
-                return false;
+            var key = JenkinsCdsArchive.key(spec.getJavaLauncher().get().getMetadata(), jenkinsVersion.get(), cdsPluginFiles);
+            var archive = JenkinsCdsArchive.findArchive(cdsDirectory.get().getAsFile(), key);
+            if (archive != null) {
+                spec.jvmArgs("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            } else {
+                task.getLogger().info("No matching CDS archive; run {} to create one", GenerateJenkinsCdsTask.TASK_NAME);
             }
-        });
+            if (startupRecording.isPresent()) {
+                // TestServerTask dumps and stops the recording with jcmd as soon as Jenkins is fully up.
+                spec.jvmArgs("-XX:StartFlightRecording=name=" + STARTUP_RECORDING_NAME + ",settings=profile,filename="
+                        + startupRecording.get());
+            }
+            if (Boolean.parseBoolean(logStartupPerformance.getOrElse("false"))) {
+                spec.systemProperty(StartupTimeline.LOG_STARTUP_PERFORMANCE, "true");
+            }
+        }
+    }
+
+    private static final class NeverUpToDate implements Spec<Task> {
+        @Override
+        public boolean isSatisfiedBy(Task element) {
+            return false;
+        }
     }
 }
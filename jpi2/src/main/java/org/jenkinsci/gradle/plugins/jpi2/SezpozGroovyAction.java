@@ -27,7 +27,7 @@ class SezpozGroovyAction implements Action<GroovyBasePlugin> {
                 groovyCompile.getOptions().getCompilerArgs().add("-Asezpoz.quiet=true");
             }
         });
-        project.getTasks().withType(GroovyCompile.class, new Action<>() {
+        project.getTasks().withType(GroovyCompile.class).configureEach(new Action<>() {
             @Override
             public void execute(@NotNull GroovyCompile groovyCompile) {
                 groovyCompile.getGroovyOptions().setJavaAnnotationProcessing(true);
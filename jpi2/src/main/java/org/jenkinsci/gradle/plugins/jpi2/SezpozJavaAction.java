@@ -27,7 +27,7 @@ class SezpozJavaAction implements Action<JavaBasePlugin> {
                 javaCompile.getOptions().getCompilerArgs().add("-Asezpoz.quiet=true");
             }
         });
-        project.getTasks().withType(JavaCompile.class, new Action<>() {
+        project.getTasks().withType(JavaCompile.class).configureEach(new Action<>() {
             @Override
             public void execute(@NotNull JavaCompile javaCompile) {
                 javaCompile.getOptions().getCompilerArgs().add("-parameters");
@@ -0,0 +1,112 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summarizes a JFR recording of Jenkins startup into the hottest CPU and allocation frames.
+ * <p>
+ * Samples are grouped by the first frame that belongs to a plugin class loader, so time spent in core or library
+ * code on behalf of a plugin is charged to that plugin. Samples without such a frame are grouped by the package of
+ * their top frame.
+ */
+final class StartupProfileSummary {
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final Set<String> NON_PLUGIN_LOADERS = Set.of("app", "platform", "bootstrap");
+    private static final int TOP = 20;
+
+    private final Map<String, Long> cpuByGroup = new HashMap<>();
+    private final Map<String, Long> cpuByFrame = new HashMap<>();
+    private final Map<String, Long> allocationByGroup = new HashMap<>();
+    private final Map<String, Long> allocationByFrame = new HashMap<>();
+
+    private StartupProfileSummary() {
+    }
+
+    /**
+     * @param recording JFR file written by the Jenkins JVM
+     * @param until     events after this instant (Jenkins fully up) are ignored; {@code null} keeps all events
+     * @param summary   text file to write
+     * @throws IOException if the recording cannot be read or the summary cannot be written
+     */
+    static void write(Path recording, Instant until, Path summary) throws IOException {
+        var profile = new StartupProfileSummary();
+        try (var file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                profile.add(file.readEvent(), until);
+            }
+        }
+        Files.writeString(summary, profile.render(), StandardCharsets.UTF_8);
+    }
+
+    private void add(RecordedEvent event, Instant until) {
+        if (until != null && event.getStartTime().isAfter(until)) {
+            return;
+        }
+        var type = event.getEventType().getName();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return;
+        }
+        var frames = stackTrace.getFrames();
+        if (EXECUTION_SAMPLE.equals(type)) {
+            cpuByGroup.merge(group(frames), 1L, Long::sum);
+            cpuByFrame.merge(describe(frames.get(0)), 1L, Long::sum);
+        } else if (ALLOCATION_SAMPLE.equals(type)) {
+            var weight = event.getLong("weight");
+            allocationByGroup.merge(group(frames), weight, Long::sum);
+            allocationByFrame.merge(describe(frames.get(0)), weight, Long::sum);
+        }
+    }
+
+    private static String group(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            var loader = frame.getMethod().getType().getClassLoader();
+            if (loader != null && loader.getName() != null && !NON_PLUGIN_LOADERS.contains(loader.getName())) {
+                return "plugin " + loader.getName();
+            }
+        }
+        var className = frames.get(0).getMethod().getType().getName();
+        var lastDot = className.lastIndexOf('.');
+        return "package " + (lastDot < 0 ? "<default>" : className.substring(0, lastDot));
+    }
+
+    private static String describe(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private String render() {
+        var out = new StringBuilder();
+        section(out, "CPU samples by plugin or package", cpuByGroup, "samples");
+        section(out, "CPU samples by top frame", cpuByFrame, "samples");
+        section(out, "Allocated bytes by plugin or package", allocationByGroup, "bytes");
+        section(out, "Allocated bytes by top frame", allocationByFrame, "bytes");
+        return out.toString();
+    }
+
+    private static void section(StringBuilder out, String title, Map<String, Long> values, String unit) {
+        out.append(title).append('\n');
+        values.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(TOP)
+                .forEach(entry -> out.append(String.format(Locale.ROOT, "  %,15d %s  %s%n", entry.getValue(), unit, entry.getKey())));
+        out.append('\n');
+    }
+}
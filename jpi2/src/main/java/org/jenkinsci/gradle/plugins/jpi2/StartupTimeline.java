@@ -0,0 +1,182 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds a startup timeline from the Jenkins log while it streams.
+ * <p>
+ * Two kinds of lines are picked up: reactor milestones ({@code InitReactorRunner$1#onAttained: ...}) and the
+ * per-task timings Jenkins logs when started with {@value #LOG_STARTUP_PERFORMANCE}
+ * ({@code Took 12ms for Loading plugin git v5.7.0 (git) by ...}). That property is only set when the timeline is
+ * requested, so regular launches log as they would in production. Times come from the log line when it carries a
+ * timestamp and fall back to the moment the line was read. Every name taken from the log is escaped before it is
+ * embedded in the HTML page.
+ */
+final class StartupTimeline {
+    /** System property that makes Jenkins log how long each initialization task took. */
+    static final String LOG_STARTUP_PERFORMANCE = "jenkins.model.Jenkins.logStartupPerformance";
+
+    static final String JSON_FILE = "startup-timeline.json";
+    static final String HTML_FILE = "startup-timeline.html";
+
+    private static final Pattern TIMESTAMP = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}\\.\\d{3}[+-]\\d{4})");
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSZ", Locale.ROOT);
+    private static final Pattern MILESTONE = Pattern.compile("InitReactorRunner\\$1#onAttained: (.+)$");
+    private static final Pattern TASK = Pattern.compile("Took (\\d+)ms for (.+) by (\\S+)\\s*$");
+    private static final Pattern PLUGIN_TASK = Pattern.compile("^(Loading|Inspecting|Initializing|Starting|Preparing) plugin (.+?)(?: v\\S+)?(?: \\((.+)\\))?$");
+
+    private final Instant start;
+    private final List<Map<String, Object>> milestones = new ArrayList<>();
+    private final List<Map<String, Object>> tasks = new ArrayList<>();
+
+    /**
+     * @param start moment the server process was launched; all times are reported relative to it
+     */
+    StartupTimeline(Instant start) {
+        this.start = start;
+    }
+
+    /**
+     * @param line   a line of Jenkins output
+     * @param readAt moment the line was read
+     */
+    void accept(String line, Instant readAt) {
+        var at = timestamp(line, readAt);
+        Matcher milestone = MILESTONE.matcher(line);
+        if (milestone.find()) {
+            var event = new LinkedHashMap<String, Object>();
+            event.put("name", milestone.group(1).trim());
+            event.put("atMs", millisSinceStart(at));
+            milestones.add(event);
+            return;
+        }
+        Matcher task = TASK.matcher(line);
+        if (task.find()) {
+            var duration = Long.parseLong(task.group(1));
+            var name = task.group(2).trim();
+            var event = new LinkedHashMap<String, Object>();
+            event.put("name", name);
+            event.put("category", category(name));
+            Matcher plugin = PLUGIN_TASK.matcher(name);
+            if (plugin.matches()) {
+                event.put("plugin", plugin.group(3) != null ? plugin.group(3) : plugin.group(2));
+            }
+            event.put("thread", task.group(3));
+            event.put("startMs", Math.max(0, millisSinceStart(at) - duration));
+            event.put("durationMs", duration);
+            tasks.add(event);
+        }
+    }
+
+    /**
+     * Writes {@value #JSON_FILE} and {@value #HTML_FILE} to {@code directory}.
+     *
+     * @param directory reports directory
+     * @throws IOException if a report cannot be written
+     */
+    void write(Path directory) throws IOException {
+        var document = new LinkedHashMap<String, Object>();
+        document.put("milestones", milestones);
+        document.put("tasks", tasks);
+        Files.writeString(directory.resolve(JSON_FILE), JsonWriter.write(document), StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve(HTML_FILE), html(), StandardCharsets.UTF_8);
+    }
+
+    private long totalMillis() {
+        long end = 1;
+        for (var event : milestones) {
+            end = Math.max(end, (Long) event.get("atMs"));
+        }
+        for (var event : tasks) {
+            end = Math.max(end, (Long) event.get("startMs") + (Long) event.get("durationMs"));
+        }
+        return end;
+    }
+
+    private String html() {
+        var end = totalMillis();
+        var out = new StringBuilder();
+        out.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Jenkins startup timeline</title>\n")
+                .append("<style>body{font-family:sans-serif;font-size:12px}.row{position:relative;height:16px;margin:1px 0}")
+                .append(".bar{position:absolute;height:14px;background:#4a90d9}.plugin{background:#e58e26}.extensions{background:#6ab04c}")
+                .append(".milestone{position:absolute;height:14px;border-left:2px solid #c0392b}")
+                .append(".label{position:absolute;left:0;white-space:nowrap;padding-left:4px}</style></head><body>\n")
+                .append("<h1>Jenkins startup timeline</h1>\n")
+                .append("<p>Total ").append(end).append(" ms</p>\n<h2>Milestones</h2>\n");
+        for (var event : milestones) {
+            var left = percent((Long) event.get("atMs"), end);
+            out.append("<div class=\"row\"><div class=\"milestone\" style=\"left:").append(left).append("%\"></div>")
+                    .append("<span class=\"label\" style=\"left:").append(left).append("%\">")
+                    .append(escape((String) event.get("name"))).append(" @ ").append(event.get("atMs")).append(" ms</span></div>\n");
+        }
+        out.append("<h2>Tasks</h2>\n");
+        tasks.stream()
+                .sorted((a, b) -> Long.compare((Long) a.get("startMs"), (Long) b.get("startMs")))
+                .forEach(event -> {
+                    var left = percent((Long) event.get("startMs"), end);
+                    var width = percent(Math.max(1, (Long) event.get("durationMs")), end);
+                    out.append("<div class=\"row\" title=\"").append(escape((String) event.get("name"))).append("\">")
+                            .append("<div class=\"bar ").append(escape((String) event.get("category"))).append("\" style=\"left:").append(left)
+                            .append("%;width:").append(width).append("%\"></div>")
+                            .append("<span class=\"label\" style=\"left:").append(left).append("%\">")
+                            .append(escape((String) event.get("name"))).append(" (").append(event.get("durationMs"))
+                            .append(" ms)</span></div>\n");
+                });
+        out.append("</body></html>\n");
+        return out.toString();
+    }
+
+    private long millisSinceStart(Instant at) {
+        return Math.max(0, at.toEpochMilli() - start.toEpochMilli());
+    }
+
+    /**
+     * @param line   a line of Jenkins output
+     * @param readAt moment the line was read
+     * @return the timestamp Jenkins logged the line with, or {@code readAt} if it carries none
+     */
+    static Instant timestamp(String line, Instant readAt) {
+        Matcher matcher = TIMESTAMP.matcher(line.stripLeading());
+        if (matcher.find()) {
+            try {
+                return OffsetDateTime.parse(matcher.group(1), TIMESTAMP_FORMAT).toInstant();
+            } catch (DateTimeParseException e) {
+                return readAt;
+            }
+        }
+        return readAt;
+    }
+
+    private static String category(String name) {
+        if (PLUGIN_TASK.matcher(name).matches()) {
+            return "plugin";
+        }
+        if (name.toLowerCase(Locale.ROOT).contains("extension")) {
+            return "extensions";
+        }
+        return "milestone-task";
+    }
+
+    private static String percent(long value, long total) {
+        return String.format(Locale.ROOT, "%.3f", value * 100.0 / total);
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;")
+                .replace("'", "&#39;");
+    }
+}
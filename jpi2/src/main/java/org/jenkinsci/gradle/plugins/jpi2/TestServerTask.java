@@ -3,6 +3,7 @@ package org.jenkinsci.gradle.plugins.jpi2;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
@@ -10,8 +11,11 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.CacheableTask;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -25,9 +29,12 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Instant;
 import java.util.Comparator;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Task that launches a Jenkins server and terminates after success or first error.
@@ -38,10 +45,12 @@ import java.util.List;
  * <p>Cacheable: a successful run produces a marker file. If the declared inputs are unchanged, Gradle
  * can restore the marker from cache and skip launching Jenkins. The modeled inputs are:
  * <ul>
- *   <li>the plugin files synced for the server and the Jenkins runtime classpath;</li>
+ *   <li>the plugin files synced for the server, by their version-insensitive digest for {@code testServer},
+ *       and the Jenkins runtime classpath;</li>
  *   <li>files referenced from the plugin's HPL ({@code testHplRun} only);</li>
  *   <li>the forwarded init scripts — content via {@link #getInitScriptFiles()} and order/identity
- *       via {@link #getInitScriptPaths()};</li>
+ *       via {@link #getInitScriptNames()};</li>
+ *   <li>the Gradle version and the JDK version and vendor the nested build runs with;</li>
  *   <li>the project's build logic that can change the nested build: build &amp; settings scripts,
  *       {@code gradle.properties}, version catalogs, and {@code buildSrc} sources (see
  *       {@link #getBuildConfigFiles()});</li>
@@ -51,45 +60,89 @@ import java.util.List;
  * <p><strong>Cacheability boundary.</strong> Because the nested build re-evaluates the whole project,
  * its inputs cannot be captured exhaustively from here. Changes to build logic <em>outside</em> the
  * modeled set are <em>not</em> guaranteed to invalidate the cache, notably: included builds located
- * outside the project tree, environment variables, {@code ~/.gradle/gradle.properties}, the Gradle or
- * wrapper version, and dynamic dependency versions resolved from the network. When in doubt, run with
+ * outside the project tree, environment variables, {@code ~/.gradle/gradle.properties}, and dynamic
+ * dependency versions resolved from the network. When in doubt, run with
  * {@code --rerun-tasks} to force a fresh launch.
+ *
+ * <p>No absolute path is part of the cache key, so a result cached by one checkout or CI agent is reused by
+ * another one with the same inputs.
  */
 @CacheableTask
 public abstract class TestServerTask extends DefaultTask {
 
+    /** Gradle property that turns on JFR startup profiling. */
+    public static final String PROFILE_STARTUP_PROPERTY = "jpi2.profileStartup";
+    /** Gradle property that turns on the startup timeline. */
+    public static final String STARTUP_TIMELINE_PROPERTY = "jpi2.startupTimeline";
+    /** Gradle property setting the {@link JenkinsLogVerbosity} of the console ({@code quiet}, {@code tail} or {@code full}). */
+    public static final String LOG_VERBOSITY_PROPERTY = "jpi2.testServerLogVerbosity";
+
+    static final String STARTUP_RECORDING_FILE = "startup.jfr";
+    static final String STARTUP_PROFILE_FILE = "startup-profile.txt";
+
+    /** Memory, in megabytes, assumed for the nested Gradle daemon on top of the Jenkins heap. */
+    static final long NESTED_BUILD_MEGABYTES = 512;
+    /** Jenkins heap, in megabytes, assumed when the launched task does not set a maximum heap size. */
+    static final long DEFAULT_JENKINS_HEAP_MEGABYTES = 1024;
+
+    private static final int JCMD_TIMEOUT_SECONDS = 60;
+
     private static final List<String> FAILURE_MESSAGES = List.of(
             "Failed Loading plugin",
             "Jenkins stopped",
             "java.io.IOException: Failed to load"
     );
 
-    /** @return root directory of the plugin project, used as the working directory for the spawned Gradle process */
-    @Input
+    /**
+     * @return root directory of the build, used as the working directory for the spawned Gradle process.
+     * Not part of the cache key: {@link #getServerTaskPath()} identifies the project within the build.
+     */
+    @Internal
     public abstract Property<String> getRootDir();
 
-    /** @return path to the {@code gradlew} executable to invoke for the nested build */
-    @Input
+    /** @return path to the {@code gradle} executable to invoke for the nested build; keyed by {@link #getGradleVersion()} */
+    @Internal
     public abstract Property<String> getGradleExecutable();
 
-    /** @return path to the JDK passed to the spawned Gradle via {@code -Dorg.gradle.java.home} */
+    /** @return version of the Gradle distribution behind {@link #getGradleExecutable()} */
     @Input
+    public abstract Property<String> getGradleVersion();
+
+    /**
+     * @return path to the JDK of the Java toolchain, passed to the spawned Gradle via {@code -Dorg.gradle.java.home}; keyed by
+     * {@link #getJavaVersion()} and {@link #getJavaVendor()}
+     */
+    @Internal
     public abstract Property<String> getJavaHome();
 
+    /** @return runtime version of the JDK at {@link #getJavaHome()} */
+    @Input
+    public abstract Property<String> getJavaVersion();
+
+    /** @return vendor of the JDK at {@link #getJavaHome()} */
+    @Input
+    public abstract Property<String> getJavaVendor();
+
     /**
      * @return ordered absolute paths of the init scripts forwarded via {@code --init-script}, in the
-     * exact order they are passed. Gradle applies init scripts in command-line order, so the order
-     * (and the set of paths) is part of the cache key — reordering two scripts, or swapping one for a
-     * same-content script at a different path, changes the nested build and must invalidate the cache.
-     * Content is fingerprinted separately by {@link #getInitScriptFiles()}.
+     * exact order they are passed. Keyed by {@link #getInitScriptNames()} and {@link #getInitScriptFiles()},
+     * so that the same scripts in another checkout or on another machine give the same key.
      */
-    @Input
+    @Internal
     public abstract ListProperty<String> getInitScriptPaths();
 
+    /**
+     * @return the init scripts in the order they are passed, each as its path relative to {@link #getRootDir()}
+     * when it lives in the build and as its file name otherwise. Gradle applies init scripts in
+     * command-line order, so reordering two scripts changes the nested build and must invalidate the cache.
+     */
+    @Input
+    public abstract ListProperty<String> getInitScriptNames();
+
     /**
      * @return the init script files, fingerprinted for content so that editing a script invalidates
-     * the cache even when its path is unchanged. Path and ordering are captured by
-     * {@link #getInitScriptPaths()}, so this collection only needs to track content
+     * the cache even when its path is unchanged. Ordering is captured by
+     * {@link #getInitScriptNames()}, so this collection only needs to track content
      * ({@link PathSensitivity#NONE}).
      */
     @InputFiles
@@ -108,7 +161,7 @@ public abstract class TestServerTask extends DefaultTask {
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract ConfigurableFileCollection getBuildConfigFiles();
 
-    /** @return composite-build inclusions forwarded via {@code --include-build} */
+    /** @return composite-build inclusions forwarded via {@code --include-build}, relative to {@link #getRootDir()} when inside it */
     @Input
     public abstract ListProperty<String> getIncludedBuilds();
 
@@ -157,14 +210,25 @@ public abstract class TestServerTask extends DefaultTask {
     public abstract Property<String> getServerTaskPath();
 
     /**
-     * @return files that {@code prepareServer} / {@code prepareRun} would copy into the Jenkins
-     * work directory (the project's own JPI/HPL and resolved plugin dependencies). Fingerprinting
-     * these is what makes the task safely cacheable when nothing relevant has changed.
+     * @return files that {@code prepareRun} would copy into the Jenkins work directory (the project's
+     * own HPL and resolved plugin dependencies). Fingerprinting these is what makes the task safely
+     * cacheable when nothing relevant has changed. Empty for {@code testServer}, which uses
+     * {@link #getPluginFingerprint()} instead.
      */
     @InputFiles
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract ConfigurableFileCollection getPluginFiles();
 
+    /**
+     * @return digest of the plugins {@code prepareServer} would copy into the Jenkins work directory, written by
+     * {@link FingerprintPluginsTask}. It ignores file names and version attributes, so a commit that only changes
+     * the plugin version keeps the cache key.
+     */
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPluginFingerprint();
+
     /** @return classpath used to launch the embedded Jenkins server (jenkins-war). */
     @Classpath
     public abstract ConfigurableFileCollection getJenkinsClasspath();
@@ -183,6 +247,70 @@ public abstract class TestServerTask extends DefaultTask {
     @OutputFile
     public abstract RegularFileProperty getSuccessMarker();
 
+    /**
+     * @return {@code true} to record Jenkins startup with Java Flight Recorder. The recording ({@value #STARTUP_RECORDING_FILE})
+     * and a summary of the hottest CPU and allocation frames ({@value #STARTUP_PROFILE_FILE}) are written to
+     * {@link #getReportsDirectory()}.
+     */
+    @Input
+    public abstract Property<Boolean> getProfileStartup();
+
+    /**
+     * @return {@code true} to write a timeline of reactor milestones and per-plugin startup tasks
+     * ({@value StartupTimeline#JSON_FILE}, {@value StartupTimeline#HTML_FILE}) to {@link #getReportsDirectory()}. Jenkins
+     * is then started with {@value StartupTimeline#LOG_STARTUP_PERFORMANCE}, which it is not otherwise.
+     */
+    @Input
+    public abstract Property<Boolean> getStartupTimeline();
+
+    /**
+     * @return directory receiving startup reports: the Jenkins log, resource usage, and the timeline and profiling
+     * files when {@link #getStartupTimeline()} and {@link #getProfileStartup()} are set
+     */
+    @OutputDirectory
+    public abstract DirectoryProperty getReportsDirectory();
+
+    /**
+     * @return upper bound for the peak resident set size of the Jenkins process tree, in megabytes, while it boots.
+     * Peak values are written to {@value ProcessResourceSampler#REPORT_FILE} in {@link #getReportsDirectory()}.
+     * Budgets are only enforced where {@code /proc} is available.
+     */
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxRssMegabytes();
+
+    /** @return upper bound for the CPU time, in seconds, the Jenkins process tree spends until it is fully up */
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxCpuSeconds();
+
+    /** @return upper bound for the peak thread count of the Jenkins process tree while it boots */
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxThreads();
+
+    /**
+     * @return how much of the Jenkins output is shown on the console. The full output is always written to
+     * {@value JenkinsLogCapture#LOG_FILE} in {@link #getReportsDirectory()}.
+     */
+    @Internal
+    public abstract Property<JenkinsLogVerbosity> getLogVerbosity();
+
+    /** @return number of trailing Jenkins log lines shown on the console when Jenkins fails to start */
+    @Internal
+    public abstract Property<Integer> getLogTailLines();
+
+    /** @return build service admitting Jenkins launches across the whole build */
+    @Internal
+    public abstract Property<JenkinsLaunchAdmission> getLaunchAdmission();
+
+    /**
+     * @return memory, in megabytes, the nested Gradle build and the Jenkins JVM it starts are expected to use
+     * together. Defaults to the maximum heap of the launched task plus {@value #NESTED_BUILD_MEGABYTES} MB.
+     */
+    @Internal
+    public abstract Property<Long> getLaunchMemoryMegabytes();
+
     /** @return build service that allocates a free TCP port for the Jenkins test server */
     @Internal
     public abstract Property<PortAllocationService> getPortAllocationService();
@@ -196,13 +324,27 @@ public abstract class TestServerTask extends DefaultTask {
         var timeoutSystemProperty = System.getProperty("testServer.timeoutSeconds", "120");
         var timeout = Integer.parseInt(timeoutSystemProperty);
         Path workDir = null;
+        JenkinsLaunchAdmission.Admission admission = null;
 
         clearSuccessMarker();
+        var reportsDir = getReportsDirectory().get().getAsFile().toPath();
+        var recording = getProfileStartup().get() ? reportsDir.resolve(STARTUP_RECORDING_FILE) : null;
 
         try {
+            admission = getLaunchAdmission().get().admit(getPath(), getLaunchMemoryMegabytes().get());
+            if (!admission.getWaited().isZero()) {
+                getLogger().lifecycle("Waited {} s for Jenkins launch admission", admission.getWaited().toMillis() / 1000.0);
+            }
+            clearReports(reportsDir);
             workDir = createWorkDirectory();
-            var commandLine = getCommandLine(workDir);
+            var commandLine = getCommandLine(workDir, recording);
+            var jenkinsMarker = ServerAction.commonLibFolderArgument(
+                    WorkDirectorySettings.getLaunchDirectory(workDir.toAbsolutePath().toString(), getLaunchTaskName()));
+            var timeline = getStartupTimeline().get() ? new StartupTimeline(Instant.now()) : null;
             var process = launchProcess(commandLine);
+            var sampler = ProcessResourceSampler.isSupported()
+                    ? new ProcessResourceSampler(process.toHandle(), jenkinsMarker)
+                    : null;
 
             var timerThread = new Thread(() -> {
                 try {
@@ -210,29 +352,97 @@ public abstract class TestServerTask extends DefaultTask {
                 } catch (InterruptedException e) {
                     // Ignore
                 }
-                System.err.println("Timeout reached, terminating Jenkins server");
+                getLogger().warn("Timeout reached, terminating Jenkins server");
                 process.destroy();
             });
 
             timerThread.start();
 
             BufferedReader stdoutReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            boolean foundSuccess = isProcessSuccessful(stdoutReader, process);
+            String fullyUpLine = null;
+            if (sampler != null) {
+                sampler.start();
+            }
+            try (var log = new JenkinsLogCapture(reportsDir.resolve(JenkinsLogCapture.LOG_FILE),
+                    getLogVerbosity().get(), getLogTailLines().get(), getLogger())) {
+                try {
+                    fullyUpLine = awaitFullyUp(stdoutReader, process, timeline, log);
+                } finally {
+                    if (fullyUpLine == null) {
+                        log.failed();
+                    }
+                    if (timeline != null) {
+                        timeline.write(reportsDir);
+                    }
+                }
+            } finally {
+                if (sampler != null) {
+                    sampler.stop();
+                }
+            }
+            if (sampler != null) {
+                sampler.write(reportsDir.resolve(ProcessResourceSampler.REPORT_FILE));
+            }
 
+            if (fullyUpLine != null && recording != null) {
+                stopRecording(process, jenkinsMarker, recording);
+            }
+            process.destroy();
             process.waitFor();
 
-            if (!foundSuccess) {
+            if (fullyUpLine == null) {
                 throw new GradleException("Jenkins failed to report a successful start (exit code " + process.exitValue() + ")");
             }
 
+            if (recording != null) {
+                var fullyUp = StartupTimeline.timestamp(fullyUpLine, Instant.now());
+                StartupProfileSummary.write(recording, fullyUp, reportsDir.resolve(STARTUP_PROFILE_FILE));
+                getLogger().lifecycle("Startup profile written to {}", reportsDir.resolve(STARTUP_PROFILE_FILE));
+            }
+
+            if (sampler != null) {
+                enforceBudgets(sampler);
+            } else if (getMaxRssMegabytes().isPresent() || getMaxCpuSeconds().isPresent() || getMaxThreads().isPresent()) {
+                getLogger().warn("Resource budgets are not enforced: /proc is not available on this system");
+            }
+
             writeSuccessMarker();
         } catch (IOException e) {
             throw new GradleException("IO Exception", e);
         } catch (InterruptedException e) {
             throw new GradleException("Process interrupted", e);
         } finally {
-            cleanupWorkDirectory(workDir);
+            try {
+                cleanupWorkDirectory(workDir);
+            } finally {
+                if (admission != null) {
+                    admission.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param value value of {@value #LOG_VERBOSITY_PROPERTY}, in any case
+     * @return the verbosity it names
+     */
+    static JenkinsLogVerbosity parseLogVerbosity(String value) {
+        return JenkinsLogVerbosity.valueOf(value.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @param root build root directory
+     * @param file file to identify
+     * @return path of {@code file} relative to {@code root}, with {@code /} separators, or {@code null} when it lies
+     * outside of {@code root}
+     */
+    static String relativeToRoot(File root, File file) {
+        var rootPath = root.toPath().toAbsolutePath().normalize();
+        var path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(rootPath)) {
+            return null;
         }
+        return rootPath.relativize(path).toString().replace(File.separatorChar, '/');
     }
 
     private void clearSuccessMarker() {
@@ -244,6 +454,53 @@ public abstract class TestServerTask extends DefaultTask {
         }
     }
 
+    private void enforceBudgets(ProcessResourceSampler sampler) {
+        var violations = new ArrayList<String>();
+        if (getMaxRssMegabytes().isPresent() && sampler.getPeakRssMegabytes() > getMaxRssMegabytes().get()) {
+            violations.add("peak RSS " + sampler.getPeakRssMegabytes() + " MB exceeds " + getMaxRssMegabytes().get() + " MB");
+        }
+        if (getMaxCpuSeconds().isPresent() && sampler.getCpuSeconds() > getMaxCpuSeconds().get()) {
+            violations.add("CPU time " + sampler.getCpuSeconds() + " s exceeds " + getMaxCpuSeconds().get() + " s");
+        }
+        if (getMaxThreads().isPresent() && sampler.getPeakThreads() > getMaxThreads().get()) {
+            violations.add("peak thread count " + sampler.getPeakThreads() + " exceeds " + getMaxThreads().get());
+        }
+        if (!violations.isEmpty()) {
+            throw new GradleException("Jenkins exceeded its resource budget: " + String.join(", ", violations));
+        }
+    }
+
+    private static void clearReports(Path reportsDir) throws IOException {
+        Files.createDirectories(reportsDir);
+        Files.deleteIfExists(reportsDir.resolve(STARTUP_RECORDING_FILE));
+        Files.deleteIfExists(reportsDir.resolve(STARTUP_PROFILE_FILE));
+        Files.deleteIfExists(reportsDir.resolve(StartupTimeline.JSON_FILE));
+        Files.deleteIfExists(reportsDir.resolve(StartupTimeline.HTML_FILE));
+        Files.deleteIfExists(reportsDir.resolve(ProcessResourceSampler.REPORT_FILE));
+        Files.deleteIfExists(reportsDir.resolve(JenkinsLogCapture.LOG_FILE));
+    }
+
+    /**
+     * Dumps and stops the startup recording of the Jenkins JVM, so it ends when Jenkins is fully up rather than when
+     * the JVM exits.
+     */
+    private void stopRecording(Process client, String jenkinsMarker, Path recording) throws IOException, InterruptedException {
+        var jenkins = JenkinsProcess.find(client.toHandle(), jenkinsMarker)
+                .orElseThrow(() -> new GradleException("Unable to find the Jenkins process to stop its flight recording"));
+        var command = List.of(JenkinsProcess.jcmd(jenkins, getJavaHome().get()).toString(), String.valueOf(jenkins.pid()),
+                "JFR.stop", "name=" + ServerAction.STARTUP_RECORDING_NAME, "filename=" + recording.toAbsolutePath());
+        getLogger().info("Command: {}", command);
+        var jcmd = new ProcessBuilder(command).redirectErrorStream(true).start();
+        if (!jcmd.waitFor(JCMD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            jcmd.destroyForcibly();
+            throw new GradleException("jcmd did not stop the flight recording within " + JCMD_TIMEOUT_SECONDS + " s");
+        }
+        var output = new String(jcmd.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (jcmd.exitValue() != 0 || !Files.isRegularFile(recording)) {
+            throw new GradleException("Jenkins did not write a flight recording to " + recording + ": " + output.trim());
+        }
+    }
+
     private void writeSuccessMarker() {
         var marker = getSuccessMarker().get().getAsFile();
         try {
@@ -259,14 +516,22 @@ public abstract class TestServerTask extends DefaultTask {
         return new ProcessBuilder(commandLine).directory(new File(getRootDir().get())).redirectErrorStream(true).start();
     }
 
-    private static boolean isProcessSuccessful(BufferedReader stdoutReader, Process process) throws IOException, InterruptedException {
+    /**
+     * @param timeline receives every line, may be {@code null}
+     * @return the line reporting that Jenkins is fully up, or {@code null} if the output ended without it
+     */
+    private static String awaitFullyUp(BufferedReader stdoutReader, Process process, StartupTimeline timeline,
+                                       JenkinsLogCapture log) throws IOException, InterruptedException {
         String stdout;
 
         while ((stdout = stdoutReader.readLine()) != null) {
-            System.err.println("    " + stdout);
+            log.accept(stdout);
+            if (timeline != null) {
+                timeline.accept(stdout, Instant.now());
+            }
             if (stdout.contains("Jenkins is fully up and running")) {
-                process.destroy();
-                return true;
+                log.outcome(stdout);
+                return stdout;
             }
             if (FAILURE_MESSAGES.stream().anyMatch(stdout::contains)) {
                 process.destroy();
@@ -274,7 +539,7 @@ public abstract class TestServerTask extends DefaultTask {
                 throw new GradleException("Jenkins failed to start: " + stdout);
             }
         }
-        return false;
+        return null;
     }
 
     @NotNull
@@ -297,8 +562,16 @@ public abstract class TestServerTask extends DefaultTask {
         }
     }
 
+    /**
+     * @return name of the task the nested build runs, which names its Jenkins home within the work directory
+     */
+    private String getLaunchTaskName() {
+        var path = getServerTaskPath().get();
+        return path.substring(path.lastIndexOf(':') + 1);
+    }
+
     @NotNull
-    private List<String> getCommandLine(@NotNull Path workDir) {
+    private List<String> getCommandLine(@NotNull Path workDir, Path recording) {
         List<String> commandLine = new ArrayList<>();
         commandLine.add(getGradleExecutable().get());
         commandLine.add("-Dorg.gradle.java.home=" + getJavaHome().get());
@@ -328,7 +601,8 @@ public abstract class TestServerTask extends DefaultTask {
             }
         });
         getProjectProperties().get().forEach((k, v) -> {
-            if (!k.equals(WorkDirectorySettings.PROPERTY)) {
+            if (!k.equals(WorkDirectorySettings.PROPERTY) && !k.equals(PROFILE_STARTUP_PROPERTY)
+                    && !k.equals(STARTUP_TIMELINE_PROPERTY)) {
                 commandLine.add("-P" + k + "=" + v);
             }
         });
@@ -336,7 +610,13 @@ public abstract class TestServerTask extends DefaultTask {
         commandLine.add(getServerTaskPath().get());
         commandLine.add("-Dserver.port=" + getPortAllocationService().get().findAndReserveFreePort());
         commandLine.add("-P" + WorkDirectorySettings.PROPERTY + "=" + workDir.toAbsolutePath());
-        System.err.println("Command: " + commandLine);
+        if (getStartupTimeline().get()) {
+            commandLine.add("-P" + ServerAction.LOG_STARTUP_PERFORMANCE_PROPERTY + "=true");
+        }
+        if (recording != null) {
+            commandLine.add("-P" + ServerAction.STARTUP_RECORDING_PROPERTY + "=" + recording.toAbsolutePath());
+        }
+        getLogger().info("Command: {}", commandLine);
         return commandLine;
     }
 }
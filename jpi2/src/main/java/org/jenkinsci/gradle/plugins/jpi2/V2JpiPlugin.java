@@ -1,27 +1,35 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
 import org.gradle.api.Action;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ConfigurationVariant;
 import org.gradle.api.artifacts.Dependency;
-import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.repositories.MavenArtifactRepository;
+import org.gradle.api.attributes.LibraryElements;
 import org.gradle.api.attributes.Usage;
-import org.gradle.api.file.Directory;
+import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.component.ConfigurationVariantDetails;
+import org.gradle.api.file.FileCollection;
 import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.plugins.GroovyBasePlugin;
 import org.gradle.api.plugins.JavaBasePlugin;
 import org.gradle.api.plugins.JavaLibraryPlugin;
+import org.gradle.api.plugins.JavaPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
 import org.gradle.api.publish.maven.plugins.MavenPublishPlugin;
 import org.gradle.api.services.BuildServiceRegistry;
+import org.gradle.api.specs.Spec;
 import org.gradle.StartParameter;
 import org.gradle.api.tasks.JavaExec;
 import org.gradle.api.tasks.SourceSet;
@@ -30,6 +38,11 @@ import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Jar;
 import org.gradle.api.tasks.bundling.War;
+import org.gradle.jvm.toolchain.JavaInstallationMetadata;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.normalization.MetaInfNormalization;
+import org.gradle.normalization.RuntimeClasspathNormalization;
 import org.jenkinsci.gradle.plugins.jpi2.localization.LocalizationPlugin;
 import org.jenkinsci.gradle.plugins.jpi2.accmod.CheckAccessModifierTask;
 import org.jenkinsci.gradle.plugins.jpi2.accmod.PrefixedPropertiesProvider;
@@ -39,11 +52,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.net.URI;
-import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -65,11 +76,22 @@ public class V2JpiPlugin implements Plugin<Project> {
     /** Task name for creating the JPI archive. */
     public static final String JPI_TASK = "jpi";
 
+    private static final List<String> PREFETCHED_CONFIGURATIONS = List.of(
+            "compileClasspath", "runtimeClasspath", "annotationProcessor", "testCompileClasspath", "testRuntimeClasspath",
+            "jenkinsCore", "defaultRuntime", "serverTaskClasspath", "jenkinsAccessModifier", "localizeMessagesRuntimeClasspath",
+            "pluginLoadClasspath");
+
+    /** Manifest attributes that carry the project version, which usually changes on every commit. */
+    static final List<String> VERSION_MANIFEST_ATTRIBUTES = List.of(
+            "Implementation-Title", "Implementation-Version", "Plugin-Version");
+
     @Override
     public void apply(@NotNull Project project) {
         project.getPlugins().apply(JavaLibraryPlugin.class);
         project.getPlugins().apply(MavenPublishPlugin.class);
         RepositoryShortcuts.registerRepositoryShortcuts(project.getRepositories());
+        useDependencyBundle(project);
+        ignoreVersionManifestAttributes(project);
         var publishingExtension = project.getExtensions().getByType(PublishingExtension.class);
         RepositoryShortcuts.registerRepositoryShortcuts(publishingExtension.getRepositories(), project);
 
@@ -80,12 +102,12 @@ public class V2JpiPlugin implements Plugin<Project> {
         var configurations = project.getConfigurations();
         var dependencies = project.getDependencies();
 
-        var serverTaskClasspath = createServerTaskClasspathConfiguration(project);
         var jenkinsVersion = extension.getJenkinsVersion();
         var testHarnessVersion = extension.getTestHarnessVersion();
         var jenkinsCoreCoordinate = jenkinsVersion.map(version -> "org.jenkins-ci.main:jenkins-core:" + version);
         var jenkinsWarCoordinate = jenkinsVersion.map(version -> "org.jenkins-ci.main:jenkins-war:" + version);
         var jenkinsTestHarnessCoordinate = testHarnessVersion.map(version -> "org.jenkins-ci.main:jenkins-test-harness:" + version);
+        var serverTaskClasspath = registerServerTaskClasspathConfiguration(project, jenkinsWarCoordinate);
 
         var jenkinsCore = configurations.create("jenkinsCore");
 
@@ -97,11 +119,19 @@ public class V2JpiPlugin implements Plugin<Project> {
         testRuntimeClasspath.shouldResolveConsistentlyWith(jenkinsCore);
         testRuntimeClasspath.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.PLUGIN_JAR));
 
+        // Resolved for the plugins to stage; defaultRuntimeElements offers this plugin's archive to consumers.
         var defaultRuntime = configurations.create("defaultRuntime");
         runtimeClasspath.getExtendsFrom().forEach(defaultRuntime::extendsFrom);
+        defaultRuntime.setCanBeConsumed(false);
         defaultRuntime.shouldResolveConsistentlyWith(jenkinsCore);
         defaultRuntime.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.DEFAULT));
 
+        var defaultRuntimeElements = configurations.create(HpiMetadataRule.DEFAULT_RUNTIME_ELEMENTS_VARIANT);
+        runtimeClasspath.getExtendsFrom().forEach(defaultRuntimeElements::extendsFrom);
+        defaultRuntimeElements.setCanBeResolved(false);
+        defaultRuntimeElements.setVisible(false);
+        defaultRuntimeElements.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, project.getObjects().named(ArtifactType.class, ArtifactType.DEFAULT));
+
         var pomFiles = resolvePomFiles(project, defaultRuntime);
         var licenseTask = project.getTasks().register(GenerateLicenseInfoTask.NAME, GenerateLicenseInfoTask.class, new Action<>() {
             @Override
@@ -148,33 +178,44 @@ public class V2JpiPlugin implements Plugin<Project> {
                     task.getOutputFile().set(project.getLayout().getBuildDirectory().file("jenkins-manifests/optional.mf"));
                 });
         var optionalManifestFile = optionalManifest.flatMap(GenerateOptionalJenkinsManifestTask::getOutputFile);
+        var jenkinsManifest = project.getTasks().register(GenerateJenkinsManifestTask.NAME, GenerateJenkinsManifestTask.class,
+                new ConfigureJenkinsManifestAction(project, defaultRuntime, extension));
+        var jenkinsManifestFile = jenkinsManifest.flatMap(GenerateJenkinsManifestTask::getOutputFile);
 
-        var jpiTask = project.getTasks().register(JPI_TASK, War.class, new ConfigureJpiAction(project, defaultRuntime, jenkinsCore, extension));
+        var jenkinsCoreModules = project.getGradle().getSharedServices().registerIfAbsent(JenkinsCoreModules.NAME, JenkinsCoreModules.class, spec -> {
+        });
+        var runtimeClasspathArtifacts = new RuntimeClasspathArtifacts(project, defaultRuntime, jenkinsCore, jenkinsVersion, jenkinsCoreModules);
+        var jpiTask = project.getTasks().register(JPI_TASK, War.class, new ConfigureJpiAction(project, extension));
         jpiTask.configure(new Action<>() {
             @Override
             public void execute(@NotNull War war) {
-                war.dependsOn(licenseTask);
-                war.getInputs().file(optionalManifestFile);
-                war.getManifest().from(optionalManifestFile);
-                war.getWebInf().from(licenseTask.flatMap(GenerateLicenseInfoTask::getOutputDirectory));
                 war.getArchiveVersion().set(extension.getEffectiveVersion());
             }
         });
         project.getTasks().named("jar", Jar.class).configure(new Action<>() {
             @Override
             public void execute(@NotNull Jar jarTask) {
-                jarTask.manifest(new ManifestAction(project, defaultRuntime, extension));
+                jarTask.getInputs().file(jenkinsManifestFile);
+                jarTask.getManifest().from(jenkinsManifestFile);
                 jarTask.getInputs().file(optionalManifestFile);
                 jarTask.getManifest().from(optionalManifestFile);
+                jarTask.setPreserveFileTimestamps(false);
+                jarTask.setReproducibleFileOrder(true);
             }
         });
-        Provider<Directory> jpiDirectory = project.getLayout().getBuildDirectory().dir("jpi");
-        var runtimeClasspathArtifacts = new RuntimeClasspathArtifacts(project, defaultRuntime, jenkinsCore);
-        project.getTasks().register(EXPLODED_JPI_TASK, Sync.class, new Action<>() {
+        project.getTasks().register(EXPLODED_JPI_TASK, ExplodedJpiTask.class, new Action<>() {
             @Override
-            public void execute(@NotNull Sync sync) {
-                sync.into(jpiDirectory);
-                sync.with(jpiTask.get());
+            public void execute(@NotNull ExplodedJpiTask task) {
+                task.setGroup(BasePlugin.BUILD_GROUP);
+                task.setDescription("Assembles the exploded plugin archive.");
+                task.getLibraries().from(project.getTasks().named("jar"));
+                task.getLibraries().from(runtimeClasspathArtifacts.getBundledLibraries());
+                task.getWebapp().from(project.file("src/main/webapp"));
+                task.getWebInf().from(licenseTask.flatMap(GenerateLicenseInfoTask::getOutputDirectory));
+                task.getManifestAttributes().putAll(project.provider(() -> PluginManifests.declaredAttributes(jpiTask.get())));
+                task.getUpstreamManifest().set(jenkinsManifestFile);
+                task.getAdditionalManifests().from(optionalManifestFile);
+                task.getDestinationDirectory().set(project.getLayout().getBuildDirectory().dir("jpi"));
             }
         });
         var generateHpl = project.getTasks().register(GenerateHplTask.TASK_NAME, GenerateHplTask.class, new Action<>() {
@@ -184,14 +225,20 @@ public class V2JpiPlugin implements Plugin<Project> {
                 task.setDescription("Generate hpl (Hudson plugin link) for running locally");
                 task.getHpl().set(project.getLayout().getBuildDirectory()
                         .file(extension.getPluginId().map(id -> "hpl/" + id + ".hpl")));
+                task.getLibrariesDigest().set(project.getLayout().getBuildDirectory()
+                        .file(extension.getPluginId().map(id -> "hpl/" + id + ".libraries.sha256")));
                 task.getResourcePath().set(project.file("src/main/webapp"));
                 task.getLibraries().from(main.getResources().getSrcDirs());
                 task.getLibraries().from(main.getOutput().getClassesDirs());
                 task.getLibraries().from(project.provider(main.getOutput()::getResourcesDir));
                 task.getLibraries().from(runtimeClasspathArtifacts.getBundledLibraries());
-                task.getUpstreamManifest().set(jpiDirectory.map(dir -> dir.file("META-INF/MANIFEST.MF")));
+                // Read through project.provider, so generating the HPL does not depend on building either archive.
+                task.getManifestAttributes().putAll(project.provider(() ->
+                        PluginManifests.declaredAttributes(project.getTasks().named("jar", Jar.class).get())));
+                task.getManifestAttributes().putAll(project.provider(() -> PluginManifests.declaredAttributes(jpiTask.get())));
+                task.getUpstreamManifest().set(jenkinsManifestFile);
+                task.getAdditionalManifests().from(optionalManifestFile);
                 task.dependsOn(project.getTasks().named("classes"));
-                task.dependsOn(project.getTasks().named(EXPLODED_JPI_TASK));
             }
         });
         project.getTasks().named("assemble", new Action<>() {
@@ -203,20 +250,19 @@ public class V2JpiPlugin implements Plugin<Project> {
 
         final var projectRoot = project.getLayout().getProjectDirectory().getAsFile().getAbsolutePath();
         final var workDir = WorkDirectorySettings.getWorkDir(project, extension, projectRoot);
-        final var prepareServer = createPrepareServerTask(project, workDir, defaultRuntime, jpiTask);
-        final var prepareRun = createPrepareRunTask(project, workDir, defaultRuntime, generateHpl);
-
-        project.getGradle().projectsEvaluated(gradle -> {
-            var projectByPath = project.getRootProject().getAllprojects().stream()
-                    .collect(Collectors.toMap(Project::getPath, it -> it));
-            var projectDependencies = getProjectDependencies(runtimeClasspath, projectByPath);
-            configureProjectDependencyJpis(prepareServer, getProjectDependencyJpis(projectDependencies, extension.getArchiveExtension().get()));
-            configureProjectDependencyTasks(prepareRun, getProjectDependencyTasks(projectDependencies, GenerateHplTask.TASK_NAME));
-            wireUpstreamJpiReferencedFiles(project, projectDependencies);
-        });
-
-        project.getTasks().register("server", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareServer));
-        project.getTasks().register("hplRun", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, workDir, prepareRun));
+        final var serverHome = WorkDirectorySettings.getLaunchDirectory(workDir, "server");
+        final var hplRunHome = WorkDirectorySettings.getLaunchDirectory(workDir, "hplRun");
+        final var prepareServer = createPrepareServerTask(project, serverHome, defaultRuntime, jpiTask);
+        final var prepareRun = createPrepareRunTask(project, hplRunHome, defaultRuntime, generateHpl);
+
+        configureOutgoingVariants(project, defaultRuntimeElements, jpiTask, generateHpl);
+
+        var cdsDirectory = project.getLayout().getBuildDirectory().dir("jenkins-cds");
+        var cdsPluginFiles = defaultRuntime.filter(new PluginArchiveSpec());
+        project.getTasks().register("server", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, serverHome, prepareServer,
+                cdsDirectory, cdsPluginFiles, jenkinsVersion, project.getProviders()));
+        project.getTasks().register("hplRun", JavaExec.class, new ServerAction(serverTaskClasspath, projectRoot, hplRunHome, prepareRun,
+                cdsDirectory, cdsPluginFiles, jenkinsVersion, project.getProviders()));
         project.getPlugins().withType(JavaBasePlugin.class, new SezpozJavaAction(project));
         project.getPlugins().withType(GroovyBasePlugin.class, new SezpozGroovyAction(project));
         configureAccessModifier(project);
@@ -234,7 +280,6 @@ public class V2JpiPlugin implements Plugin<Project> {
 
         dependencies.add("compileOnly", jenkinsCoreCoordinate);
         dependencies.add("compileOnly", "jakarta.servlet:jakarta.servlet-api:5.0.0");
-        dependencies.add(serverTaskClasspath.getName(), jenkinsWarCoordinate);
 
         dependencies.add("testImplementation", jenkinsCoreCoordinate);
         dependencies.add("testImplementation", jenkinsWarCoordinate);
@@ -245,47 +290,124 @@ public class V2JpiPlugin implements Plugin<Project> {
         dependencies.add(jenkinsCore.getName(), jenkinsCoreCoordinate);
 
         dependencies.getComponents().all(HpiMetadataRule.class);
-        var publicationName = configurePublishing(project, jpiTask, defaultRuntime, extension);
+        configurePublishing(project, defaultRuntime, defaultRuntimeElements, extension);
+        registerPrefetchTask(project);
 
         var publishing = project.getExtensions().getByType(PublishingExtension.class);
-        var resolveVersion = project.getTasks().register("resolvePluginVersion", task -> {
-            task.doFirst(t -> {
+        // Set while configuring rather than from a task action: publications must not be mutated at execution
+        // time with the configuration cache. A Git version is a ValueSource, so it still invalidates the cache.
+        project.afterEvaluate(new Action<>() {
+            @Override
+            public void execute(@NotNull Project p) {
                 if (extension.getVersionSource().get() != VersionSource.PROJECT) {
                     var v = extension.getEffectiveVersion().get();
                     publishing.getPublications().withType(MavenPublication.class).configureEach(pub -> pub.setVersion(v));
                 }
-            });
+            }
         });
-        var capitalizedName = publicationName.isEmpty() ? publicationName : publicationName.substring(0, 1).toUpperCase() + publicationName.substring(1);
-        project.getTasks().named("generatePomFileFor" + capitalizedName + "Publication").configure(t -> t.dependsOn(resolveVersion));
-        project.getTasks().named("generateMetadataFileFor" + capitalizedName + "Publication").configure(t -> t.dependsOn(resolveVersion));
 
         BuildServiceRegistry buildServices = project.getGradle().getSharedServices();
         var portAllocationService = buildServices.registerIfAbsent("portAllocation", PortAllocationService.class, spec -> {
         });
+        var launchAdmission = buildServices.registerIfAbsent(JenkinsLaunchAdmission.NAME, JenkinsLaunchAdmission.class, spec -> {
+            var maxParallelLaunches = project.getProviders().gradleProperty(JenkinsLaunchAdmission.MAX_PARALLEL_LAUNCHES_PROPERTY)
+                    .map(Integer::parseInt)
+                    .orElse(JenkinsLaunchAdmission.defaultMaxParallelLaunches());
+            // The available memory is only read by the service once a launch asks for admission, so a configuration
+            // cache entry never carries the reading of the build that stored it.
+            var memoryBudget = project.getProviders().gradleProperty(JenkinsLaunchAdmission.MEMORY_BUDGET_PROPERTY)
+                    .map(Long::parseLong);
+            spec.getMaxParallelUsages().set(maxParallelLaunches.zip(memoryBudget, JenkinsLaunchAdmission::maxParallelUsages)
+                    .orElse(maxParallelLaunches));
+            spec.getParameters().getMemoryBudgetMegabytes().set(memoryBudget);
+        });
 
         var gradle = project.getGradle();
         var startParameter = gradle.getStartParameter();
         var gradleHome = gradle.getGradleHomeDir();
         var gradleExecutable = gradleHome != null ? new File(gradleHome, "bin/gradle").getAbsolutePath() : "gradle";
-        var isRootProject = project == project.getRootProject();
+        var isRootProject = Project.PATH_SEPARATOR.equals(project.getPath());
         var projectPath = project.getPath();
 
-        var testServerTask = registerTestTask(project, portAllocationService, gradleExecutable, startParameter, isRootProject, projectPath,
+        var javaToolchains = project.getExtensions().getByType(JavaToolchainService.class);
+        project.getTasks().register(GenerateJenkinsCdsTask.TASK_NAME, GenerateJenkinsCdsTask.class, new Action<>() {
+            @Override
+            public void execute(@NotNull GenerateJenkinsCdsTask task) {
+                task.setGroup("Jenkins Server");
+                task.setDescription("Boots Jenkins once and records an AppCDS archive used by server, hplRun and testServer");
+                task.getJavaLauncher().convention(javaToolchains.launcherFor(ext.getToolchain()));
+                task.getJenkinsClasspath().from(serverTaskClasspath);
+                task.getPluginsDirectory().fileProvider(prepareServer.map(new SyncDestination()));
+                task.getKeyPluginFiles().from(cdsPluginFiles);
+                task.getJenkinsVersion().set(jenkinsVersion);
+                task.getProjectRoot().set(projectRoot);
+                task.getTimeoutSeconds().convention(300);
+                task.getArchiveDirectory().set(cdsDirectory);
+                task.getPortAllocationService().set(portAllocationService);
+                task.usesService(portAllocationService);
+                task.dependsOn(prepareServer);
+            }
+        });
+
+        var testServerTask = registerTestTask(project, portAllocationService, launchAdmission, gradleExecutable, startParameter, isRootProject, projectPath,
                 "testServer", "Launch Jenkins server and terminate after success or first error", ":server");
         // Fingerprint the source files that prepareServer would sync (jpi, plugin dependencies,
-        // project-dependency jpis), not its destination — prepareServer and prepareRun both write
-        // to workDir/plugins, so snapshotting the destination would create an implicit dependency
-        // between the two test tasks.
+        // project-dependency jpis), not its destination — testServer launches the nested build
+        // with its own work directory, so the destination in this build is never staged for it.
+        var fingerprintServerPlugins = project.getTasks().register(FingerprintPluginsTask.NAME, FingerprintPluginsTask.class, new Action<>() {
+            @Override
+            public void execute(@NotNull FingerprintPluginsTask task) {
+                task.setDescription("Digests the plugins staged for testServer, ignoring their versions.");
+                task.getPluginFiles().from(prepareServer.map(new SyncSource()));
+                task.getFingerprint().set(project.getLayout().getBuildDirectory().file("test-server/server-plugins.sha256"));
+            }
+        });
+        var pluginLoadClasspath = registerPluginLoadClasspathConfiguration(project, jenkinsCore);
+        var verifyPluginLoad = project.getTasks().register(VerifyPluginLoadTask.NAME, VerifyPluginLoadTask.class, new Action<>() {
+            @Override
+            public void execute(@NotNull VerifyPluginLoadTask task) {
+                task.setGroup("verification");
+                task.setDescription("Checks that Jenkins could load the plugin, without booting Jenkins.");
+                task.getPluginArchive().set(jpiTask.flatMap(War::getArchiveFile));
+                task.getDependencyPlugins().from(cdsPluginFiles);
+                task.getOptionalDependencyPlugins().from(project.provider(new OptionalPluginDependencies(
+                        defaultRuntime, configurations, project.getDependencies())));
+                task.getJenkinsCoreClasspath().from(pluginLoadClasspath);
+                task.getJenkinsVersion().set(jenkinsVersion);
+                task.getReportFile().set(project.getLayout().getBuildDirectory().file("verify-plugin-load/index-entries.txt"));
+            }
+        });
+        var checkDuplicateClasses = project.getTasks().register(CheckDuplicateClassesTask.NAME, CheckDuplicateClassesTask.class, new Action<>() {
+            @Override
+            public void execute(@NotNull CheckDuplicateClassesTask task) {
+                task.setGroup("verification");
+                task.setDescription("Checks bundled libraries for classes that Jenkins core or dependency plugins already contain.");
+                task.getBundledLibraries().from(runtimeClasspathArtifacts.getBundledLibraries());
+                task.getJenkinsCoreClasspath().from(pluginLoadClasspath);
+                task.getDependencyPlugins().from(cdsPluginFiles);
+                task.getFailOnDuplicates().convention(project.getProviders().gradleProperty(CheckDuplicateClassesTask.FAIL_ON_DUPLICATES_PROPERTY)
+                        .map(Boolean::parseBoolean).orElse(false));
+                task.getCacheDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/jpi2/class-index"));
+                task.getReportFile().set(project.getLayout().getBuildDirectory().file("duplicate-classes/report.txt"));
+            }
+        });
+        project.getTasks().named("check", new Action<>() {
+            @Override
+            public void execute(@NotNull Task task) {
+                task.dependsOn(checkDuplicateClasses);
+            }
+        });
         testServerTask.configure(task -> {
-            task.getPluginFiles().from(prepareServer.map(Sync::getSource));
+            task.getPluginFingerprint().set(fingerprintServerPlugins.flatMap(FingerprintPluginsTask::getFingerprint));
+            task.dependsOn(project.getProviders().gradleProperty(VerifyPluginLoadTask.BEFORE_TEST_SERVER_PROPERTY)
+                    .map(new VerifyBeforeTestServer(verifyPluginLoad)).orElse(List.of(verifyPluginLoad)));
             task.getJenkinsClasspath().from(serverTaskClasspath);
         });
 
-        var testHplRunTask = registerTestTask(project, portAllocationService, gradleExecutable, startParameter, isRootProject, projectPath,
+        var testHplRunTask = registerTestTask(project, portAllocationService, launchAdmission, gradleExecutable, startParameter, isRootProject, projectPath,
                 "testHplRun", "Launch Jenkins hplRun task and terminate after success or first error", ":hplRun");
         testHplRunTask.configure(task -> {
-            task.getPluginFiles().from(prepareRun.map(Sync::getSource));
+            task.getPluginFiles().from(prepareRun.map(new SyncSource()));
             task.getJenkinsClasspath().from(serverTaskClasspath);
             // The .hpl manifest points at these directories on disk by absolute path; their
             // contents must be fingerprinted for caching to be correct, even though only the
@@ -295,6 +417,9 @@ public class V2JpiPlugin implements Plugin<Project> {
             task.getReferencedFiles().from(main.getOutput().getClassesDirs());
             task.getReferencedFiles().from(project.provider(main.getOutput()::getResourcesDir));
             task.getReferencedFiles().from(runtimeClasspathArtifacts.getBundledLibraries());
+            // Upstream plugin projects are linked by their own .hpl files; their digests stand in for the
+            // classes, resources and libraries those point at.
+            task.getReferencedFiles().from(PluginArtifacts.projectHplFiles(defaultRuntime, project.getObjects(), ArtifactType.HPL_REFERENCES));
             task.dependsOn(project.getTasks().named("classes"));
         });
     }
@@ -302,6 +427,7 @@ public class V2JpiPlugin implements Plugin<Project> {
     @NotNull
     private static TaskProvider<TestServerTask> registerTestTask(
             @NotNull Project project, @NotNull Provider<PortAllocationService> portAllocationService,
+            @NotNull Provider<JenkinsLaunchAdmission> launchAdmission,
             @NotNull String gradleExecutable, @NotNull StartParameter startParameter,
             boolean isRootProject, @NotNull String projectPath, @NotNull String taskName,
             @NotNull String description, @NotNull String taskSuffix) {
@@ -310,12 +436,23 @@ public class V2JpiPlugin implements Plugin<Project> {
             public void execute(@NotNull TestServerTask task) {
                 task.setGroup("verification");
                 task.setDescription(description);
-                task.getRootDir().set(project.getRootDir().getAbsolutePath());
+                var rootDir = project.getRootDir();
+                task.getRootDir().set(rootDir.getAbsolutePath());
                 task.getGradleExecutable().set(gradleExecutable);
-                task.getJavaHome().set(System.getProperty("java.home"));
+                task.getGradleVersion().set(project.getGradle().getGradleVersion());
+                // The configured toolchain, which is the JDK running the build when none is configured.
+                var javaMetadata = project.getExtensions().getByType(JavaToolchainService.class)
+                        .launcherFor(project.getExtensions().getByType(JavaPluginExtension.class).getToolchain())
+                        .map(JavaLauncher::getMetadata);
+                task.getJavaHome().set(javaMetadata.map(metadata -> metadata.getInstallationPath().getAsFile().getAbsolutePath()));
+                task.getJavaVersion().set(javaMetadata.map(JavaInstallationMetadata::getJavaRuntimeVersion));
+                task.getJavaVendor().set(javaMetadata.map(JavaInstallationMetadata::getVendor));
                 var initScripts = startParameter.getAllInitScripts();
                 task.getInitScriptFiles().from(initScripts);
                 task.getInitScriptPaths().set(initScripts.stream().map(File::getAbsolutePath).toList());
+                task.getInitScriptNames().set(initScripts.stream()
+                        .map(script -> Objects.requireNonNullElse(TestServerTask.relativeToRoot(rootDir, script), script.getName()))
+                        .toList());
                 task.getBuildConfigFiles().from(project.fileTree(project.getRootDir(), tree -> {
                     // Build logic that can change how the nested :server / :hplRun build behaves.
                     // This cannot be exhaustive — the nested build re-evaluates everything — so see
@@ -329,7 +466,8 @@ public class V2JpiPlugin implements Plugin<Project> {
                     tree.exclude("**/build/**", "**/.gradle/**");
                 }));
                 task.getIncludedBuilds().set(startParameter.getIncludedBuilds().stream()
-                        .map(File::getPath).toList());
+                        .map(build -> Objects.requireNonNullElse(TestServerTask.relativeToRoot(rootDir, build), build.getPath()))
+                        .toList());
                 task.getOffline().set(startParameter.isOffline());
                 task.getBuildCacheEnabled().set(startParameter.isBuildCacheEnabled());
                 task.getRefreshDependencies().set(startParameter.isRefreshDependencies());
@@ -342,16 +480,29 @@ public class V2JpiPlugin implements Plugin<Project> {
                 task.getProjectProperties().set(startParameter.getProjectProperties());
                 task.getServerTaskPath().set(isRootProject ? taskSuffix : projectPath + taskSuffix);
                 task.getSuccessMarker().set(project.getLayout().getBuildDirectory().file("test-server/" + taskName + ".success"));
+                task.getProfileStartup().convention(project.getProviders().gradleProperty(TestServerTask.PROFILE_STARTUP_PROPERTY)
+                        .map(Boolean::parseBoolean).orElse(false));
+                task.getStartupTimeline().convention(project.getProviders().gradleProperty(TestServerTask.STARTUP_TIMELINE_PROPERTY)
+                        .map(Boolean::parseBoolean).orElse(false));
+                task.getReportsDirectory().set(project.getLayout().getBuildDirectory().dir("test-server/" + taskName));
+                task.getLogVerbosity().convention(project.getProviders().gradleProperty(TestServerTask.LOG_VERBOSITY_PROPERTY)
+                        .map(TestServerTask::parseLogVerbosity)
+                        .orElse(JenkinsLogVerbosity.TAIL));
+                task.getLogTailLines().convention(200);
                 task.getPortAllocationService().set(portAllocationService);
                 task.usesService(portAllocationService);
+                task.getLaunchAdmission().set(launchAdmission);
+                task.usesService(launchAdmission);
+                task.getLaunchMemoryMegabytes().convention(project.getTasks().named(taskSuffix.substring(1), JavaExec.class)
+                        .map(new LaunchMemoryMegabytes()));
             }
         });
     }
 
     private static void configureAccessModifier(@NotNull Project project) {
-        var library = project.getDependencies().create("org.kohsuke:access-modifier-checker:1.33");
-        var mavenLog = project.getDependencies().create("org.apache.maven:maven-plugin-api:2.0.1");
-        var jenkinsAccessModifier = project.getConfigurations().create("jenkinsAccessModifier", c -> {
+        var jenkinsAccessModifier = project.getConfigurations().register("jenkinsAccessModifier", c -> {
+            var library = project.getDependencies().create("org.kohsuke:access-modifier-checker:1.33");
+            var mavenLog = project.getDependencies().create("org.apache.maven:maven-plugin-api:2.0.1");
             c.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
             c.setVisible(false);
             c.setCanBeConsumed(false);
@@ -378,37 +529,70 @@ public class V2JpiPlugin implements Plugin<Project> {
             task.getCompilationDirs().from(dirs);
             task.getIgnoreFailures().convention(true);
             task.getOutputDirectory().set(project.getLayout().getBuildDirectory().dir("access-modifier"));
-            task.getOutputs().upToDateWhen(element -> !task.getIgnoreFailures().get());
+            task.getOutputs().upToDateWhen(new Spec<>() {
+                @Override
+                public boolean isSatisfiedBy(Task element) {
+                    return !((CheckAccessModifierTask) element).getIgnoreFailures().get();
+                }
+            });
         });
 
         project.getTasks().named("check", task -> task.dependsOn(checkAccessModifier));
     }
 
-    /** Returns the name of the publication that was configured (for task name resolution). */
-    @NotNull
-    private static String configurePublishing(@NotNull Project project, TaskProvider<?> jpiTask, Configuration runtimeClasspath, JenkinsPluginExtension extension) {
+    private static void configurePublishing(@NotNull Project project, Configuration runtimeClasspath,
+                                            Configuration defaultRuntimeElements, JenkinsPluginExtension extension) {
         var publishingExtension = project.getExtensions().getByType(PublishingExtension.class);
         var existingPublication = !publishingExtension.getPublications().isEmpty() ? publishingExtension.getPublications().iterator().next() : null;
         var javaPlugin = project.getExtensions().getByType(JavaPluginExtension.class);
         javaPlugin.withJavadocJar();
         javaPlugin.withSourcesJar();
+        publishDefaultRuntimeVariant(project, defaultRuntimeElements);
         if (existingPublication instanceof MavenPublication publication) {
-            configurePublication(publication, jpiTask, runtimeClasspath, project, extension);
-            return publication.getName();
+            configurePublication(publication, runtimeClasspath, project, extension);
         } else {
             publishingExtension.getPublications().create("mavenJpi", MavenPublication.class, new Action<>() {
                 @Override
                 public void execute(@NotNull MavenPublication publication) {
                     publication.from(project.getComponents().getByName("java"));
-                    configurePublication(publication, jpiTask, runtimeClasspath, project, extension);
+                    configurePublication(publication, runtimeClasspath, project, extension);
                 }
             });
-            return "mavenJpi";
         }
     }
 
-    private static void configurePublication(@NotNull MavenPublication publication, TaskProvider<?> jpiTask, Configuration runtimeClasspath, Project project, JenkinsPluginExtension extension) {
-        publication.artifact(jpiTask);
+    /**
+     * Adds {@code defaultRuntimeElements} to the {@code java} component, so the Gradle Module Metadata declares the archive
+     * under the same variant and {@link ArtifactType} that {@link HpiMetadataRule} derives from a POM. The jar
+     * variants are marked as {@link ArtifactType#PLUGIN_JAR}, matching the rule. Consumers resolve the published
+     * variants as they are, and the rule leaves modules with Gradle Module Metadata alone.
+     * <p>
+     * The {@code .hpl} variants are only meaningful within the build and are not published. The variant has no
+     * Maven scope, so the POM is unchanged.
+     */
+    private static void publishDefaultRuntimeVariant(@NotNull Project project, Configuration defaultRuntimeElements) {
+        var objects = project.getObjects();
+        for (var name : Set.of(JavaPlugin.API_ELEMENTS_CONFIGURATION_NAME, JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME)) {
+            project.getConfigurations().named(name).configure(new Action<>() {
+                @Override
+                public void execute(@NotNull Configuration configuration) {
+                    configuration.getAttributes().attribute(ARTIFACT_TYPE_ATTRIBUTE, objects.named(ArtifactType.class, ArtifactType.PLUGIN_JAR));
+                }
+            });
+        }
+        var component = (AdhocComponentWithVariants) project.getComponents().getByName("java");
+        component.addVariantsFromConfiguration(defaultRuntimeElements, new Action<>() {
+            @Override
+            public void execute(@NotNull ConfigurationVariantDetails details) {
+                var libraryElements = details.getConfigurationVariant().getAttributes().getAttribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE);
+                if (libraryElements != null && PluginArtifacts.HPL_LIBRARY_ELEMENTS.equals(libraryElements.getName())) {
+                    details.skip();
+                }
+            }
+        });
+    }
+
+    private static void configurePublication(@NotNull MavenPublication publication, Configuration runtimeClasspath, Project project, JenkinsPluginExtension extension) {
         publication.getPom().setPackaging(extension.getArchiveExtension().get());
         publication.getPom().getName().set(extension.getDisplayName());
         publication.getPom().getUrl().set(extension.getHomePage().map(URI::toASCIIString));
@@ -425,7 +609,10 @@ public class V2JpiPlugin implements Plugin<Project> {
                 defaultRuntime,
                 project.provider(project::getName),
                 project.provider(() -> project.getVersion().toString()),
-                project.getExtensions().getByType(JenkinsPluginExtension.class).getArchiveExtension()
+                project.getExtensions().getByType(JenkinsPluginExtension.class).getArchiveExtension(),
+                project.getExtensions().getByType(JenkinsPluginExtension.class).getServerPluginSet(),
+                project.getGradle().getSharedServices().registerIfAbsent(PluginManifestIndex.NAME, PluginManifestIndex.class, spec -> {
+                })
         ));
     }
 
@@ -435,132 +622,135 @@ public class V2JpiPlugin implements Plugin<Project> {
         return project.getTasks().register("prepareRun", Sync.class, new ConfigurePrepareRunAction(
                 hplTaskProvider,
                 workDir,
-                defaultRuntime
+                defaultRuntime,
+                project.getObjects()
         ));
     }
 
-    private static void configureProjectDependencyTasks(TaskProvider<Sync> prepareTask, List<TaskProvider<?>> projectDependencyTasks) {
-        prepareTask.configure(sync -> projectDependencyTasks.forEach(sync::from));
-    }
-
     /**
-     * Wire each upstream JPI project dependency's {@code main} source set classes / resources
-     * into this project's {@code testHplRun} {@code referencedFiles}. Upstream {@code .hpl}
-     * manifests only reference paths to those directories, so without this the consumer's
-     * {@code testHplRun} cache would not invalidate when an upstream class's content changes.
+     * Publishes this plugin to the other projects of the build through {@code defaultRuntimeElements}: the archive as its
+     * artifact, and the {@code .hpl} file and its digest as secondary variants. Downstream plugin projects resolve
+     * those like any other dependency, so no project needs to reach into another.
      */
-    private static void wireUpstreamJpiReferencedFiles(@NotNull Project project, @NotNull List<Project> projectDependencies) {
-        var hplProjectDeps = projectDependencies.stream()
-                .filter(dep -> dep.getTasks().getNames().contains(GenerateHplTask.TASK_NAME))
-                .toList();
-        if (hplProjectDeps.isEmpty()) {
-            return;
-        }
-        project.getTasks().named("testHplRun", TestServerTask.class, task -> {
-            for (var dep : hplProjectDeps) {
-                var depJava = dep.getExtensions().getByType(JavaPluginExtension.class);
-                var depMain = depJava.getSourceSets().getByName(SourceSet.MAIN_SOURCE_SET_NAME);
-                task.getReferencedFiles().from(depMain.getResources().getSrcDirs());
-                task.getReferencedFiles().from(depMain.getOutput().getClassesDirs());
-                task.getReferencedFiles().from(dep.provider(() -> depMain.getOutput().getResourcesDir()));
-                // The upstream .hpl also references the dep's bundled library JARs by path, so
-                // adding or removing a library in the upstream module must bust the cache here.
-                var depDefaultRuntime = dep.getConfigurations().getByName("defaultRuntime");
-                var depJenkinsCore = dep.getConfigurations().getByName("jenkinsCore");
-                task.getReferencedFiles().from(new RuntimeClasspathArtifacts(dep, depDefaultRuntime, depJenkinsCore).getBundledLibraries());
-                task.dependsOn(dep.getTasks().named("classes"));
+    private static void configureOutgoingVariants(@NotNull Project project, Configuration defaultRuntimeElements,
+                                                  TaskProvider<War> jpiTask, TaskProvider<GenerateHplTask> generateHpl) {
+        var objects = project.getObjects();
+        defaultRuntimeElements.getOutgoing().artifact(jpiTask);
+        defaultRuntimeElements.getOutgoing().getVariants().create(ArtifactType.HPL, new Action<>() {
+            @Override
+            public void execute(@NotNull ConfigurationVariant variant) {
+                variant.attributes(attributes -> PluginArtifacts.hplAttributes(attributes, objects, ArtifactType.HPL));
+                variant.artifact(generateHpl.flatMap(GenerateHplTask::getHpl));
+            }
+        });
+        defaultRuntimeElements.getOutgoing().getVariants().create(ArtifactType.HPL_REFERENCES, new Action<>() {
+            @Override
+            public void execute(@NotNull ConfigurationVariant variant) {
+                variant.attributes(attributes -> PluginArtifacts.hplAttributes(attributes, objects, ArtifactType.HPL_REFERENCES));
+                variant.artifact(generateHpl.flatMap(GenerateHplTask::getLibrariesDigest));
             }
         });
     }
 
-    private static void configureProjectDependencyJpis(TaskProvider<Sync> prepareTask, List<TaskWithRename> projectDependencyJpis) {
-        prepareTask.configure(sync -> projectDependencyJpis.forEach(task ->
-                sync.from(task.getTaskProvider()).rename(task.getRenameTransformer())
-        ));
-    }
-
-    @NotNull
-    private static List<TaskProvider<?>> getProjectDependencyTasks(List<Project> projectDependencies, String taskName) {
-        return projectDependencies.stream()
-                .filter(it -> it.getTasks().getNames().contains(taskName))
-                .sorted(Comparator.comparing(Project::getName))
-                .map(it -> it.getTasks().named(taskName))
-                .collect(Collectors.toList());
-    }
-
-    @NotNull
-    private static List<TaskWithRename> getProjectDependencyJpis(List<Project> projectDependencies, String targetExtension) {
-        return projectDependencies.stream()
-                .filter(it -> it.getTasks().getNames().contains(JPI_TASK))
-                .sorted(Comparator.comparing(Project::getName))
-                .map(it -> new TaskWithRename(
-                        it.getTasks().named(JPI_TASK),
-                        new DropVersionTransformer(
-                                it.getName(),
-                                it.getVersion().toString(),
-                                targetExtension
-                        )
-                ))
-                .collect(Collectors.toList());
-    }
-
+    /**
+     * Registered rather than created: only {@code server}, {@code hplRun} and the tasks launching them need the
+     * Jenkins WAR, so builds that never run those do not realize it.
+     */
     @NotNull
-    private static List<Project> getProjectDependencies(Configuration runtimeClasspath, Map<String, Project> projectByPath) {
-        Map<String, Project> projectsByPath = new LinkedHashMap<>();
-        collectProjectDependencies(runtimeClasspath, projectByPath, projectsByPath, new LinkedHashSet<>());
-        return List.copyOf(projectsByPath.values());
+    private static NamedDomainObjectProvider<Configuration> registerServerTaskClasspathConfiguration(
+            @NotNull Project project, Provider<String> jenkinsWarCoordinate) {
+        var dependencies = project.getDependencies();
+        return project.getConfigurations().register("serverTaskClasspath", new Action<>() {
+            @Override
+            public void execute(@NotNull Configuration c) {
+                c.setCanBeConsumed(false);
+                c.setTransitive(false);
+                c.getDependencies().addLater(jenkinsWarCoordinate.map(dependencies::create));
+            }
+        });
     }
 
-    private static void collectProjectDependencies(Configuration configuration, Map<String, Project> projectByPath,
-                                                   Map<String, Project> projectsByPath,
-                                                   Set<String> visitedProjectPaths) {
-        configuration.getAllDependencies().withType(ProjectDependency.class).forEach(projectDependency -> {
-            var dependencyProjectPath = getProjectDependencyPath(projectDependency);
-            var dependencyProject = dependencyProjectPath == null ? null : projectByPath.get(dependencyProjectPath);
-            if (dependencyProject == null || !visitedProjectPaths.add(dependencyProject.getPath())) {
-                return;
+    /**
+     * Jenkins core with the servlet API, which the Jenkins war provides at runtime rather than jenkins-core.
+     */
+    private static NamedDomainObjectProvider<Configuration> registerPluginLoadClasspathConfiguration(
+            @NotNull Project project, Configuration jenkinsCore) {
+        var dependencies = project.getDependencies();
+        var objects = project.getObjects();
+        return project.getConfigurations().register("pluginLoadClasspath", new Action<>() {
+            @Override
+            public void execute(@NotNull Configuration c) {
+                c.setCanBeConsumed(false);
+                c.setVisible(false);
+                c.extendsFrom(jenkinsCore);
+                c.getAttributes().attribute(Usage.USAGE_ATTRIBUTE, objects.named(Usage.class, Usage.JAVA_RUNTIME));
+                c.getDependencies().add(dependencies.create("jakarta.servlet:jakarta.servlet-api:5.0.0"));
             }
+        });
+    }
 
-            projectsByPath.put(dependencyProject.getPath(), dependencyProject);
-
-            var dependencyRuntimeClasspath = dependencyProject.getConfigurations().findByName("runtimeClasspath");
-            if (dependencyRuntimeClasspath != null) {
-                collectProjectDependencies(dependencyRuntimeClasspath, projectByPath, projectsByPath, visitedProjectPaths);
+    /**
+     * Lets tasks with a runtime classpath input, such as {@code test}, stay up to date or come from the build cache when
+     * a jar on it only differs in the version written to its manifest.
+     */
+    private static void ignoreVersionManifestAttributes(@NotNull Project project) {
+        project.getNormalization().runtimeClasspath(new Action<>() {
+            @Override
+            public void execute(@NotNull RuntimeClasspathNormalization normalization) {
+                normalization.metaInf(new Action<>() {
+                    @Override
+                    public void execute(@NotNull MetaInfNormalization metaInf) {
+                        VERSION_MANIFEST_ATTRIBUTES.forEach(metaInf::ignoreAttribute);
+                    }
+                });
             }
         });
     }
 
-    private static String getProjectDependencyPath(ProjectDependency projectDependency) {
-        try {
-            var getPath = projectDependency.getClass().getMethod("getPath");
-            var projectPath = getPath.invoke(projectDependency);
-            if (projectPath instanceof String path) {
-                return path;
-            }
-        } catch (ReflectiveOperationException ignored) {
-            // Fall through to older Gradle APIs.
+    /**
+     * With {@value PrefetchJenkinsDependenciesTask#BUNDLE_PROPERTY} set, modules are looked up in a bundle written by
+     * {@value PrefetchJenkinsDependenciesTask#NAME} before any repository the build declares.
+     */
+    private static void useDependencyBundle(@NotNull Project project) {
+        var bundle = project.getProviders().gradleProperty(PrefetchJenkinsDependenciesTask.BUNDLE_PROPERTY);
+        if (!bundle.isPresent()) {
+            return;
         }
-
-        try {
-            var getDependencyProject = projectDependency.getClass().getMethod("getDependencyProject");
-            var dependencyProject = getDependencyProject.invoke(projectDependency);
-            if (dependencyProject instanceof Project project) {
-                return project.getPath();
+        var repositories = project.getRepositories();
+        var repository = repositories.maven(new Action<>() {
+            @Override
+            public void execute(@NotNull MavenArtifactRepository repository) {
+                repository.setName(PrefetchJenkinsDependenciesTask.BUNDLE_REPOSITORY_NAME);
+                repository.setUrl(project.getProjectDir().toPath().resolve(bundle.get()).toUri());
             }
-        } catch (ReflectiveOperationException ignored) {
-            return null;
-        }
-
-        return null;
+        });
+        repositories.remove(repository);
+        repositories.addFirst(repository);
     }
 
-    @NotNull
-    private static Configuration createServerTaskClasspathConfiguration(@NotNull Project project) {
-        return project.getConfigurations().create("serverTaskClasspath", new Action<>() {
+    /**
+     * Registers {@value PrefetchJenkinsDependenciesTask#NAME} over the configurations a build of the plugin resolves.
+     * Each project writes its own bundle, so the tasks of projects running in parallel never write the same files.
+     */
+    private static void registerPrefetchTask(@NotNull Project project) {
+        var configurations = project.getConfigurations();
+        project.getTasks().register(PrefetchJenkinsDependenciesTask.NAME, PrefetchJenkinsDependenciesTask.class, new Action<>() {
             @Override
-            public void execute(@NotNull Configuration c) {
-                c.setCanBeConsumed(false);
-                c.setTransitive(false);
+            public void execute(@NotNull PrefetchJenkinsDependenciesTask task) {
+                task.setGroup(BasePlugin.BUILD_GROUP);
+                task.setDescription("Copies the dependencies of the plugin build into a repository for offline builds.");
+                task.notCompatibleWithConfigurationCache("Resolves the parent and imported POM files while the task runs");
+                task.getBundleDirectory().convention(project.getLayout().getBuildDirectory().dir("jenkins-dependencies"));
+                for (var name : PREFETCHED_CONFIGURATIONS) {
+                    var configuration = configurations.named(name);
+                    // Projects of the build are left out, so prefetching does not build them.
+                    task.getArtifacts().addAll(configuration.flatMap(c -> c.getIncoming()
+                            .artifactView(view -> view.componentFilter(id -> id instanceof ModuleComponentIdentifier))
+                            .getArtifacts().getResolvedArtifacts()));
+                    task.getRootComponents().add(configuration.flatMap(c -> c.getIncoming().getResolutionResult().getRootComponent()));
+                }
+                task.getMetadata().addAll(project.provider(new PrefetchJenkinsDependenciesTask.ModuleMetadata(
+                        configurations, project.getDependencies(), task.getRootComponents())));
             }
         });
     }
@@ -596,4 +786,87 @@ public class V2JpiPlugin implements Plugin<Project> {
         return myProperty.getOrElse(defaultVersion);
     }
 
+
+    /*
+     * Specs and transformers that the tasks above hold. They end up in the configuration cache, so they hold at
+     * most a provider, never the plugin or project; their own comments only say what they do.
+     */
+
+    /**
+     * Selects {@code verifyPluginLoad} as a dependency of {@code testServer} unless the property is {@code false}.
+     */
+    private static final class VerifyBeforeTestServer implements Transformer<List<Object>, String> {
+        private final TaskProvider<VerifyPluginLoadTask> verifyPluginLoad;
+
+        private VerifyBeforeTestServer(TaskProvider<VerifyPluginLoadTask> verifyPluginLoad) {
+            this.verifyPluginLoad = verifyPluginLoad;
+        }
+
+        @NotNull
+        @Override
+        public List<Object> transform(@NotNull String value) {
+            return Boolean.parseBoolean(value.trim()) ? List.of(verifyPluginLoad) : List.of();
+        }
+    }
+
+    private static final class PluginArchiveSpec implements Spec<File> {
+        @Override
+        public boolean isSatisfiedBy(File file) {
+            return HpiMetadataRule.PLUGIN_PACKAGINGS.stream().anyMatch(ext -> file.getName().endsWith("." + ext));
+        }
+    }
+
+    /**
+     * Estimates the memory of a launch from the maximum heap of the launched task, such as {@code 512m} or {@code 2g}.
+     * An {@code -Xmx} in the JVM arguments counts as well; the last one wins, as it does for the JVM.
+     */
+    private static final class LaunchMemoryMegabytes implements Transformer<Long, JavaExec> {
+        @NotNull
+        @Override
+        public Long transform(@NotNull JavaExec javaExec) {
+            var maxHeapSize = javaExec.getMaxHeapSize();
+            var jvmArgs = javaExec.getJvmArgs();
+            if (jvmArgs != null) {
+                for (var jvmArg : jvmArgs) {
+                    if (jvmArg.startsWith("-Xmx")) {
+                        maxHeapSize = jvmArg.substring("-Xmx".length());
+                    }
+                }
+            }
+            long heap = TestServerTask.DEFAULT_JENKINS_HEAP_MEGABYTES;
+            if (maxHeapSize != null && !maxHeapSize.isBlank()) {
+                heap = megabytes(maxHeapSize);
+            }
+            return heap + TestServerTask.NESTED_BUILD_MEGABYTES;
+        }
+
+        private static long megabytes(String maxHeapSize) {
+            var size = maxHeapSize.trim().toLowerCase(Locale.ROOT);
+            var unit = size.charAt(size.length() - 1);
+            var amount = Character.isDigit(unit) ? Long.parseLong(size) : Long.parseLong(size.substring(0, size.length() - 1));
+            return switch (unit) {
+                case 'k' -> amount / 1024;
+                case 'm' -> amount;
+                case 'g' -> amount * 1024;
+                case 't' -> amount * 1024 * 1024;
+                default -> amount / (1024 * 1024);
+            };
+        }
+    }
+
+    private static final class SyncSource implements Transformer<FileCollection, Sync> {
+        @NotNull
+        @Override
+        public FileCollection transform(@NotNull Sync sync) {
+            return sync.getSource();
+        }
+    }
+
+    private static final class SyncDestination implements Transformer<File, Sync> {
+        @NotNull
+        @Override
+        public File transform(@NotNull Sync sync) {
+            return sync.getDestinationDir();
+        }
+    }
 }
@@ -0,0 +1,494 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamException;
+import java.math.BigInteger;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Checks that Jenkins could load the built plugin, without booting Jenkins.
+ * <p>
+ * The {@code Plugin-Dependencies} of the plugin are matched against the resolved dependency plugins, and the
+ * {@code Jenkins-Version} of every plugin against the Jenkins version the plugin is built for. Every entry of the
+ * Sezpoz indexes under {@code META-INF/annotations} (such as {@code @Extension}) is then resolved in an isolated
+ * class loader made of Jenkins core, the dependency plugins and the plugin itself: its class is loaded without
+ * being initialized, and the types in the signatures of its members are resolved. These are the problems that
+ * otherwise only show up as {@code Failed Loading plugin} once Jenkins has booted.
+ * <p>
+ * Jenkins skips entries marked {@code @Extension(optional = true)} and {@code @OptionalExtension} when they do not
+ * load, so their problems are only listed in the report. The optional dependencies of the dependency plugins are
+ * on the class loader when they could be resolved, as they are in a Jenkins that has them installed.
+ */
+@CacheableTask
+public abstract class VerifyPluginLoadTask extends DefaultTask {
+    /** Standard name under which this task is registered. */
+    public static final String NAME = "verifyPluginLoad";
+    /** Gradle property that, set to {@code false}, lets {@code testServer} run without this task. */
+    public static final String BEFORE_TEST_SERVER_PROPERTY = "jpi2.verifyPluginLoadBeforeTestServer";
+
+    private static final String ANNOTATIONS = "META-INF/annotations/";
+    private static final String LIBRARIES = "WEB-INF/lib/";
+    private static final String CLASSES = "WEB-INF/classes/";
+    private static final String OPTIONAL_RESOLUTION = "resolution:=optional";
+    private static final String OPTIONAL_EXTENSION = "org.jenkinsci.plugins.variant.OptionalExtension";
+    /** Qualifiers that mark a version as older than the release with the same numbers, in ascending order. */
+    private static final List<String> PRE_RELEASE_QUALIFIERS = List.of("alpha", "a", "beta", "b", "milestone", "m", "rc", "cr", "snapshot");
+    private static final Pattern QUALIFIER_TOKEN = Pattern.compile("\\d+|[a-z]+");
+
+    /** @return the plugin archive to verify */
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getPluginArchive();
+
+    /** @return archives of the plugins the plugin depends on, directly or transitively */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getDependencyPlugins();
+
+    /**
+     * @return archives of plugins that the dependency plugins depend on optionally; they are only put on the class
+     * loader, so that entries using them resolve as they would with those plugins installed
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getOptionalDependencyPlugins();
+
+    /** @return Jenkins core and its libraries */
+    @Classpath
+    public abstract ConfigurableFileCollection getJenkinsCoreClasspath();
+
+    /** @return version of Jenkins the plugin is built for */
+    @Input
+    public abstract Property<String> getJenkinsVersion();
+
+    /** @return report listing every resolved index entry; used by Gradle for up-to-date checks */
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    void verify() {
+        var problems = new ArrayList<String>();
+        var report = new ArrayList<String>();
+        var archive = getPluginArchive().get().getAsFile();
+        var extracted = getTemporaryDir().toPath();
+        try {
+            deleteContents(extracted);
+            Map<String, String> versions = new HashMap<>();
+            Map<String, Attributes> dependencyManifests = new TreeMap<>();
+            var urls = new ArrayList<URL>();
+            for (File dependency : getDependencyPlugins()) {
+                var attributes = mainAttributes(dependency);
+                var shortName = attributes.getValue("Short-Name");
+                if (shortName != null) {
+                    versions.put(shortName, attributes.getValue("Plugin-Version"));
+                    dependencyManifests.put(shortName, attributes);
+                }
+                urls.addAll(extractClasspath(dependency, extracted.resolve("dependencies").resolve(dependency.getName())));
+            }
+            for (File dependency : getOptionalDependencyPlugins()) {
+                var shortName = mainAttributes(dependency).getValue("Short-Name");
+                if (shortName == null || versions.containsKey(shortName)) {
+                    continue;
+                }
+                versions.put(shortName, mainAttributes(dependency).getValue("Plugin-Version"));
+                urls.addAll(extractClasspath(dependency, extracted.resolve("optional-dependencies").resolve(dependency.getName())));
+            }
+
+            var manifest = mainAttributes(archive);
+            checkDependencies(manifest.getValue("Short-Name"), manifest.getValue("Plugin-Dependencies"), versions, problems);
+            for (var entry : dependencyManifests.entrySet()) {
+                checkDependencies(entry.getKey(), entry.getValue().getValue("Plugin-Dependencies"), versions, problems);
+                checkJenkinsVersion(entry.getKey(), entry.getValue().getValue("Jenkins-Version"), problems);
+            }
+            checkJenkinsVersion(manifest.getValue("Short-Name"), manifest.getValue("Jenkins-Version"), problems);
+
+            var pluginUrls = extractClasspath(archive, extracted.resolve("plugin"));
+            urls.addAll(0, pluginUrls);
+            for (File file : getJenkinsCoreClasspath()) {
+                urls.add(file.toURI().toURL());
+            }
+            try (var loader = new URLClassLoader(urls.toArray(URL[]::new), ClassLoader.getPlatformClassLoader())) {
+                for (URL url : pluginUrls) {
+                    verifyIndexes(Path.of(url.toURI()), loader, report, problems);
+                }
+            }
+
+            var destination = getReportFile().get().getAsFile().toPath();
+            Files.createDirectories(destination.getParent());
+            report.sort(null);
+            Files.writeString(destination, String.join("\n", report) + "\n", StandardCharsets.UTF_8);
+        } catch (IOException | ReflectiveOperationException | URISyntaxException e) {
+            throw new GradleException("Unable to verify that " + archive.getName() + " loads", e);
+        }
+        if (!problems.isEmpty()) {
+            throw new GradleException("Jenkins would fail to load " + archive.getName() + ":\n  - "
+                    + String.join("\n  - ", problems));
+        }
+    }
+
+    private static void checkDependencies(String pluginName, String pluginDependencies, Map<String, String> versions,
+                                   List<String> problems) {
+        if (pluginDependencies == null || pluginDependencies.isBlank()) {
+            return;
+        }
+        for (var dependency : pluginDependencies.split(",")) {
+            var parts = dependency.trim().split(";");
+            var coordinate = parts[0].split(":", 2);
+            var name = coordinate[0];
+            var required = coordinate.length > 1 ? coordinate[1] : null;
+            var optional = List.of(parts).contains(OPTIONAL_RESOLUTION);
+            if (!versions.containsKey(name)) {
+                if (!optional) {
+                    problems.add(pluginName + " depends on " + name + ", which is not among the resolved plugins");
+                }
+                continue;
+            }
+            var available = versions.get(name);
+            if (required != null && available != null && compareVersions(available, required) < 0) {
+                problems.add(pluginName + " depends on " + name + " " + required + ", but " + available + " is resolved");
+            }
+        }
+    }
+
+    private void checkJenkinsVersion(String pluginName, String jenkinsVersion, List<String> problems) {
+        if (jenkinsVersion != null && compareVersions(getJenkinsVersion().get(), jenkinsVersion) < 0) {
+            problems.add(pluginName + " requires Jenkins " + jenkinsVersion + ", but it is built for " + getJenkinsVersion().get());
+        }
+    }
+
+    private static void verifyIndexes(Path root, ClassLoader loader, List<String> report, List<String> problems)
+            throws IOException, ReflectiveOperationException {
+        if (Files.isDirectory(root)) {
+            var indexes = root.resolve(ANNOTATIONS);
+            if (!Files.isDirectory(indexes)) {
+                return;
+            }
+            try (Stream<Path> files = Files.list(indexes)) {
+                for (Path index : files.sorted().toList()) {
+                    try (var input = Files.newInputStream(index)) {
+                        verifyIndex(index.getFileName().toString(), input, loader, report, problems);
+                    }
+                }
+            }
+            return;
+        }
+        try (var jar = new JarFile(root.toFile())) {
+            var entries = jar.stream()
+                    .filter(entry -> !entry.isDirectory() && entry.getName().startsWith(ANNOTATIONS))
+                    .sorted(Comparator.comparing(JarEntry::getName))
+                    .toList();
+            for (var entry : entries) {
+                try (var input = jar.getInputStream(entry)) {
+                    verifyIndex(entry.getName().substring(ANNOTATIONS.length()), input, loader, report, problems);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a Sezpoz index, a serialized sequence of {@code net.java.sezpoz.impl.SerAnnotatedElement} terminated by
+     * {@code null}, with the classes of the isolated loader.
+     */
+    private static void verifyIndex(String annotation, InputStream input, ClassLoader loader, List<String> report,
+                                    List<String> problems) throws IOException, ReflectiveOperationException {
+        try {
+            Class.forName(annotation, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            problems.add("index " + ANNOTATIONS + annotation + " is for an annotation that cannot be loaded: " + e);
+            return;
+        }
+        try (var objects = new IsolatedObjectInputStream(input, loader)) {
+            for (Object element = objects.readObject(); element != null; element = objects.readObject()) {
+                var className = (String) element.getClass().getField("className").get(element);
+                var memberName = (String) element.getClass().getField("memberName").get(element);
+                var isMethod = element.getClass().getField("isMethod").getBoolean(element);
+                var target = memberName == null ? className : className + "#" + memberName;
+                report.add("@" + annotation + " " + target);
+                var problem = resolve(className, memberName, isMethod, loader);
+                if (problem != null && isOptional(annotation, element)) {
+                    report.add("@" + annotation + " " + target + " is optional and would be skipped: " + problem);
+                } else if (problem != null) {
+                    problems.add("@" + annotation + " " + target + ": " + problem);
+                }
+            }
+        } catch (ClassNotFoundException | ObjectStreamException e) {
+            problems.add("index " + ANNOTATIONS + annotation + " cannot be read: " + e);
+        }
+    }
+
+    /**
+     * @return whether Jenkins skips the entry when it does not load: it is an {@code @OptionalExtension}, or its
+     * annotation has {@code optional = true}, which Sezpoz keeps among the values of the serialized element
+     */
+    private static boolean isOptional(String annotation, Object element) throws IllegalAccessException {
+        if (OPTIONAL_EXTENSION.equals(annotation)) {
+            return true;
+        }
+        try {
+            return element.getClass().getField("values").get(element) instanceof Map<?, ?> values
+                    && Boolean.TRUE.equals(values.get("optional"));
+        } catch (NoSuchFieldException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return {@code null} if the element resolves, otherwise what went wrong
+     */
+    private static String resolve(String className, String memberName, boolean isMethod, ClassLoader loader) {
+        try {
+            var type = Class.forName(className, false, loader);
+            // Resolves the types in the signatures, which is where missing optional dependencies surface.
+            type.getDeclaredConstructors();
+            type.getDeclaredFields();
+            var methods = type.getDeclaredMethods();
+            if (memberName == null) {
+                return null;
+            }
+            if (isMethod) {
+                for (var method : methods) {
+                    if (method.getName().equals(memberName)) {
+                        return null;
+                    }
+                }
+                return "method " + memberName + " does not exist";
+            }
+            type.getDeclaredField(memberName);
+            return null;
+        } catch (ClassNotFoundException e) {
+            return "class " + className + " does not exist";
+        } catch (NoSuchFieldException e) {
+            return "field " + memberName + " does not exist";
+        } catch (LinkageError e) {
+            return e.toString();
+        }
+    }
+
+    /**
+     * Compares versions by their numeric components, such as {@code 2.492.3} or {@code 5.7.0}, and then by the
+     * qualifier after them, as Maven does. {@code alpha}, {@code beta}, {@code milestone}, {@code rc} and
+     * {@code snapshot} qualifiers come before the release, so {@code 2.492.3-rc1} is older than {@code 2.492.3};
+     * any other qualifier, such as the {@code v848422169819} of a Jenkins plugin version, comes after it.
+     */
+    static int compareVersions(String left, String right) {
+        var a = numericComponents(left);
+        var b = numericComponents(right);
+        for (int i = 0; i < Math.max(a.size(), b.size()); i++) {
+            long x = i < a.size() ? a.get(i) : 0L;
+            long y = i < b.size() ? b.get(i) : 0L;
+            if (x != y) {
+                return Long.compare(x, y);
+            }
+        }
+        return compareQualifiers(qualifier(left, a.size()), qualifier(right, b.size()));
+    }
+
+    private static List<Long> numericComponents(String version) {
+        var components = new ArrayList<Long>();
+        for (var component : version.trim().split("[.-]")) {
+            if (component.isEmpty() || !component.chars().allMatch(Character::isDigit)) {
+                break;
+            }
+            components.add(Long.parseLong(component));
+        }
+        return components;
+    }
+
+    /**
+     * @return what follows the first {@code numericCount} components, lower-cased; empty for a release
+     */
+    private static String qualifier(String version, int numericCount) {
+        var rest = version.trim();
+        for (int i = 0; i < numericCount; i++) {
+            var separator = indexOfSeparator(rest);
+            rest = separator < 0 ? "" : rest.substring(separator + 1);
+        }
+        return rest.toLowerCase(Locale.ROOT);
+    }
+
+    private static int indexOfSeparator(String version) {
+        for (int i = 0; i < version.length(); i++) {
+            if (version.charAt(i) == '.' || version.charAt(i) == '-') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int compareQualifiers(String left, String right) {
+        var rank = Integer.compare(qualifierRank(left), qualifierRank(right));
+        if (rank != 0) {
+            return rank;
+        }
+        var a = qualifierTokens(left);
+        var b = qualifierTokens(right);
+        for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+            var x = a.get(i);
+            var y = b.get(i);
+            var xNumeric = Character.isDigit(x.charAt(0));
+            var yNumeric = Character.isDigit(y.charAt(0));
+            int comparison;
+            if (xNumeric && yNumeric) {
+                comparison = new BigInteger(x).compareTo(new BigInteger(y));
+            } else if (xNumeric != yNumeric) {
+                comparison = xNumeric ? 1 : -1;
+            } else {
+                comparison = x.compareTo(y);
+            }
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    }
+
+    /**
+     * @return position of a pre-release qualifier, {@link #PRE_RELEASE_QUALIFIERS} size for a release, and one
+     * more for any other qualifier
+     */
+    private static int qualifierRank(String qualifier) {
+        if (qualifier.isEmpty()) {
+            return PRE_RELEASE_QUALIFIERS.size();
+        }
+        var word = qualifier.split("[^a-z]", 2)[0];
+        var index = PRE_RELEASE_QUALIFIERS.indexOf(word);
+        return index >= 0 ? index : PRE_RELEASE_QUALIFIERS.size() + 1;
+    }
+
+    /**
+     * @return runs of digits and runs of letters of a qualifier, such as {@code rc, 1234, 0123456789ab} for
+     * {@code rc1234.0123456789ab}
+     */
+    private static List<String> qualifierTokens(String qualifier) {
+        var tokens = new ArrayList<String>();
+        var matcher = QUALIFIER_TOKEN.matcher(qualifier);
+        while (matcher.find()) {
+            tokens.add(matcher.group());
+        }
+        return tokens;
+    }
+
+    private static Attributes mainAttributes(File archive) throws IOException {
+        try (var jar = new JarFile(archive)) {
+            var manifest = jar.getManifest();
+            return manifest == null ? new Attributes() : manifest.getMainAttributes();
+        }
+    }
+
+    /**
+     * Extracts the libraries and classes of a plugin archive.
+     *
+     * @return class path entries of the plugin, its own jar first
+     */
+    private static List<URL> extractClasspath(File archive, Path destination) throws IOException {
+        var libraries = new ArrayList<Path>();
+        var classes = destination.resolve("classes");
+        var hasClasses = false;
+        try (var zip = new ZipFile(archive)) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var entry = entries.nextElement();
+                var name = entry.getName();
+                Path target;
+                if (entry.isDirectory()) {
+                    continue;
+                } else if (JpiArchiveWriter.isNestedJar(name)) {
+                    target = destination.resolve("lib").resolve(name.substring(LIBRARIES.length()));
+                    libraries.add(target);
+                } else if (name.startsWith(CLASSES)) {
+                    target = classes.resolve(name.substring(CLASSES.length())).normalize();
+                    hasClasses = true;
+                } else {
+                    continue;
+                }
+                if (!target.startsWith(destination)) {
+                    throw new IOException("Entry " + name + " of " + archive + " points outside of the archive");
+                }
+                Files.createDirectories(target.getParent());
+                try (var input = zip.getInputStream(entry)) {
+                    Files.copy(input, target);
+                }
+            }
+        }
+        var urls = new ArrayList<URL>();
+        if (hasClasses) {
+            urls.add(classes.toUri().toURL());
+        }
+        libraries.sort(null);
+        for (Path library : libraries) {
+            urls.add(library.toUri().toURL());
+        }
+        return urls;
+    }
+
+    private static void deleteContents(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (!path.equals(directory)) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves the classes of serialized objects through the isolated loader rather than the one of this plugin.
+     */
+    private static final class IsolatedObjectInputStream extends ObjectInputStream {
+        private final ClassLoader loader;
+
+        IsolatedObjectInputStream(InputStream input, ClassLoader loader) throws IOException {
+            super(input);
+            this.loader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(descriptor.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(descriptor);
+            }
+        }
+    }
+}
@@ -1,11 +1,23 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
+import org.gradle.api.logging.Logger;
 import org.gradle.api.provider.Provider;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
 final class WorkDirectorySettings {
     static final String PROPERTY = "jpi2.workDir";
     static final String PRESERVE_TEST_WORK_DIR_SYSTEM_PROPERTY = "jpi2.preserveTestWorkDir";
+    /** Launch task that takes over a Jenkins home left directly in the work directory by older versions. */
+    static final String LEGACY_HOME_OWNER = "server";
+    /** Entries of the work directory that are not part of a Jenkins home left there by older versions. */
+    private static final Set<String> NOT_LEGACY_HOME = Set.of("server", "hplRun", "plugins");
 
     private WorkDirectorySettings() {
     }
@@ -19,4 +31,57 @@ final class WorkDirectorySettings {
                 .orElse(extension.getWorkDir().map(dir -> dir.getAsFile().getAbsolutePath()))
                 .orElse(getDefaultWorkDir(projectRoot));
     }
+
+    /**
+     * @param workDir    work directory of the project
+     * @param launchTask name of the task launching Jenkins, such as {@code server} or {@code hplRun}
+     * @return the Jenkins home of that task; every launch task has its own, so their staged plugins never overlap
+     */
+    static String getLaunchDirectory(String workDir, String launchTask) {
+        return workDir + "/" + launchTask;
+    }
+
+    static Provider<String> getLaunchDirectory(Provider<String> workDir, String launchTask) {
+        return workDir.map(dir -> getLaunchDirectory(dir, launchTask));
+    }
+
+    /**
+     * Older versions used the work directory itself as the Jenkins home of both {@code server} and {@code hplRun}.
+     * When such a home is found, {@value #LEGACY_HOME_OWNER} moves it into its own home the first time it launches,
+     * leaving out the plugins staged there, which are staged again anyway. Any other launch task, or a home that was
+     * already moved, leaves it alone and says so.
+     *
+     * @param home   Jenkins home of the launching task, as returned by {@link #getLaunchDirectory(String, String)}
+     * @param logger logger of the launching task
+     */
+    static void migrateLegacyHome(Path home, Logger logger) {
+        var workDir = home.getParent();
+        if (workDir == null || !Files.isRegularFile(workDir.resolve("config.xml"))) {
+            return;
+        }
+        if (!LEGACY_HOME_OWNER.equals(home.getFileName().toString()) || Files.exists(home.resolve("config.xml"))) {
+            logger.lifecycle("Found a Jenkins home from an older version of jpi2 in {}; not using it, this launch uses {}",
+                    workDir, home);
+            return;
+        }
+        try {
+            Files.createDirectories(home);
+            List<Path> entries;
+            try (var list = Files.list(workDir)) {
+                entries = list.filter(entry -> !NOT_LEGACY_HOME.contains(entry.getFileName().toString())).toList();
+            }
+            for (var entry : entries) {
+                var target = home.resolve(entry.getFileName().toString());
+                if (Files.exists(target)) {
+                    logger.lifecycle("Not moving {} into {}, which already has one", entry, home);
+                } else {
+                    Files.move(entry, target);
+                }
+            }
+        } catch (IOException e) {
+            throw new GradleException("Unable to move the Jenkins home in " + workDir + " into " + home, e);
+        }
+        logger.lifecycle("Moved the Jenkins home found in {} into {}. The plugins staged by older versions of jpi2 "
+                + "are left in {} and can be deleted.", workDir, home, workDir.resolve("plugins"));
+    }
 }
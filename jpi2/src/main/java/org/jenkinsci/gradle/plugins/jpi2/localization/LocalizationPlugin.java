@@ -45,8 +45,9 @@ public class LocalizationPlugin implements Plugin<Project> {
                 ? jenkinsPlugin.getLocalizerVersion()
                 : target.getProviders().provider(() -> DEFAULT_LOCALIZER_VERSION);
         Object localizeMessagesRuntimeClasspath = createRuntimeClasspath(target, objects);
-        target.getDependencies().addProvider(CONFIGURATION_NAME,
-                localizerVersion.map(version -> LOCALIZER_MAVEN_PLUGIN + version));
+        var localizer = localizerVersion.map(version -> target.getDependencies().create(LOCALIZER_MAVEN_PLUGIN + version));
+        // Adding by name would realize the configuration in every build, not only those running localizeMessages.
+        target.getConfigurations().named(CONFIGURATION_NAME).configure(c -> c.getDependencies().addLater(localizer));
 
         TaskProvider<LocalizationTask> localizeMessages = tasks.register(
                 TASK_NAME,
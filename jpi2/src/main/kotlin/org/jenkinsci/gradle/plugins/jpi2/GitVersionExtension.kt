@@ -74,14 +74,13 @@ abstract class GitVersionExtension @Inject constructor(
      * Resolved on demand when the value is read; no task required. Use this as the source of truth
      * for the plugin version when [VersionSource.GIT]. The [generateGitVersion] task still writes
      * this value (and the full hash) to [outputFile] for scripts and compatibility.
+     * Backed by [GitVersionValueSource], so a cached configuration is invalidated when the version changes.
      */
-    val version: Provider<String> = providers.provider {
-        GitVersion.compute(
-            gitRoot.get().asFile.toPath(),
-            versionFormat.get(),
-            versionPrefix.get(),
-            abbrevLength.get(),
-            allowDirty.get(),
-        ).version()
+    val version: Provider<String> = providers.of(GitVersionValueSource::class.java) {
+        parameters.gitRoot.set(gitRoot)
+        parameters.versionFormat.set(versionFormat)
+        parameters.versionPrefix.set(versionPrefix)
+        parameters.abbrevLength.set(abbrevLength)
+        parameters.allowDirty.set(allowDirty)
     }
 }
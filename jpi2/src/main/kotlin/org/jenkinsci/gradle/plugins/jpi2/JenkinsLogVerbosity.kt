@@ -0,0 +1,20 @@
+package org.jenkinsci.gradle.plugins.jpi2
+
+/**
+ * How much of the Jenkins output `testServer` and `testHplRun` show on the console.
+ * The full output is always written to a log file in the reports directory of the task.
+ *
+ * - [QUIET]: Show only the line reporting that Jenkins is up, or the path of the log file when it fails.
+ * - [TAIL]: Like [QUIET], and also show the last lines of the log when Jenkins fails to start (default).
+ * - [FULL]: Show every line as Jenkins writes it.
+ */
+enum class JenkinsLogVerbosity {
+    /** Show only the outcome. */
+    QUIET,
+
+    /** Show the outcome, and the tail of the log on failure. */
+    TAIL,
+
+    /** Show every line. */
+    FULL
+}
@@ -24,6 +24,8 @@ abstract class JenkinsPluginExtension @Inject constructor(private val project: P
         const val DEFAULT_LOCALIZER_VERSION = "1.31"
 
         const val DEFAULT_ARCHIVE_EXTENSION = "jpi"
+
+        const val SERVER_PLUGIN_SET_PROPERTY = "jpi2.serverPluginSet"
     }
 
     /**
@@ -40,6 +42,19 @@ abstract class JenkinsPluginExtension @Inject constructor(private val project: P
     val workDir: DirectoryProperty = project.objects.directoryProperty()
         .convention(project.layout.projectDirectory.dir("work"))
 
+    /**
+     * Which plugin dependencies `prepareServer` stages for `server` and `testServer`.
+     * Can be set via the [SERVER_PLUGIN_SET_PROPERTY] Gradle property (`all` or `required`),
+     * which makes it easy to run `testServer` once per set in a CI matrix.
+     * Defaults to [ServerPluginSet.ALL].
+     */
+    val serverPluginSet: Property<ServerPluginSet> = project.objects.property(ServerPluginSet::class.java)
+        .convention(
+            project.providers.gradleProperty(SERVER_PLUGIN_SET_PROPERTY)
+                .map { ServerPluginSet.valueOf(it.trim().uppercase()) }
+                .orElse(ServerPluginSet.ALL)
+        )
+
     /**
      * The version of Jenkins core to compile and run against.
      * Can be set via the [JENKINS_VERSION_PROPERTY] Gradle property.
@@ -6,8 +6,10 @@ import groovy.lang.Closure
 import org.gradle.api.Action
 import org.gradle.api.Project
 import org.gradle.api.artifacts.dsl.RepositoryHandler
+import org.gradle.api.artifacts.repositories.ArtifactRepository
 import org.gradle.api.artifacts.repositories.MavenArtifactRepository
 import org.gradle.api.artifacts.repositories.PasswordCredentials
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository
 import org.gradle.api.plugins.ExtensionAware
 import java.net.URI
 
@@ -20,7 +22,11 @@ internal val JENKINS_SNAPSHOTS_REPO_URL = URI("https://repo.jenkins-ci.org/snaps
 internal const val JENKINS_RELEASES_REPO_NAME = "jenkinsReleases"
 internal val JENKINS_RELEASES_REPO_URL = URI("https://repo.jenkins-ci.org/releases/")
 internal const val JENKINS_PUBLISH_REPO_NAME = "jenkinsPublish"
-private val INCREMENTALS_PATTERN = Regex(".*-rc\\d+\\.\\w+")
+
+// The exact JEP-305 format, so that releases such as `1.0-rc1.Final` are neither routed nor published as incrementals.
+private const val INCREMENTALS_VERSION_REGEX = ".*-rc\\d+\\.[0-9a-f]{12}"
+private val INCREMENTALS_PATTERN = Regex(INCREMENTALS_VERSION_REGEX)
+private val JENKINS_GROUP_REGEXES = listOf("org\\.jenkins-ci(\\..+)?", "io\\.jenkins(\\..+)?")
 
 fun RepositoryHandler.jenkinsPublic(): MavenArtifactRepository =
     maven {
@@ -28,18 +34,56 @@ fun RepositoryHandler.jenkinsPublic(): MavenArtifactRepository =
         url = JENKINS_PUBLIC_REPO_URL
     }
 
+/**
+ * Only incrementals versions are looked up in this repository.
+ */
 fun RepositoryHandler.jenkinsIncrementals(): MavenArtifactRepository =
     maven {
         name = JENKINS_INCREMENTALS_REPO_NAME
         url = JENKINS_INCREMENTALS_REPO_URL
+        mavenContent {
+            releasesOnly()
+            includeVersionByRegex(".*", ".*", INCREMENTALS_VERSION_REGEX)
+        }
     }
 
+/**
+ * Only `-SNAPSHOT` versions are looked up in this repository.
+ */
 fun RepositoryHandler.jenkinsSnapshots(): MavenArtifactRepository =
     maven {
         name = JENKINS_SNAPSHOTS_REPO_NAME
         url = JENKINS_SNAPSHOTS_REPO_URL
+        mavenContent {
+            snapshotsOnly()
+        }
     }
 
+/**
+ * Stops looking up `org.jenkins-ci*` and `io.jenkins*` modules and incrementals versions in repositories outside
+ * `repo.jenkins-ci.org`, including ones declared later.
+ * Jenkins publishes those modules to `repo.jenkins-ci.org`; the few also mirrored to Maven Central are served by
+ * `jenkinsPublic()` too, so such a build needs `jenkinsPublic()` declared.
+ * The dependency bundle written by `prefetchJenkinsDependencies` is a copy of what those repositories served, so it
+ * is left alone.
+ */
+fun RepositoryHandler.routeJenkinsModules() {
+    configureEach(object : Action<ArtifactRepository> {
+        override fun execute(repository: ArtifactRepository) {
+            if (repository is UrlArtifactRepository && repository.url?.host == JENKINS_PUBLIC_REPO_URL.host) {
+                return
+            }
+            if (repository.name == PrefetchJenkinsDependenciesTask.BUNDLE_REPOSITORY_NAME) {
+                return
+            }
+            repository.content {
+                JENKINS_GROUP_REGEXES.forEach { excludeGroupByRegex(it) }
+                excludeVersionByRegex(".*", ".*", INCREMENTALS_VERSION_REGEX)
+            }
+        }
+    })
+}
+
 private const val PROJECT_EXTRA_KEY = "org.jenkinsci.gradle.plugins.jpi2.project"
 
 fun RepositoryHandler.publishToJenkins(): MavenArtifactRepository {
@@ -109,5 +153,13 @@ fun registerRepositoryShortcuts(repositories: RepositoryHandler) {
                 }
             })
         }
+        if (extensions.findByName("routeJenkinsModules") == null) {
+            extensions.add("routeJenkinsModules", object : Closure<Unit>(repositories, repositories) {
+                @Suppress("unused")
+                fun doCall() {
+                    repositories.routeJenkinsModules()
+                }
+            })
+        }
     }
 }
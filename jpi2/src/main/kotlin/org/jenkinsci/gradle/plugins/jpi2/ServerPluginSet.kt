@@ -0,0 +1,17 @@
+package org.jenkinsci.gradle.plugins.jpi2
+
+/**
+ * Which resolved plugin dependencies `prepareServer` stages for `server` and `testServer`.
+ *
+ * - [ALL]: Stage every Jenkins plugin resolved from the runtime dependencies (default).
+ * - [REQUIRED]: Stage only the plugins this plugin requires, following the non-optional
+ *   `Plugin-Dependencies` manifest entries of each dependency. Optional dependencies are left out,
+ *   so Jenkins loads fewer plugins and boots faster.
+ */
+enum class ServerPluginSet {
+    /** Stage every resolved plugin dependency. */
+    ALL,
+
+    /** Stage only the required (non-optional) plugin dependency closure. */
+    REQUIRED
+}
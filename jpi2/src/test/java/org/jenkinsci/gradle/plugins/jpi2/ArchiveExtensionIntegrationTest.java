@@ -12,6 +12,9 @@ import org.junit.jupiter.api.condition.OS;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,6 +37,65 @@ class ArchiveExtensionIntegrationTest extends V2IntegrationTestBase {
         assertThat(hpi).doesNotExist();
     }
 
+    @Test
+    void jpiStoresNestedJarsAndDeflatesOtherEntries() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("com.github.rahulsom:nothing-java:0.2.0")
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+        ith.mkDirInProjectDir("src/main/webapp");
+        Files.write(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>Help</div>".repeat(100).getBytes(StandardCharsets.UTF_8));
+
+        // when
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        try (var jpi = new ZipFile(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"))) {
+            var jars = jpi.stream().filter(entry -> entry.getName().startsWith("WEB-INF/lib/") && entry.getName().endsWith(".jar")).toList();
+            assertThat(jars).extracting(ZipEntry::getName).contains("WEB-INF/lib/nothing-java-0.2.0.jar", "WEB-INF/lib/test-plugin-1.0.0.jar");
+            assertThat(jars).extracting(ZipEntry::getMethod).containsOnly(ZipEntry.STORED);
+            assertThat(jpi.getEntry("help.html").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(jpi.getEntry("META-INF/MANIFEST.MF").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            assertThat(new String(jpi.getInputStream(jpi.getEntry("META-INF/MANIFEST.MF")).readAllBytes(), StandardCharsets.UTF_8))
+                    .contains("Short-Name: test-plugin");
+        }
+    }
+
+    @Test
+    void jpiBytesShouldNotDependOnBuildOrTimeZone() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("com.github.rahulsom:nothing-java:0.2.0")
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+        ith.mkDirInProjectDir("src/main/webapp");
+        Files.write(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>Help</div>".getBytes(StandardCharsets.UTF_8));
+        var gradleProperties = ith.inProjectDir("gradle.properties").toPath();
+        var jpi = ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi").toPath();
+
+        // when
+        Files.writeString(gradleProperties, "\norg.gradle.jvmargs=-Duser.timezone=Etc/GMT+12\n",
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        ith.gradleRunner().withArguments("jpi").build();
+        var first = Files.readAllBytes(jpi);
+        ith.gradleRunner().withArguments("clean", "jpi").build();
+        var rebuilt = Files.readAllBytes(jpi);
+        Files.writeString(gradleProperties, Files.readString(gradleProperties).replace("Etc/GMT+12", "Pacific/Kiritimati"));
+        ith.gradleRunner().withArguments("clean", "jpi").build();
+        var otherTimeZone = Files.readAllBytes(jpi);
+
+        // then
+        assertThat(rebuilt).isEqualTo(first);
+        assertThat(otherTimeZone).isEqualTo(first);
+    }
+
     @Test
     void archiveExtensionSetToHpiProducesHpiArtifact() throws IOException {
         // given
@@ -96,8 +158,8 @@ class ArchiveExtensionIntegrationTest extends V2IntegrationTestBase {
         ith.gradleRunner().withArguments("prepareServer").build();
 
         // then
-        var hpi = ith.inProjectDir("work/plugins/test-plugin.hpi");
-        var jpi = ith.inProjectDir("work/plugins/test-plugin.jpi");
+        var hpi = ith.inProjectDir("work/server/plugins/test-plugin.hpi");
+        var jpi = ith.inProjectDir("work/server/plugins/test-plugin.jpi");
         assertThat(hpi).exists();
         assertThat(jpi).doesNotExist();
     }
@@ -112,8 +174,8 @@ class ArchiveExtensionIntegrationTest extends V2IntegrationTestBase {
         ith.gradleRunner().withArguments("prepareServer").build();
 
         // then
-        var jpi = ith.inProjectDir("work/plugins/test-plugin.jpi");
-        var hpi = ith.inProjectDir("work/plugins/test-plugin.hpi");
+        var jpi = ith.inProjectDir("work/server/plugins/test-plugin.jpi");
+        var hpi = ith.inProjectDir("work/server/plugins/test-plugin.hpi");
         assertThat(jpi).exists();
         assertThat(hpi).doesNotExist();
     }
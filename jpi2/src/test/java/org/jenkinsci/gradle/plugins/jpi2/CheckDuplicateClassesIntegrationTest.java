@@ -0,0 +1,137 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class CheckDuplicateClassesIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void checkLifecycleRunsCheckDuplicateClasses() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var first = ith.gradleRunner().withArguments("check").build();
+        var second = ith.gradleRunner().withArguments("check").build();
+
+        // then
+        assertThat(first.task(":" + CheckDuplicateClassesTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(second.task(":" + CheckDuplicateClassesTask.NAME).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+        assertThat(first.getOutput()).doesNotContain("duplicate classes in bundled libraries");
+        assertThat(ith.inProjectDir("build/duplicate-classes/report.txt")).isEmpty();
+    }
+
+    @Test
+    void checkDuplicateClassesReportsClassesJenkinsAlreadyProvides() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("jakarta.servlet:jakarta.servlet-api:5.0.0")
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var reported = ith.gradleRunner().withArguments(CheckDuplicateClassesTask.NAME).build();
+
+        // then
+        assertThat(reported.getOutput())
+                .contains("duplicate classes in bundled libraries")
+                .contains("jakarta.servlet-api-5.0.0.jar, core:jakarta.servlet-api-5.0.0.jar share");
+        assertThat(ith.inProjectDir("build/duplicate-classes/report.txt"))
+                .content(StandardCharsets.UTF_8)
+                .contains("jakarta.servlet.http.HttpServletRequest (jakarta.servlet-api-5.0.0.jar)");
+
+        // when
+        var failed = ith.gradleRunner()
+                .withArguments(CheckDuplicateClassesTask.NAME, "-P" + CheckDuplicateClassesTask.FAIL_ON_DUPLICATES_PROPERTY + "=true")
+                .buildAndFail();
+
+        // then
+        assertThat(failed.task(":" + CheckDuplicateClassesTask.NAME).getOutcome()).isEqualTo(TaskOutcome.FAILED);
+        assertThat(failed.getOutput()).contains("duplicate classes in bundled libraries");
+    }
+
+    @Test
+    void checkDuplicateClassesReportsDifferentlyNamedLibrariesWithTheSameClasses() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        var repository = ith.inProjectDir("library-repo");
+        publishLibrary(repository, "com.example:widgets:1.0", "com/example/widgets/Widget.class", "com/example/widgets/Gadget.class");
+        publishLibrary(repository, "com.example.relocated:widgets-all:2.0", "com/example/widgets/Widget.class",
+                "com/example/widgets/Gadget.class", "com/example/widgets/Extra.class");
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                repositories {
+                    maven {
+                        url = uri("${rootDir}/library-repo")
+                    }
+                }
+                dependencies {
+                    implementation("com.example:widgets:1.0")
+                    implementation("com.example.relocated:widgets-all:2.0")
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var result = ith.gradleRunner().withArguments(CheckDuplicateClassesTask.NAME).build();
+
+        // then
+        assertThat(result.getOutput()).contains("Found 2 duplicate classes in bundled libraries");
+        assertThat(ith.inProjectDir("build/duplicate-classes/report.txt"))
+                .content(StandardCharsets.UTF_8)
+                .containsAnyOf("widgets-1.0.jar, widgets-all-2.0.jar: 2 classes", "widgets-all-2.0.jar, widgets-1.0.jar: 2 classes")
+                .contains("com.example.widgets.Gadget (widgets")
+                .contains("com.example.widgets.Widget (widgets")
+                .doesNotContain("com.example.widgets.Extra");
+    }
+
+    @Test
+    void checkDuplicateClassesDeletesClassTablesNoBuildHasUsed() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                tasks.register("printGradleUserHome") {
+                    val home = gradle.gradleUserHomeDir
+                    doLast {
+                        println("gradleUserHome=" + home)
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+        var output = ith.gradleRunner().withArguments("printGradleUserHome", "-q").build().getOutput();
+        var home = output.substring(output.indexOf("gradleUserHome=") + "gradleUserHome=".length()).lines().findFirst().orElseThrow();
+        var cache = new File(home, "caches/jpi2/class-index");
+        Files.createDirectories(cache.toPath());
+        var unused = new File(cache, "0".repeat(64) + ".idx");
+        Files.write(unused.toPath(), new byte[0]);
+        assertThat(unused.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(31))).isTrue();
+        Files.deleteIfExists(new File(cache, "cleanup.marker").toPath());
+
+        // when
+        ith.gradleRunner().withArguments(CheckDuplicateClassesTask.NAME).build();
+
+        // then
+        assertThat(unused).doesNotExist();
+        assertThat(cache.listFiles((dir, name) -> name.endsWith(".idx"))).isNotEmpty();
+    }
+}
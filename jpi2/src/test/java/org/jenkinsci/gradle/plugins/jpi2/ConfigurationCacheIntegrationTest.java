@@ -0,0 +1,72 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.jar.Manifest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class ConfigurationCacheIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void buildShouldReuseConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssPluginDependency(ith);
+
+        // when
+        BuildResult firstRun = ith.gradleRunner().withArguments("--configuration-cache", "clean", "build").build();
+        BuildResult secondRun = ith.gradleRunner().withArguments("--configuration-cache", "clean", "build").build();
+
+        // then
+        assertThat(firstRun.getOutput()).contains("Configuration cache entry stored");
+        assertThat(secondRun.getOutput()).contains("Configuration cache entry reused");
+        assertThat(secondRun.task(":jpi").getOutcome()).isIn(TaskOutcome.SUCCESS, TaskOutcome.FROM_CACHE);
+
+        var manifest = new File(ith.inProjectDir("build/jpi"), "META-INF/MANIFEST.MF");
+        var manifestData = new Manifest(manifest.toURI().toURL().openStream()).getMainAttributes();
+        assertThat(manifestData.getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+        assertThat(manifestData.getValue("Implementation-Title")).isEqualTo("com.example#test-plugin;1.0.0");
+    }
+
+    @Test
+    void jpiShouldReuseConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssPluginDependency(ith);
+
+        // when
+        BuildResult firstRun = ith.gradleRunner().withArguments("--configuration-cache", "jpi").build();
+        BuildResult secondRun = ith.gradleRunner().withArguments("--configuration-cache", "jpi").build();
+
+        // then
+        assertThat(firstRun.getOutput()).contains("Configuration cache entry stored");
+        assertThat(secondRun.getOutput()).contains("Configuration cache entry reused");
+        assertThat(secondRun.task(":jpi").getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    }
+
+    @Test
+    void testServerShouldReuseConfigurationCache() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+
+        // when
+        BuildResult firstRun = ith.gradleRunner().withArguments("--configuration-cache", "testServer").build();
+        BuildResult secondRun = ith.gradleRunner().withArguments("--configuration-cache", "testServer", "--rerun").build();
+
+        // then
+        assertThat(firstRun.getOutput()).contains("Configuration cache entry stored");
+        assertThat(firstRun.getOutput()).contains("Jenkins is fully up and running");
+        assertThat(secondRun.getOutput()).contains("Configuration cache entry reused");
+        assertThat(secondRun.getOutput()).contains("Jenkins is fully up and running");
+    }
+}
@@ -165,6 +165,31 @@ class DependencyResolutionIntegrationTest extends V2IntegrationTestBase {
         assertThat(result.getOutput()).contains("BUILD SUCCESSFUL");
     }
 
+    @Test
+    void hpiMetadataRuleResultIsReusedByLaterBuilds() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+        var ruleExecution = "Selecting plugin jar variants of org.jenkins-ci.plugins:git:5.7.0";
+
+        // when
+        var refreshed = ith.gradleRunner()
+                .withArguments("dependencies", "--configuration=runtimeClasspath", "--refresh-dependencies", "--debug")
+                .build();
+        var cached = ith.gradleRunner()
+                .withArguments("dependencies", "--configuration=runtimeClasspath", "--debug")
+                .build();
+
+        // then
+        assertThat(refreshed.getOutput()).contains(ruleExecution);
+        assertThat(cached.getOutput()).doesNotContain(ruleExecution);
+    }
+
     @Test
     void respectsExclusions() throws IOException {
         // given
@@ -195,4 +220,129 @@ class DependencyResolutionIntegrationTest extends V2IntegrationTestBase {
                         "test-plugin-1.0.0.jar",
                         "commons-math3-3.6.1.jar");
     }
+
+    @Test
+    void routeJenkinsModulesSkipsOtherRepositoriesForJenkinsModules() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        publishToStandIn(ith, "com.example", "library", "1.0.0");
+        publishToStandIn(ith, "com.example", "library", "1.0-rc1234.0123456789ab");
+        publishToStandIn(ith, "org.jenkins-ci.plugins", "stand-in", "1.0.0");
+        publishToStandIn(ith, "io.jenkins.plugins", "stand-in", "1.0.0");
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                import org.jenkinsci.gradle.plugins.jpi2.routeJenkinsModules
+
+                plugins {
+                    id("org.jenkins-ci.jpi2")
+                }
+                repositories {
+                    routeJenkinsModules()
+                    maven {
+                        url = uri("${rootDir}/stand-in")
+                    }
+                }
+                val probe by configurations.creating
+                dependencies {
+                    probe("com.example:library:1.0.0")
+                    probe("com.example:library:1.0-rc1234.0123456789ab")
+                    probe("org.jenkins-ci.plugins:stand-in:1.0.0")
+                    probe("io.jenkins.plugins:stand-in:1.0.0")
+                }
+                val resolved = probe.incoming.artifactView { isLenient = true }.files
+                tasks.register("probe") {
+                    doLast {
+                        println("Resolved: " + resolved.files.map { it.name }.sorted().joinToString(","))
+                    }
+                }
+                """.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        var result = ith.gradleRunner().withArguments("probe", "--offline").build();
+
+        // then
+        assertThat(result.getOutput().lines()).contains("Resolved: library-1.0.0.jar");
+    }
+
+    @Test
+    void jenkinsIncrementalsIsOnlyAskedForIncrementalsVersions() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        writeOfflineProbe(ith, "jenkinsIncrementals()", "1.0.0", "1.0-rc1.Final", "1.0-rc1234.0123456789ab");
+
+        // when
+        var result = ith.gradleRunner().withArguments("probe", "--offline").build();
+
+        // then
+        assertThat(result.getOutput().lines())
+                .contains("Not asked: com.example:library:1.0.0")
+                .contains("Not asked: com.example:library:1.0-rc1.Final")
+                .contains("Asked: com.example:library:1.0-rc1234.0123456789ab");
+    }
+
+    @Test
+    void jenkinsSnapshotsIsOnlyAskedForSnapshotVersions() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        writeOfflineProbe(ith, "jenkinsSnapshots()", "1.0.0", "1.0-SNAPSHOT");
+
+        // when
+        var result = ith.gradleRunner().withArguments("probe", "--offline").build();
+
+        // then
+        assertThat(result.getOutput().lines())
+                .contains("Not asked: com.example:library:1.0.0")
+                .contains("Asked: com.example:library:1.0-SNAPSHOT");
+    }
+
+    /**
+     * Offline, a repository that is asked fails with a missing cache entry, while one its content filter skips is never
+     * asked and the module is simply not found.
+     */
+    private static void writeOfflineProbe(IntegrationTestHelper ith, String repository, String... versions) throws IOException {
+        var dependencies = new StringBuilder();
+        for (var version : versions) {
+            dependencies.append("    probe(\"com.example:library:").append(version).append("\")\n");
+        }
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                import org.gradle.api.artifacts.result.UnresolvedDependencyResult
+                import org.jenkinsci.gradle.plugins.jpi2.%s
+
+                plugins {
+                    id("org.jenkins-ci.jpi2")
+                }
+                repositories {
+                    %s
+                }
+                val probe by configurations.creating
+                dependencies {
+                %s}
+                val root = probe.incoming.resolutionResult.rootComponent
+                tasks.register("probe") {
+                    doLast {
+                        root.get().dependencies.filterIsInstance<UnresolvedDependencyResult>().forEach { dependency ->
+                            val messages = generateSequence(dependency.failure) { it.cause }.mapNotNull { it.message }
+                            val asked = messages.any { it.contains("available for offline mode") }
+                            println((if (asked) "Asked: " else "Not asked: ") + dependency.requested.displayName)
+                        }
+                    }
+                }
+                """.formatted(repository.substring(0, repository.indexOf('(')), repository, dependencies), StandardCharsets.UTF_8);
+    }
+
+    private static void publishToStandIn(IntegrationTestHelper ith, String group, String name, String version) throws IOException {
+        var directory = group.replace('.', '/') + "/" + name + "/" + version;
+        ith.mkDirInProjectDir("stand-in/" + directory);
+        Files.write(ith.inProjectDir("stand-in/" + directory + "/" + name + "-" + version + ".pom").toPath(), ("""
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                    <modelVersion>4.0.0</modelVersion>
+                    <groupId>%s</groupId>
+                    <artifactId>%s</artifactId>
+                    <version>%s</version>
+                </project>
+                """.formatted(group, name, version)).getBytes(StandardCharsets.UTF_8));
+        Files.write(ith.inProjectDir("stand-in/" + directory + "/" + name + "-" + version + ".jar").toPath(), new byte[0]);
+    }
 }
@@ -28,10 +28,10 @@ class IncludedBuildDependencyIntegrationTest extends V2IntegrationTestBase {
         // then
         assertThat(result.getOutput()).contains("BUILD SUCCESSFUL");
 
-        var rootPlugin = ith.inProjectDir("work/plugins/test-plugin.jpi");
+        var rootPlugin = ith.inProjectDir("work/server/plugins/test-plugin.jpi");
         assertThat(rootPlugin).exists();
 
-        var includedBuildPlugin = ith.inProjectDir("work/plugins/lib.jpi");
+        var includedBuildPlugin = ith.inProjectDir("work/server/plugins/lib.jpi");
         assertThat(includedBuildPlugin).doesNotExist();
     }
 
@@ -0,0 +1,158 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.jenkinsci.gradle.plugins.jpi2.accmod.CheckAccessModifierTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class LazyConfigurationIntegrationTest extends V2IntegrationTestBase {
+
+    private static final List<String> PLUGIN_TASKS = List.of(
+            V2JpiPlugin.JPI_TASK, V2JpiPlugin.EXPLODED_JPI_TASK, GenerateHplTask.TASK_NAME, "prepareServer", "prepareRun",
+            "server", "hplRun", "testServer", "testHplRun", GenerateJenkinsCdsTask.TASK_NAME,
+            CheckAccessModifierTask.NAME, GenerateLicenseInfoTask.NAME, FingerprintPluginsTask.NAME, VerifyPluginLoadTask.NAME,
+            CheckDuplicateClassesTask.NAME);
+    private static final List<String> PLUGIN_CONFIGURATIONS = List.of(
+            "jenkinsCore", "defaultRuntime", "defaultRuntimeElements", "lastAnnotationProcessor", "serverTaskClasspath",
+            "jenkinsAccessModifier", "pluginLoadClasspath", "localizeMessagesRuntimeClasspath");
+    /**
+     * Configurations created on apply: {@code runtimeClasspath}, {@code testRuntimeClasspath} and
+     * {@code annotationProcessor}, which the Java plugin realizes anyway, need their instance, and
+     * {@code defaultRuntimeElements} must exist for other projects to select it.
+     */
+    private static final List<String> EAGER_CONFIGURATIONS = List.of(
+            "jenkinsCore", "defaultRuntime", "defaultRuntimeElements", "lastAnnotationProcessor");
+
+    @Test
+    void helpShouldNotRealizePluginTasksOrConfigurations() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureRealizationReport(ith);
+
+        // when
+        BuildResult result = ith.gradleRunner().withArguments("help").build();
+
+        // then
+        var tasks = reportedNames(result, "Realized tasks: ");
+        assertThat(tasks).doesNotContainAnyElementsOf(PLUGIN_TASKS);
+        assertThat(tasks).doesNotContain("compileJava", "compileTestJava", "jar");
+        var configurations = reportedNames(result, "Realized configurations: ");
+        assertThat(pluginConfigurations(configurations, "")).containsExactlyInAnyOrderElementsOf(EAGER_CONFIGURATIONS);
+    }
+
+    @Test
+    void compileJavaShouldNotRealizePluginTasksOrConfigurations() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureRealizationReport(ith);
+
+        // when
+        BuildResult result = ith.gradleRunner().withArguments("compileJava").build();
+
+        // then
+        var tasks = reportedNames(result, "Realized tasks: ");
+        assertThat(tasks).contains("compileJava");
+        assertThat(tasks).doesNotContainAnyElementsOf(PLUGIN_TASKS);
+        var configurations = reportedNames(result, "Realized configurations: ");
+        assertThat(pluginConfigurations(configurations, ""))
+                .containsExactlyInAnyOrderElementsOf(compileJavaBudget());
+    }
+
+    @Test
+    void compileJavaOfDependentPluginShouldNotRealizePluginTasksOfEitherProject() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureTwoPluginsForVerification(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                val realizedTasks = sortedSetOf<String>()
+                val realizedConfigurations = sortedSetOf<String>()
+                subprojects {
+                    val projectPath = path
+                    tasks.configureEach { realizedTasks.add(path) }
+                    configurations.configureEach { realizedConfigurations.add(projectPath + ":" + name) }
+                }
+                gradle.taskGraph.whenReady {
+                    println("Realized tasks: " + realizedTasks.joinToString(","))
+                    println("Realized configurations: " + realizedConfigurations.joinToString(","))
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        BuildResult result = ith.gradleRunner().withArguments(":downstream:compileJava").build();
+
+        // then
+        var tasks = reportedNames(result, "Realized tasks: ");
+        assertThat(tasks).contains(":downstream:compileJava", ":upstream:compileJava");
+        for (var project : List.of(":upstream:", ":downstream:")) {
+            assertThat(tasks).doesNotContainAnyElementsOf(PLUGIN_TASKS.stream().map(task -> project + task).toList());
+        }
+        // Selecting a variant of :upstream may realize all of its configurations, so only the consumer is budgeted.
+        var configurations = reportedNames(result, "Realized configurations: ");
+        assertThat(pluginConfigurations(configurations, ":downstream:"))
+                .containsExactlyInAnyOrderElementsOf(compileJavaBudget());
+    }
+
+    /**
+     * compileJava also needs localizeMessages, which resolves the localizer.
+     */
+    private static List<String> compileJavaBudget() {
+        var budget = new ArrayList<>(EAGER_CONFIGURATIONS);
+        budget.add("localizeMessagesRuntimeClasspath");
+        return budget;
+    }
+
+    private static List<String> pluginConfigurations(List<String> realized, String projectPrefix) {
+        return realized.stream()
+                .filter(name -> name.startsWith(projectPrefix))
+                .map(name -> name.substring(projectPrefix.length()))
+                .filter(PLUGIN_CONFIGURATIONS::contains)
+                .toList();
+    }
+
+    private static void configureRealizationReport(IntegrationTestHelper ith) throws IOException {
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (/* language=kotlin */ """
+                plugins {
+                    id("org.jenkins-ci.jpi2")
+                }
+                repositories {
+                    mavenCentral()
+                    jenkinsPublic()
+                }
+                val realizedTasks = sortedSetOf<String>()
+                tasks.configureEach { realizedTasks.add(name) }
+                val realizedConfigurations = sortedSetOf<String>()
+                configurations.configureEach { realizedConfigurations.add(name) }
+                gradle.taskGraph.whenReady {
+                    println("Realized tasks: " + realizedTasks.joinToString(","))
+                    println("Realized configurations: " + realizedConfigurations.joinToString(","))
+                }
+                """ + getPublishingConfig()).getBytes(StandardCharsets.UTF_8));
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.write(ith.inProjectDir("src/main/java/com/example/Example.java").toPath(), /* language=java */ """
+                package com.example;
+
+                public class Example {
+                }
+                """.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> reportedNames(BuildResult result, String prefix) {
+        return result.getOutput().lines()
+                .filter(line -> line.startsWith(prefix))
+                .findFirst()
+                .map(line -> List.of(line.substring(prefix.length()).split(",")))
+                .orElseThrow(() -> new AssertionError("No report starting with '" + prefix + "' in output"));
+    }
+}
@@ -7,6 +7,7 @@ import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
 import org.assertj.core.groups.Tuple;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
 import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
@@ -17,6 +18,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.jar.Attributes;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -114,6 +116,67 @@ class ManifestIntegrationTest extends V2IntegrationTestBase {
                 );
     }
 
+    @Test
+    void jenkinsManifestIsGeneratedOnceAndLoadedFromBuildCache() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+
+        var firstRun = ith.gradleRunner().withArguments("--build-cache", "jar", "jpi", "generateJenkinsServerHpl").build();
+        var secondRun = ith.gradleRunner().withArguments("--build-cache", "clean", "jar", "jpi", "generateJenkinsServerHpl").build();
+
+        assertThat(firstRun.task(":" + GenerateJenkinsManifestTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(secondRun.task(":" + GenerateJenkinsManifestTask.NAME).getOutcome()).isEqualTo(TaskOutcome.FROM_CACHE);
+        assertThat(manifestAttributes(ith).getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+        var jar = ith.inProjectDir("build/libs/test-plugin-1.0.0.jar");
+        try (var jarFile = new JarFile(jar)) {
+            assertThat(jarFile.getManifest().getMainAttributes().getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+        }
+        var hpl = ith.inProjectDir("build/hpl/test-plugin.hpl");
+        var hplAttributes = new Manifest(hpl.toURI().toURL().openStream()).getMainAttributes();
+        assertThat(hplAttributes.getValue("Plugin-Dependencies")).isEqualTo("git:5.7.0");
+        assertThat(hplAttributes.getValue("Support-Dynamic-Loading")).isEqualTo("true");
+    }
+
+    @Test
+    void declaredManifestAttributesReachHplAndExplodedLayout() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                tasks.named<Jar>("jar") {
+                    manifest {
+                        attributes("X-Jar-Attribute" to "from-jar", "Plugin-Version" to "overridden")
+                    }
+                }
+                tasks.named<War>("jpi") {
+                    manifest {
+                        attributes("X-Jpi-Attribute" to "from-jpi")
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        ith.gradleRunner().withArguments(GenerateHplTask.TASK_NAME, V2JpiPlugin.JPI_TASK).build();
+
+        // then
+        var hpl = ith.inProjectDir("build/hpl/test-plugin.hpl");
+        var hplAttributes = new Manifest(hpl.toURI().toURL().openStream()).getMainAttributes();
+        assertThat(hplAttributes.getValue("X-Jar-Attribute")).isEqualTo("from-jar");
+        assertThat(hplAttributes.getValue("X-Jpi-Attribute")).isEqualTo("from-jpi");
+        assertThat(hplAttributes.getValue("Plugin-Version")).isEqualTo("1.0.0");
+        var exploded = manifestAttributes(ith);
+        assertThat(exploded.getValue("X-Jpi-Attribute")).isEqualTo("from-jpi");
+        assertThat(exploded.getValue("X-Jar-Attribute")).isNull();
+        try (var jpi = new JarFile(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"))) {
+            assertThat(jpi.getManifest().getMainAttributes().getValue("X-Jpi-Attribute")).isEqualTo("from-jpi");
+        }
+    }
+
     @Test
     void supportDynamicLoadingDefaultsToTrueWhenNoExtensionsExist() throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
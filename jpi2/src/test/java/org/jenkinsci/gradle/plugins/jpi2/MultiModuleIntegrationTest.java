@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -94,10 +96,93 @@ class MultiModuleIntegrationTest extends V2IntegrationTestBase {
         testServerStarts(gradleRunner, ":plugin-four:server");
 
         // then
-        var pluginThreeJpi = ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi");
+        var pluginThreeJpi = ith.inProjectDir("plugin-four/work/server/plugins/plugin-three.jpi");
         assertThat(pluginThreeJpi).exists();
     }
 
+    @Test
+    void multiModuleShouldStageUpstreamPluginsWithIsolatedProjects() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureModuleWithNestedDependencies(ith);
+
+        // when
+        var server = ith.gradleRunner()
+                .withArguments("-Dorg.gradle.unsafe.isolated-projects=true", ":plugin-four:prepareServer")
+                .build();
+
+        // then
+        assertThat(server.task(":plugin-four:prepareServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("plugin-four/work/server/plugins/plugin-three.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/server/plugins/git.jpi")).exists();
+
+        // when
+        var run = ith.gradleRunner()
+                .withArguments("-Dorg.gradle.unsafe.isolated-projects=true", ":plugin-four:prepareRun")
+                .build();
+
+        // then
+        assertThat(run.task(":plugin-four:prepareRun").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("plugin-four/work/hplRun/plugins/plugin-three.hpl")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/hplRun/plugins/plugin-three.jpi")).doesNotExist();
+        assertThat(ith.inProjectDir("plugin-four/work/hplRun/plugins/git.jpi")).exists();
+    }
+
+    @Test
+    void multiModuleShouldStageRequiredPluginsForEveryProject() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureModuleWithNestedDependencies(ith);
+
+        // when
+        var result = ith.gradleRunner()
+                .withArguments("-Pjpi2.serverPluginSet=required", ":plugin-three:prepareServer", ":plugin-four:prepareServer")
+                .build();
+
+        // then
+        assertThat(result.task(":plugin-three:prepareServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(result.task(":plugin-four:prepareServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("plugin-three/work/server/plugins/git.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-three/work/server/plugins/scm-api.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/server/plugins/plugin-three.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/server/plugins/git.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/server/plugins/scm-api.jpi")).exists();
+    }
+
+    @Test
+    void multiModuleShouldResolveJenkinsCoreModulesOncePerProject() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureModuleWithNestedDependencies(ith);
+        var resolution = "Resolving the jenkins-core 2.492.3 dependency graph";
+
+        // when
+        var result = ith.gradleRunner()
+                .withArguments(":plugin-three:jpi", ":plugin-four:jpi", "--info")
+                .build();
+
+        // then
+        assertThat(result.getOutput().lines().filter(line -> line.contains(resolution + " for :plugin-three"))).hasSize(1);
+        assertThat(result.getOutput().lines().filter(line -> line.contains(resolution + " for :plugin-four"))).hasSize(1);
+        assertThat(ith.inProjectDir("plugin-three/build/libs/plugin-three-1.0.0.jpi")).exists();
+        assertThat(ith.inProjectDir("plugin-four/build/libs/plugin-four-1.0.0.jpi")).exists();
+
+        // when
+        var rebuild = ith.gradleRunner()
+                .withArguments("clean", ":plugin-four:jpi", "--info")
+                .build();
+
+        // then
+        assertThat(rebuild.task(":plugin-four:jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(rebuild.getOutput().lines().filter(line -> line.contains(resolution + " for :plugin-four")))
+                .as("the graph is not kept across builds")
+                .hasSize(1);
+        try (var jpi = new JarFile(ith.inProjectDir("plugin-four/build/libs/plugin-four-1.0.0.jpi"))) {
+            assertThat(jpi.stream().map(JarEntry::getName).filter(name -> name.startsWith("WEB-INF/lib/") && name.endsWith(".jar")))
+                    .containsExactly("WEB-INF/lib/plugin-four-1.0.0.jar");
+        }
+    }
+
     @Test
     @Timeout(value = 15, unit = TimeUnit.MINUTES)
     void testHplRunInvalidatesOnUpstreamModuleSourceChange() throws IOException {
@@ -138,6 +223,38 @@ class MultiModuleIntegrationTest extends V2IntegrationTestBase {
         assertThat(afterUpstreamEdit.getOutput()).contains("Jenkins is fully up and running");
     }
 
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void parallelTestServersShouldQueueForLaunchMemory() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureTwoPluginsForVerification(ith);
+
+        // when
+        // Each launch needs its 512m Jenkins heap plus the nested Gradle build, so only one fits into the budget.
+        var result = ith.gradleRunner()
+                .withArguments("testServer", "--parallel", "--info",
+                        "-P" + JenkinsLaunchAdmission.MAX_PARALLEL_LAUNCHES_PROPERTY + "=2",
+                        "-P" + JenkinsLaunchAdmission.MEMORY_BUDGET_PROPERTY + "=1500")
+                .build();
+
+        // then
+        assertThat(result.task(":upstream:testServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(result.task(":downstream:testServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        var events = result.getOutput().lines()
+                .filter(line -> line.contains(" the Jenkins launch of "))
+                .map(line -> line.replaceAll(" with \\d+ MB$", ""))
+                .toList();
+        assertThat(events).hasSize(4);
+        var first = events.get(0).substring(events.get(0).lastIndexOf(' ') + 1);
+        var second = first.equals(":upstream:testServer") ? ":downstream:testServer" : ":upstream:testServer";
+        assertThat(events).containsExactly(
+                "Admitted the Jenkins launch of " + first,
+                "Released the Jenkins launch of " + first,
+                "Admitted the Jenkins launch of " + second,
+                "Released the Jenkins launch of " + second);
+    }
+
     @Test
     void multiModuleWithNestedDependenciesShouldLaunchRun() throws IOException, InterruptedException {
         // given
@@ -150,9 +267,9 @@ class MultiModuleIntegrationTest extends V2IntegrationTestBase {
         testServerStarts(gradleRunner, ":plugin-four:hplRun");
 
         // then
-        var pluginThreeHpl = ith.inProjectDir("plugin-four/work/plugins/plugin-three.hpl");
+        var pluginThreeHpl = ith.inProjectDir("plugin-four/work/hplRun/plugins/plugin-three.hpl");
         assertThat(pluginThreeHpl).exists();
-        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-three.jpi")).doesNotExist();
-        assertThat(ith.inProjectDir("plugin-four/work/plugins/plugin-four.hpl")).exists();
+        assertThat(ith.inProjectDir("plugin-four/work/hplRun/plugins/plugin-three.jpi")).doesNotExist();
+        assertThat(ith.inProjectDir("plugin-four/work/hplRun/plugins/plugin-four.hpl")).exists();
     }
 }
@@ -8,6 +8,8 @@ import org.junit.jupiter.api.condition.OS;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.jar.Manifest;
@@ -63,7 +65,7 @@ class OssPluginDependencyIntegrationTest extends V2IntegrationTestBase {
         testServerStarts(gradleRunner, "server");
 
         // the selected plugin
-        var pluginsDir = ith.inProjectDir("work/plugins");
+        var pluginsDir = ith.inProjectDir("work/server/plugins");
         assertThat(pluginsDir).exists();
 
         var files = Arrays.stream(Objects.requireNonNull(pluginsDir.list())).sorted().toList();
@@ -107,11 +109,66 @@ class OssPluginDependencyIntegrationTest extends V2IntegrationTestBase {
         ith.gradleRunner().withArguments("prepareRun").build();
 
         // then
-        var pluginsDir = ith.inProjectDir("work/plugins");
+        var pluginsDir = ith.inProjectDir("work/hplRun/plugins");
         assertThat(pluginsDir).exists();
 
         var files = Arrays.stream(Objects.requireNonNull(pluginsDir.list())).sorted().toList();
         assertThat(files).contains("git.jpi", "test-plugin.hpl", "workflow-step-api.jpi");
         assertThat(files).noneMatch(it -> it.endsWith(".hpi"));
     }
+
+    @Test
+    void gradleBuildWithOssPluginDependencyShouldPrepareServerWithRequiredPluginsOnly() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureBuildWithOssPluginDependency(ith);
+
+        // when
+        ith.gradleRunner().withArguments("prepareServer").build();
+        var all = Arrays.stream(Objects.requireNonNull(ith.inProjectDir("work/server/plugins").list())).sorted().toList();
+        ith.gradleRunner()
+                .withArguments("prepareServer", "-P" + JenkinsPluginExtension.SERVER_PLUGIN_SET_PROPERTY + "=required")
+                .build();
+
+        // then
+        var required = Arrays.stream(Objects.requireNonNull(ith.inProjectDir("work/server/plugins").list())).sorted().toList();
+        assertThat(required)
+                .contains("test-plugin.jpi", "git.jpi", "git-client.jpi", "scm-api.jpi", "structs.jpi", "credentials.jpi")
+                .isSubsetOf(all);
+    }
+
+    @Test
+    void requiredServerPluginSetShouldSkipOptionalPluginDependencies() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        var repository = ith.inProjectDir("plugin-repo");
+        publishPlugin(repository, "com.example.plugins:alpha:1.0", "beta:1.0,gamma:1.0;resolution:=optional",
+                "com.example.plugins:beta:1.0", "com.example.plugins:gamma:1.0");
+        publishPlugin(repository, "com.example.plugins:beta:1.0", "delta:1.0", "com.example.plugins:delta:1.0");
+        publishPlugin(repository, "com.example.plugins:gamma:1.0", "");
+        publishPlugin(repository, "com.example.plugins:delta:1.0", "");
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                repositories {
+                    maven {
+                        url = uri("${rootDir}/plugin-repo")
+                    }
+                }
+                dependencies {
+                    implementation("com.example.plugins:alpha:1.0")
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        ith.gradleRunner().withArguments("prepareServer").build();
+        var all = Arrays.stream(Objects.requireNonNull(ith.inProjectDir("work/server/plugins").list())).sorted().toList();
+        ith.gradleRunner()
+                .withArguments("prepareServer", "-P" + JenkinsPluginExtension.SERVER_PLUGIN_SET_PROPERTY + "=required")
+                .build();
+
+        // then
+        var required = Arrays.stream(Objects.requireNonNull(ith.inProjectDir("work/server/plugins").list())).sorted().toList();
+        assertThat(all).containsExactly("alpha.jpi", "beta.jpi", "delta.jpi", "gamma.jpi", "test-plugin.jpi");
+        assertThat(required).containsExactly("alpha.jpi", "beta.jpi", "delta.jpi", "test-plugin.jpi");
+    }
 }
@@ -0,0 +1,113 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class PrefetchJenkinsDependenciesIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void bundleSupportsOfflineBuildWithEmptyGradleUserHome() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                    implementation("com.github.rahulsom:nothing-java:0.2.0")
+                }
+
+                val resolution = configurations.testRuntimeClasspath.get().incoming.artifacts.resolvedArtifacts
+                tasks.register("printResolution") {
+                    doLast {
+                        resolution.get().map { "${it.id.displayName} from ${it.variant.displayName}" }.sorted()
+                            .forEach { println("Resolved: $it") }
+                    }
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.write(ith.inProjectDir("src/main/java/com/example/Example.java").toPath(), /* language=java */ """
+                package com.example;
+
+                @hudson.Extension
+                public class Example {
+                }
+                """.getBytes(StandardCharsets.UTF_8));
+
+        // when
+        var prefetch = ith.gradleRunner().withArguments(PrefetchJenkinsDependenciesTask.NAME, "printResolution").build();
+
+        // then
+        assertThat(prefetch.task(":" + PrefetchJenkinsDependenciesTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        var bundle = ith.inProjectDir("build/jenkins-dependencies");
+        assertThat(new File(bundle, "org/jenkins-ci/main/jenkins-core/2.492.3/jenkins-core-2.492.3.jar")).exists();
+        assertThat(new File(bundle, "org/jenkins-ci/main/jenkins-core/2.492.3/jenkins-core-2.492.3.pom")).exists();
+        assertThat(new File(bundle, "org/jenkins-ci/main/jenkins-parent/2.492.3/jenkins-parent-2.492.3.pom")).exists();
+        assertThat(new File(bundle, "org/jenkins-ci/main/jenkins-war/2.492.3/jenkins-war-2.492.3.war")).exists();
+        assertThat(new File(bundle, "org/jenkins-ci/plugins/git/5.7.0").list())
+                .contains("git-5.7.0.pom", "git-5.7.0.jar", "git-5.7.0.hpi");
+        assertThat(new File(bundle, "org/junit/jupiter/junit-jupiter-api").list())
+                .singleElement()
+                .satisfies(version -> assertThat(new File(bundle, "org/junit/jupiter/junit-jupiter-api/" + version).list())
+                        .contains("junit-jupiter-api-" + version + ".module", "junit-jupiter-api-" + version + ".pom"));
+
+        // when
+        var offline = ith.gradleRunner()
+                .withTestKitDir(new File(tempDir, "empty-gradle-user-home"))
+                .withArguments("jpi", "printResolution", "--offline",
+                        "-P" + PrefetchJenkinsDependenciesTask.BUNDLE_PROPERTY + "=build/jenkins-dependencies")
+                .build();
+
+        // then
+        assertThat(offline.task(":jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi")).exists();
+        assertThat(resolvedLines(offline.getOutput()))
+                .isNotEmpty()
+                .containsExactlyElementsOf(resolvedLines(prefetch.getOutput()));
+    }
+
+    @Test
+    void routedJenkinsModulesResolveFromBundleOffline() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.write(ith.inProjectDir("build.gradle.kts").toPath(), (/* language=kotlin */ """
+                import org.jenkinsci.gradle.plugins.jpi2.routeJenkinsModules
+
+                """ + getBasePluginConfig() + /* language=kotlin */ """
+                repositories {
+                    routeJenkinsModules()
+                }
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                }
+                """).getBytes(StandardCharsets.UTF_8));
+        ith.gradleRunner().withArguments(PrefetchJenkinsDependenciesTask.NAME).build();
+
+        // when
+        var offline = ith.gradleRunner()
+                .withTestKitDir(new File(tempDir, "empty-gradle-user-home"))
+                .withArguments("jpi", "--offline", "-P" + PrefetchJenkinsDependenciesTask.BUNDLE_PROPERTY + "=build/jenkins-dependencies")
+                .build();
+
+        // then
+        assertThat(offline.task(":jpi").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("build/jenkins-dependencies/org/jenkins-ci/plugins/structs/338.v848422169819")).isDirectory();
+        assertThat(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi")).exists();
+    }
+
+    private static List<String> resolvedLines(String output) {
+        return output.lines().filter(line -> line.startsWith("Resolved: ")).toList();
+    }
+}
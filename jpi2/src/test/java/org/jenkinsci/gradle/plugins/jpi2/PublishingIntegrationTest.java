@@ -52,6 +52,12 @@ class PublishingIntegrationTest extends V2IntegrationTestBase {
         assertThat(javadocJar).exists();
         assertThat(pom).exists();
         assertThat(module).exists();
+        assertThat(module).content()
+                .contains("\"name\": \"defaultRuntimeElements\"")
+                .contains("\"org.jenkinsci.gradle.plugins.jpi2.artifact.type\": \"default\"")
+                .contains("\"org.jenkinsci.gradle.plugins.jpi2.artifact.type\": \"pluginJar\"")
+                .contains("\"url\": \"test-plugin-1.0.0.jpi\"")
+                .doesNotContain("jenkins-hpl");
 
         MavenXpp3Reader reader = new MavenXpp3Reader();
         Model model = reader.read(new FileReader(pom));
@@ -262,7 +268,7 @@ class PublishingIntegrationTest extends V2IntegrationTestBase {
                     args("--httpPort=%d")
                 }
                 group = "com.example"
-                version = "1.0-rc1234.abc123"
+                version = "1.0-rc1234.0123456789ab"
                 publishing {
                     repositories {
                         publishToJenkins()
@@ -318,6 +324,58 @@ class PublishingIntegrationTest extends V2IntegrationTestBase {
         assertThat(result.getOutput()).contains("publishMavenJpiPublicationToJenkinsPublishRepository");
     }
 
+    @Test
+    void publishedVariantsResolveWithoutMetadataRules() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig(), StandardCharsets.UTF_8);
+        ith.gradleRunner().withArguments("publish").build();
+
+        // The consumer applies no jpi2 plugin, so neither HpiMetadataRule nor JpiVariantRule touches the metadata.
+        var consumer = new IntegrationTestHelper(ith.inProjectDir("consumer"), "8.14");
+        ith.mkDirInProjectDir("consumer");
+        Files.writeString(consumer.inProjectDir("settings.gradle.kts").toPath(), /* language=kotlin */ """
+                rootProject.name = "consumer"
+                """, StandardCharsets.UTF_8);
+        Files.writeString(consumer.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                plugins {
+                    `java-library`
+                }
+                repositories {
+                    maven { url = uri("${rootDir}/../build/repo") }
+                    mavenCentral()
+                }
+                val pluginArchive by configurations.creating {
+                    isCanBeConsumed = false
+                    attributes {
+                        attribute(Attribute.of("org.jenkinsci.gradle.plugins.jpi2.artifact.type", String::class.java), "default")
+                        attribute(Category.CATEGORY_ATTRIBUTE, objects.named(Category.LIBRARY))
+                    }
+                }
+                dependencies {
+                    implementation("com.example:test-plugin:1.0.0")
+                    pluginArchive("com.example:test-plugin:1.0.0")
+                }
+                val jars = configurations.runtimeClasspath.get().incoming.files
+                val archives = pluginArchive.incoming.files
+                tasks.register("printResolved") {
+                    doLast {
+                        println("Jars: " + jars.files.map { it.name }.sorted().joinToString(","))
+                        println("Archives: " + archives.files.map { it.name }.sorted().joinToString(","))
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var result = consumer.gradleRunner().withArguments("printResolved").build();
+
+        // then
+        assertThat(result.getOutput().lines())
+                .contains("Jars: test-plugin-1.0.0.jar")
+                .contains("Archives: test-plugin-1.0.0.jpi");
+    }
+
     @Test
     void consumesJpisWithJars() throws IOException {
         // given
@@ -0,0 +1,94 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class ReproducibleOutputsIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void rebuildingShouldProduceIdenticalArchives() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/Example.java").toPath(), /* language=java */ """
+                package com.example;
+                public class Example {}
+                """, StandardCharsets.UTF_8);
+        var jpi = ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi").toPath();
+        var jar = ith.inProjectDir("build/libs/test-plugin-1.0.0.jar").toPath();
+
+        // when
+        ith.gradleRunner().withArguments("jpi").build();
+        var firstJpi = Files.readAllBytes(jpi);
+        var firstJar = Files.readAllBytes(jar);
+        ith.gradleRunner().withArguments("clean", "jpi").build();
+
+        // then
+        assertThat(Files.readAllBytes(jpi)).isEqualTo(firstJpi);
+        assertThat(Files.readAllBytes(jar)).isEqualTo(firstJar);
+    }
+
+    @Test
+    void versionBumpShouldNotInvalidateDownstreamRuntimeClasspathTasks() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureTwoPluginsForVerification(ith);
+        Files.writeString(ith.inProjectDir("downstream/build.gradle.kts").toPath(), /* language=kotlin */ """
+                dependencies {
+                    "testImplementation"("org.junit.jupiter:junit-jupiter:5.12.2")
+                    "testRuntimeOnly"("org.junit.platform:junit-platform-launcher")
+                }
+                """, StandardOpenOption.APPEND);
+        ith.mkDirInProjectDir("downstream/src/test/java/com/example/downstream");
+        Files.writeString(ith.inProjectDir("downstream/src/test/java/com/example/downstream/ExampleTest.java").toPath(),
+                /* language=java */ """
+                        package com.example.downstream;
+                        class ExampleTest {
+                            @org.junit.jupiter.api.Test
+                            void upstreamIsOnTheClasspath() {
+                                new com.example.upstream.Example().hello();
+                            }
+                        }
+                        """, StandardCharsets.UTF_8);
+        var first = ith.gradleRunner().withArguments(":downstream:test", "--build-cache").build();
+        assertThat(first.task(":downstream:test").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+
+        // when
+        bumpVersion(ith.inProjectDir("upstream/build.gradle.kts").toPath());
+        bumpVersion(ith.inProjectDir("downstream/build.gradle.kts").toPath());
+        var second = ith.gradleRunner().withArguments(":downstream:test", "--build-cache").build();
+
+        // then
+        assertThat(second.task(":upstream:jar").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("upstream/build/libs/upstream-1.0.1.jar")).exists();
+        assertThat(second.task(":downstream:test").getOutcome())
+                .as("only the version in the upstream manifest changed")
+                .isEqualTo(TaskOutcome.UP_TO_DATE);
+
+        // when
+        deleteDirectory(ith.inProjectDir("downstream/build"));
+        var third = ith.gradleRunner().withArguments(":downstream:test", "--build-cache").build();
+
+        // then
+        assertThat(third.task(":downstream:test").getOutcome()).isEqualTo(TaskOutcome.FROM_CACHE);
+    }
+
+    private static void bumpVersion(Path buildFile) throws IOException {
+        var content = Files.readString(buildFile);
+        assertThat(content).contains("version = \"1.0.0\"");
+        Files.writeString(buildFile, content.replace("version = \"1.0.0\"", "version = \"1.0.1\""));
+    }
+}
@@ -0,0 +1,32 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+class RequiredPluginClosureTest {
+
+    @Test
+    void optionalPluginVersionsShouldOnlyListOptionalEntries() {
+        var versions = RequiredPluginClosure.optionalPluginVersions(
+                "git:5.7.0,structs:338.v848422169819;resolution:=optional, token-macro:400.v35420b_922dcb_;resolution:=optional");
+
+        assertThat(versions).containsExactly(
+                entry("structs", "338.v848422169819"),
+                entry("token-macro", "400.v35420b_922dcb_"));
+    }
+
+    @Test
+    void optionalPluginVersionsShouldTolerateEntriesWithoutVersion() {
+        var versions = RequiredPluginClosure.optionalPluginVersions("foo;resolution:=optional,bar:1.0;resolution:=optional");
+
+        assertThat(versions).containsExactly(entry("foo", ""), entry("bar", "1.0"));
+    }
+
+    @Test
+    void optionalPluginVersionsShouldIgnoreMissingAttribute() {
+        assertThat(RequiredPluginClosure.optionalPluginVersions(null)).isEmpty();
+        assertThat(RequiredPluginClosure.optionalPluginVersions(" ")).isEmpty();
+    }
+}
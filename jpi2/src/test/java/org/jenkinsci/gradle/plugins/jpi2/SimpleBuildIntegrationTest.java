@@ -1,11 +1,14 @@
 package org.jenkinsci.gradle.plugins.jpi2;
 
+import org.apache.commons.io.FileUtils;
 import org.gradle.testkit.runner.GradleRunner;
 import org.gradle.testkit.runner.TaskOutcome;
 import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.EnabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 
 import java.io.File;
@@ -13,8 +16,12 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.jar.Manifest;
+import java.util.zip.ZipFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -55,6 +62,139 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
                 .containsExactlyInAnyOrder("test-plugin-1.0.0.jar");
     }
 
+    @Test
+    void jpiShouldBePackedFromIncrementallyAssembledExplodedLayout() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("src/main/webapp/images");
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>help</div>");
+        Files.writeString(ith.inProjectDir("src/main/webapp/images/logo.svg").toPath(), "<svg/>");
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // when
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>more help</div>");
+        Files.delete(ith.inProjectDir("src/main/webapp/images/logo.svg").toPath());
+        var result = ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        assertThat(result.task(":" + V2JpiPlugin.EXPLODED_JPI_TASK).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        var explodedWar = ith.inProjectDir("build/jpi");
+        assertThat(new File(explodedWar, "help.html")).hasContent("<div>more help</div>");
+        assertThat(new File(explodedWar, "images/logo.svg")).doesNotExist();
+        assertThat(new File(explodedWar, "WEB-INF/lib/test-plugin-1.0.0.jar")).exists();
+
+        try (var jpi = new ZipFile(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"))) {
+            assertThat(new String(jpi.getInputStream(jpi.getEntry("help.html")).readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("<div>more help</div>");
+            assertThat(jpi.getEntry("images/logo.svg")).isNull();
+            assertThat(jpi.getEntry("WEB-INF/lib/test-plugin-1.0.0.jar")).isNotNull();
+            var manifest = new Manifest(jpi.getInputStream(jpi.getEntry("META-INF/MANIFEST.MF"))).getMainAttributes();
+            assertThat(manifest.getValue("Jenkins-Version")).isEqualTo("2.492.3");
+        }
+    }
+
+    @Test
+    void explodedJpiShouldOnlyReplaceTheChangedLibrary() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("com.github.rahulsom:nothing-java:0.2.0")
+                }
+                """, StandardCharsets.UTF_8);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        ith.mkDirInProjectDir("src/main/webapp");
+        var source = ith.inProjectDir("src/main/java/com/example/Example.java").toPath();
+        Files.writeString(source, /* language=java */ """
+                package com.example;
+                public class Example {}
+                """, StandardCharsets.UTF_8);
+        Files.writeString(ith.inProjectDir("src/main/webapp/help.html").toPath(), "<div>help</div>");
+        ith.gradleRunner().withArguments("jpi").build();
+        var layout = ith.inProjectDir("build/jpi").toPath();
+        var help = layout.resolve("help.html");
+        var library = layout.resolve("WEB-INF/lib/nothing-java-0.2.0.jar");
+        var pluginJar = layout.resolve("WEB-INF/lib/test-plugin-1.0.0.jar");
+        var marker = FileTime.from(Instant.parse("2000-01-01T00:00:00Z"));
+        for (var file : List.of(help, library, pluginJar)) {
+            Files.setLastModifiedTime(file, marker);
+        }
+
+        // when
+        Files.writeString(source, /* language=java */ """
+                package com.example;
+                public class Example {
+                    public static final String NAME = "changed";
+                }
+                """, StandardCharsets.UTF_8);
+        var result = ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        assertThat(result.task(":" + V2JpiPlugin.EXPLODED_JPI_TASK).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(Files.getLastModifiedTime(pluginJar)).isNotEqualTo(marker);
+        assertThat(Files.getLastModifiedTime(help)).isEqualTo(marker);
+        assertThat(Files.getLastModifiedTime(library)).isEqualTo(marker);
+        // Copied rather than linked, so the Gradle dependency cache and build/libs never share a file with the layout.
+        assertThat(Files.getAttribute(library, "unix:nlink")).isEqualTo(1);
+        assertThat(Files.getAttribute(pluginJar, "unix:nlink")).isEqualTo(1);
+    }
+
+    @Test
+    void jpiShouldRejectChangesToItsOwnCopySpec() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("extra");
+        Files.writeString(ith.inProjectDir("extra/notes.txt").toPath(), "notes");
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                tasks.named<org.jenkinsci.gradle.plugins.jpi2.ExplodedJpiTask>("explodedJpi") {
+                    webapp.from("extra")
+                }
+                """, StandardOpenOption.APPEND);
+
+        // when
+        ith.gradleRunner().withArguments("jpi").build();
+
+        // then
+        try (var jpi = new ZipFile(ith.inProjectDir("build/libs/test-plugin-1.0.0.jpi"))) {
+            assertThat(jpi.getEntry("notes.txt")).isNotNull();
+        }
+
+        // given
+        var buildFile = Files.readString(ith.inProjectDir("build.gradle.kts").toPath());
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                tasks.named<War>("jpi") {
+                    from("extra") {
+                        into("dropped")
+                    }
+                }
+                """, StandardOpenOption.APPEND);
+
+        // when
+        var added = ith.gradleRunner().withArguments("jpi").buildAndFail();
+
+        // then
+        assertThat(added.getOutput())
+                .contains("The jpi task packs the explodedJpi layout as it is")
+                .contains("Files added with from: ")
+                .contains("extra/notes.txt");
+
+        // given
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), buildFile + /* language=kotlin */ """
+                tasks.named<War>("jpi") {
+                    exclude("notes.txt")
+                }
+                """);
+
+        // when
+        var excluded = ith.gradleRunner().withArguments("jpi").buildAndFail();
+
+        // then
+        assertThat(excluded.getOutput()).contains("Files of the layout left out: notes.txt");
+    }
+
     @Test
     void simpleGradleBuildShouldGenerateHpl() throws IOException {
         // given
@@ -86,6 +226,43 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
         testServerStarts(gradleRunner, "server");
     }
 
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void serverShouldTakeOverJenkinsHomeLeftInWorkDirectory() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.mkDirInProjectDir("work/userContent");
+        ith.mkDirInProjectDir("work/plugins");
+        Files.writeString(ith.inProjectDir("work/config.xml").toPath(), /* language=xml */ """
+                <?xml version='1.1' encoding='UTF-8'?>
+                <hudson>
+                  <systemMessage>legacy home</systemMessage>
+                </hudson>
+                """, StandardCharsets.UTF_8);
+        Files.writeString(ith.inProjectDir("work/userContent/notes.txt").toPath(), "kept");
+        Files.writeString(ith.inProjectDir("work/plugins/old.txt").toPath(), "staged");
+
+        // when
+        var hplRun = testServerStarts(ith.gradleRunner(), "hplRun");
+
+        // then
+        assertThat(hplRun).contains("Found a Jenkins home from an older version of jpi2 in " + ith.inProjectDir("work").getAbsolutePath());
+        assertThat(ith.inProjectDir("work/config.xml")).exists();
+        assertThat(ith.inProjectDir("work/hplRun/userContent/notes.txt")).doesNotExist();
+
+        // when
+        var server = testServerStarts(ith.gradleRunner(), "server");
+
+        // then
+        assertThat(server).contains("Moved the Jenkins home found in " + ith.inProjectDir("work").getAbsolutePath());
+        assertThat(ith.inProjectDir("work/config.xml")).doesNotExist();
+        assertThat(ith.inProjectDir("work/server/config.xml")).exists();
+        assertThat(ith.inProjectDir("work/server/userContent/notes.txt")).hasContent("kept");
+        assertThat(ith.inProjectDir("work/plugins/old.txt")).exists();
+        assertThat(ith.inProjectDir("work/server/plugins/test-plugin.jpi")).exists();
+    }
+
     @Test
     void simpleGradleBuildShouldLaunchRun() throws IOException, InterruptedException {
         // given
@@ -98,7 +275,7 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
         testServerStarts(gradleRunner, "hplRun");
 
         // then
-        assertThat(ith.inProjectDir("work/plugins/test-plugin.hpl")).exists();
+        assertThat(ith.inProjectDir("work/hplRun/plugins/test-plugin.hpl")).exists();
     }
 
     @Test
@@ -110,8 +287,8 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
 
         testServerStarts(ith.gradleRunner(), "-P" + WorkDirectorySettings.PROPERTY + "=" + customWorkDir, "hplRun");
 
-        assertThat(customWorkDir.resolve("plugins/test-plugin.hpl")).exists();
-        assertThat(ith.inProjectDir("work/plugins/test-plugin.hpl")).doesNotExist();
+        assertThat(customWorkDir.resolve("hplRun/plugins/test-plugin.hpl")).exists();
+        assertThat(ith.inProjectDir("work/hplRun/plugins/test-plugin.hpl")).doesNotExist();
     }
 
     @Test
@@ -127,8 +304,77 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
 
         testServerStarts(ith.gradleRunner(), "hplRun");
 
-        assertThat(ith.inProjectDir("custom-work/plugins/test-plugin.hpl")).exists();
-        assertThat(ith.inProjectDir("work/plugins/test-plugin.hpl")).doesNotExist();
+        assertThat(ith.inProjectDir("custom-work/hplRun/plugins/test-plugin.hpl")).exists();
+        assertThat(ith.inProjectDir("work/hplRun/plugins/test-plugin.hpl")).doesNotExist();
+    }
+
+    @Test
+    void serverAndHplRunShouldStagePluginsIntoSeparateWorkDirectories() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+
+        // when
+        var first = ith.gradleRunner().withArguments("prepareServer", "prepareRun").build();
+        var second = ith.gradleRunner().withArguments("prepareRun", "prepareServer").build();
+
+        // then
+        assertThat(first.task(":prepareServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(first.task(":prepareRun").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("work/server/plugins/test-plugin.jpi")).exists();
+        assertThat(ith.inProjectDir("work/server/plugins/test-plugin.hpl")).doesNotExist();
+        assertThat(ith.inProjectDir("work/hplRun/plugins/test-plugin.hpl")).exists();
+        assertThat(ith.inProjectDir("work/hplRun/plugins/test-plugin.jpi")).doesNotExist();
+        assertThat(second.task(":prepareServer").getOutcome())
+                .as("prepareRun no longer clears what prepareServer staged")
+                .isEqualTo(TaskOutcome.UP_TO_DATE);
+        assertThat(second.task(":prepareRun").getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void generateJenkinsCdsShouldWriteKeyedArchive() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+
+        var first = ith.gradleRunner().withArguments(GenerateJenkinsCdsTask.TASK_NAME).build();
+        assertThat(first.task(":" + GenerateJenkinsCdsTask.TASK_NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("build/jenkins-cds/" + JenkinsCdsArchive.ARCHIVE_FILE_NAME)).isNotEmpty();
+        assertThat(ith.inProjectDir("build/jenkins-cds/" + JenkinsCdsArchive.KEY_FILE_NAME)).isNotEmpty();
+
+        var second = ith.gradleRunner().withArguments(GenerateJenkinsCdsTask.TASK_NAME).build();
+        assertThat(second.task(":" + GenerateJenkinsCdsTask.TASK_NAME).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void serverShouldUseCdsArchiveUntilDependencyPluginsChange() throws IOException, InterruptedException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuild(ith);
+        ith.gradleRunner().withArguments(GenerateJenkinsCdsTask.TASK_NAME).build();
+        var archive = ith.inProjectDir("build/jenkins-cds/" + JenkinsCdsArchive.ARCHIVE_FILE_NAME);
+
+        // when
+        var matching = testServerStarts(ith.gradleRunner(), "server", "--info");
+
+        // then
+        assertThat(matching).contains("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+
+        // given
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:structs:338.v848422169819")
+                }
+                """, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // when
+        var changed = testServerStarts(ith.gradleRunner(), "server", "--info");
+
+        // then
+        assertThat(changed)
+                .doesNotContain("-XX:SharedArchiveFile=")
+                .contains("No matching CDS archive; run " + GenerateJenkinsCdsTask.TASK_NAME);
     }
 
     @Test
@@ -143,6 +389,90 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
         testServerVerificationTask(gradleRunner, "testHplRun");
     }
 
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerShouldWriteStartupTimeline() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+
+        testServerVerificationTask(ith.gradleRunner(), "testServer", "-P" + TestServerTask.STARTUP_TIMELINE_PROPERTY + "=true");
+
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + StartupTimeline.JSON_FILE))
+                .content(StandardCharsets.UTF_8)
+                .contains("\"milestones\"", "Completed initialization", "\"tasks\"", "test-plugin");
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + StartupTimeline.HTML_FILE))
+                .content(StandardCharsets.UTF_8)
+                .contains("Jenkins startup timeline");
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerShouldWriteJenkinsOutputToLogFileInsteadOfConsole() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+        var log = ith.inProjectDir("build/test-server/testServer/" + JenkinsLogCapture.LOG_FILE);
+
+        // when
+        var result = ith.gradleRunner().withArguments("testServer").build();
+
+        // then
+        assertThat(result.getOutput()).contains("Jenkins is fully up and running");
+        assertThat(result.getOutput()).doesNotContain("Started initialization");
+        assertThat(log).content(StandardCharsets.UTF_8)
+                .contains("Started initialization", "Jenkins is fully up and running")
+                .doesNotContainPattern("Took \\d+ms for");
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + StartupTimeline.JSON_FILE)).doesNotExist();
+
+        // when
+        var full = ith.gradleRunner()
+                .withArguments("testServer", "--rerun-tasks", "-P" + TestServerTask.LOG_VERBOSITY_PROPERTY + "=full")
+                .build();
+
+        // then
+        assertThat(full.getOutput()).contains("Started initialization", "Jenkins is fully up and running");
+    }
+
+    @Test
+    @EnabledOnOs(value = OS.LINUX, disabledReason = "Resources are sampled from /proc")
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerShouldFailWhenResourceBudgetIsExceeded() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                tasks.named<org.jenkinsci.gradle.plugins.jpi2.TestServerTask>("testServer") {
+                    maxThreads = 1
+                }
+                """, StandardOpenOption.APPEND);
+
+        var result = ith.gradleRunner().withArguments("testServer").buildAndFail();
+
+        assertThat(result.getOutput()).contains("Jenkins exceeded its resource budget: peak thread count");
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + ProcessResourceSampler.REPORT_FILE))
+                .content(StandardCharsets.UTF_8)
+                .contains("\"peakRssMegabytes\"", "\"cpuSeconds\"", "\"peakThreads\"", "\"clockTicksPerSecond\"")
+                .doesNotContain("\"processes\": 0");
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerShouldProfileStartupWhenRequested() throws IOException {
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+
+        var result = ith.gradleRunner()
+                .withArguments("testServer", "-P" + TestServerTask.PROFILE_STARTUP_PROPERTY + "=true", "--info")
+                .build();
+
+        assertThat(result.getOutput())
+                .contains("Jenkins is fully up and running")
+                .contains("JFR.stop, name=" + ServerAction.STARTUP_RECORDING_NAME);
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + TestServerTask.STARTUP_RECORDING_FILE)).isNotEmpty();
+        assertThat(ith.inProjectDir("build/test-server/testServer/" + TestServerTask.STARTUP_PROFILE_FILE))
+                .content(StandardCharsets.UTF_8)
+                .contains("CPU samples by plugin or package", "Allocated bytes by plugin or package");
+    }
+
     @Test
     @Timeout(value = 15, unit = TimeUnit.MINUTES)
     void testServerIsCacheableAndInvalidatesOnSourceChange() throws IOException {
@@ -175,7 +505,7 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
 
         // Init scripts forwarded to the nested build affect its behavior. Keep them outside the
         // project tree so only the init-script inputs (not the build-config fileTree) can invalidate
-        // the cache, isolating that getInitScriptFiles (content) and getInitScriptPaths (order) work.
+        // the cache, isolating that getInitScriptFiles (content) and getInitScriptNames (order) work.
         var initDir = Files.createTempDirectory("jpi2-init-scripts");
         var scriptA = Files.writeString(initDir.resolve("a.gradle"), "// init script a v1\n").toAbsolutePath().toString();
         var scriptB = Files.writeString(initDir.resolve("b.gradle"), "// init script b\n").toAbsolutePath().toString();
@@ -199,13 +529,88 @@ class SimpleBuildIntegrationTest extends V2IntegrationTestBase {
                 .isEqualTo(TaskOutcome.SUCCESS);
 
         // Swap the order of two unchanged scripts: Gradle applies init scripts in command-line order,
-        // so the ordered path input (getInitScriptPaths) must invalidate the cache.
+        // so the ordered name input (getInitScriptNames) must invalidate the cache.
         var afterReorder = runner.withArguments("testServer", "--init-script", scriptB, "--init-script", scriptA, "--build-cache").build();
         assertThat(afterReorder.task(":testServer").getOutcome())
                 .as("reordering init scripts must invalidate the cache")
                 .isEqualTo(TaskOutcome.SUCCESS);
     }
 
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerResultIsReusedFromAnotherCheckout(@TempDir File otherCheckout) throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+        // The build script must not name the checkout directory, or the build-config input would differ.
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(),
+                getBasePluginConfigWithBuildscriptClasspath("plugin-under-test/jpi2-under-test.jar"), StandardCharsets.UTF_8);
+        ith.mkDirInProjectDir("gradle");
+        var initScript = ith.inProjectDir("gradle/init.gradle");
+        Files.writeString(initScript.toPath(), "// init script\n");
+        var first = ith.gradleRunner()
+                .withArguments("testServer", "--init-script", initScript.getAbsolutePath(), "--build-cache")
+                .build();
+        assertThat(first.task(":testServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+
+        FileUtils.copyDirectory(tempDir, otherCheckout,
+                file -> !List.of("build", ".gradle", "work").contains(file.getName()));
+        var other = new IntegrationTestHelper(otherCheckout, "8.14");
+
+        // when
+        var result = other.gradleRunner()
+                .withArguments("testServer", "--init-script", other.inProjectDir("gradle/init.gradle").getAbsolutePath(), "--build-cache")
+                .build();
+
+        // then
+        assertThat(result.task(":testServer").getOutcome())
+                .as("the cache key must not depend on the checkout directory, Gradle home or JDK path")
+                .isEqualTo(TaskOutcome.FROM_CACHE);
+        assertThat(result.getOutput()).doesNotContain("Jenkins is fully up and running");
+    }
+
+    @Test
+    @Timeout(value = 15, unit = TimeUnit.MINUTES)
+    void testServerDoesNotRelaunchWhenOnlyThePluginVersionChanged() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        configureSimpleBuildForVerification(ith);
+        // The version is read from a file outside the build-config inputs, like a Git-derived version.
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), /* language=kotlin */ """
+                jenkinsPlugin {
+                    versionSource.set(org.jenkinsci.gradle.plugins.jpi2.VersionSource.FIXED)
+                    fixedVersion.set(providers.fileContents(layout.projectDirectory.file("version.txt")).asText.map { it.trim() })
+                }
+                """, StandardOpenOption.APPEND);
+        var version = ith.inProjectDir("version.txt").toPath();
+        Files.writeString(version, "1.0.0-rc1.0123456789ab\n");
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        var source = ith.inProjectDir("src/main/java/com/example/Example.java").toPath();
+        Files.writeString(source, "package com.example; public class Example { public String hello() { return \"v1\"; } }\n");
+        var first = ith.gradleRunner().withArguments("testServer", "--build-cache").build();
+        assertThat(first.task(":testServer").getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+
+        // when
+        Files.writeString(version, "1.0.0-rc2.ba9876543210\n");
+        var versionBump = ith.gradleRunner().withArguments("testServer", "--build-cache").build();
+
+        // then
+        assertThat(ith.inProjectDir("build/libs/test-plugin-1.0.0-rc2.ba9876543210.jpi")).exists();
+        assertThat(versionBump.task(":" + FingerprintPluginsTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(versionBump.task(":testServer").getOutcome())
+                .as("a new version with the same content must not launch Jenkins again")
+                .isEqualTo(TaskOutcome.UP_TO_DATE);
+
+        // when
+        Files.writeString(source, "package com.example; public class Example { public String hello() { return \"v2\"; } }\n");
+        var contentChange = ith.gradleRunner().withArguments("testServer", "--build-cache").build();
+
+        // then
+        assertThat(contentChange.task(":testServer").getOutcome())
+                .as("changed plugin content must launch Jenkins again")
+                .isEqualTo(TaskOutcome.SUCCESS);
+    }
+
     private void assertVerificationTaskInvalidatesOnBuildScriptChange(String task) throws IOException {
         var ith = new IntegrationTestHelper(tempDir, "8.14");
         configureSimpleBuildForVerification(ith);
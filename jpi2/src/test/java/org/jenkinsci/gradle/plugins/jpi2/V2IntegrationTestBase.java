@@ -27,8 +27,10 @@ import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -162,7 +164,10 @@ abstract class V2IntegrationTestBase {
         }
     }
 
-    static void testServerStarts(GradleRunner gradleRunner, String... task) throws InterruptedException {
+    /**
+     * @return the output of the build up to the point Jenkins was up
+     */
+    static String testServerStarts(GradleRunner gradleRunner, String... task) throws InterruptedException {
         var stdout1 = new StringWriter();
         var stdout2 = new StringWriter();
         var stdout = new TapWriter(stdout1, stdout2);
@@ -198,9 +203,10 @@ abstract class V2IntegrationTestBase {
         assertThat(terminatedSafely).isTrue();
         assertThat(buildResult.get()).isNull();
         assertThat(stderr2.toString()).contains("Jenkins is fully up and running");
+        return stdout2 + "\n" + stderr2;
     }
 
-    static void testServerVerificationTask(GradleRunner gradleRunner, String task) {
+    static void testServerVerificationTask(GradleRunner gradleRunner, String... task) {
         var result = gradleRunner.withArguments(task).build();
         assertThat(result.getOutput()).contains("Jenkins is fully up and running");
         assertThat(result.getOutput()).contains("BUILD SUCCESSFUL");
@@ -402,6 +408,88 @@ abstract class V2IntegrationTestBase {
         assertThat(actualDeps).containsExactlyElementsOf(expectedDeps);
     }
 
+    /**
+     * Publishes a plugin into a local Maven repository, with a POM of packaging {@code hpi}, its {@code .hpi} and its
+     * {@code .jar}.
+     *
+     * @param repository         root of the Maven repository
+     * @param coordinates        {@code group:name:version} of the plugin
+     * @param pluginDependencies value of the {@code Plugin-Dependencies} manifest attribute, may be empty
+     * @param pomDependencies    {@code group:name:version} of the runtime dependencies in the POM
+     */
+    static void publishPlugin(File repository, String coordinates, String pluginDependencies, String... pomDependencies) throws IOException {
+        var parts = coordinates.split(":");
+        var manifest = new Manifest();
+        var attributes = manifest.getMainAttributes();
+        attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        attributes.putValue("Short-Name", parts[1]);
+        attributes.putValue("Plugin-Version", parts[2]);
+        attributes.putValue("Jenkins-Version", "2.492.3");
+        if (!pluginDependencies.isEmpty()) {
+            attributes.putValue("Plugin-Dependencies", pluginDependencies);
+        }
+        var directory = publishPom(repository, coordinates, "hpi", pomDependencies);
+        var base = parts[1] + "-" + parts[2];
+        try (var jar = new JarOutputStream(Files.newOutputStream(new File(directory, base + ".jar").toPath()), manifest)) {
+            jar.putNextEntry(new JarEntry("index.jelly"));
+            jar.write("<div/>".getBytes(StandardCharsets.UTF_8));
+            jar.closeEntry();
+        }
+        try (var hpi = new JarOutputStream(Files.newOutputStream(new File(directory, base + ".hpi").toPath()), manifest)) {
+            hpi.putNextEntry(new JarEntry("WEB-INF/lib/" + base + ".jar"));
+            Files.copy(new File(directory, base + ".jar").toPath(), hpi);
+            hpi.closeEntry();
+        }
+    }
+
+    /**
+     * Publishes a library into a local Maven repository.
+     *
+     * @param repository  root of the Maven repository
+     * @param coordinates {@code group:name:version} of the library
+     * @param entries     names of the empty entries of the jar, such as {@code com/example/Foo.class}
+     */
+    static void publishLibrary(File repository, String coordinates, String... entries) throws IOException {
+        var parts = coordinates.split(":");
+        var directory = publishPom(repository, coordinates, "jar");
+        try (var jar = new JarOutputStream(Files.newOutputStream(new File(directory, parts[1] + "-" + parts[2] + ".jar").toPath()))) {
+            for (var entry : entries) {
+                jar.putNextEntry(new JarEntry(entry));
+                jar.closeEntry();
+            }
+        }
+    }
+
+    private static File publishPom(File repository, String coordinates, String packaging, String... dependencies) throws IOException {
+        var parts = coordinates.split(":");
+        var directory = new File(repository, parts[0].replace('.', '/') + "/" + parts[1] + "/" + parts[2]);
+        Files.createDirectories(directory.toPath());
+        var pomDependencies = new StringBuilder();
+        for (var dependency : dependencies) {
+            var dependencyParts = dependency.split(":");
+            pomDependencies.append("""
+                        <dependency>
+                          <groupId>%s</groupId>
+                          <artifactId>%s</artifactId>
+                          <version>%s</version>
+                        </dependency>
+                    """.formatted(dependencyParts[0], dependencyParts[1], dependencyParts[2]));
+        }
+        Files.writeString(new File(directory, parts[1] + "-" + parts[2] + ".pom").toPath(), /* language=xml */ """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <project xmlns="http://maven.apache.org/POM/4.0.0">
+                  <modelVersion>4.0.0</modelVersion>
+                  <groupId>%s</groupId>
+                  <artifactId>%s</artifactId>
+                  <version>%s</version>
+                  <packaging>%s</packaging>
+                  <dependencies>
+                %s  </dependencies>
+                </project>
+                """.formatted(parts[0], parts[1], parts[2], packaging, pomDependencies), StandardCharsets.UTF_8);
+        return directory;
+    }
+
     @SuppressWarnings("unused")
     static File repro() {
         var file = new File("/tmp/repro");
@@ -0,0 +1,135 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.gradle.testkit.runner.TaskOutcome;
+import org.jenkinsci.gradle.plugins.jpi.IntegrationTestHelper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisabledOnOs(value = OS.WINDOWS, disabledReason = "TempDir doesn't appear to work correctly on Windows")
+class VerifyPluginLoadIntegrationTest extends V2IntegrationTestBase {
+
+    @Test
+    void verifyPluginLoadResolvesExtensionsAgainstJenkinsCoreAndDependencies() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    implementation("org.jenkins-ci.plugins:git:5.7.0")
+                }
+                """, StandardCharsets.UTF_8);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/ExampleExtension.java").toPath(), /* language=java */ """
+                package com.example;
+                @hudson.Extension
+                public class ExampleExtension extends hudson.plugins.git.extensions.GitSCMExtensionDescriptor {
+                    @Override
+                    public String getDisplayName() {
+                        return "Example";
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var first = ith.gradleRunner().withArguments(VerifyPluginLoadTask.NAME).build();
+        var second = ith.gradleRunner().withArguments(VerifyPluginLoadTask.NAME).build();
+
+        // then
+        assertThat(first.task(":" + VerifyPluginLoadTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(second.task(":" + VerifyPluginLoadTask.NAME).getOutcome()).isEqualTo(TaskOutcome.UP_TO_DATE);
+        assertThat(ith.inProjectDir("build/verify-plugin-load/index-entries.txt"))
+                .content(StandardCharsets.UTF_8)
+                .contains("@hudson.Extension com.example.ExampleExtension");
+    }
+
+    @Test
+    void verifyPluginLoadFailsForExtensionReferencingMissingClass() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    compileOnly("org.apache.commons:commons-text:1.13.0")
+                }
+                """, StandardCharsets.UTF_8);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/ExampleExtension.java").toPath(), /* language=java */ """
+                package com.example;
+                @hudson.Extension
+                public class ExampleExtension {
+                    public org.apache.commons.text.StringSubstitutor substitutor() {
+                        return new org.apache.commons.text.StringSubstitutor();
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var result = ith.gradleRunner().withArguments("testServer").buildAndFail();
+
+        // then
+        assertThat(result.task(":" + VerifyPluginLoadTask.NAME).getOutcome()).isEqualTo(TaskOutcome.FAILED);
+        assertThat(result.task(":testServer")).isNull();
+        assertThat(result.getOutput())
+                .contains("Jenkins would fail to load test-plugin-1.0.0.jpi")
+                .contains("@hudson.Extension com.example.ExampleExtension")
+                .contains("org/apache/commons/text/StringSubstitutor");
+    }
+
+    @Test
+    void verifyPluginLoadOnlyReportsOptionalExtensionReferencingMissingClass() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig() + /* language=kotlin */ """
+                dependencies {
+                    compileOnly("org.apache.commons:commons-text:1.13.0")
+                }
+                """, StandardCharsets.UTF_8);
+        ith.mkDirInProjectDir("src/main/java/com/example");
+        Files.writeString(ith.inProjectDir("src/main/java/com/example/ExampleExtension.java").toPath(), /* language=java */ """
+                package com.example;
+                @hudson.Extension(optional = true)
+                public class ExampleExtension {
+                    public org.apache.commons.text.StringSubstitutor substitutor() {
+                        return new org.apache.commons.text.StringSubstitutor();
+                    }
+                }
+                """, StandardCharsets.UTF_8);
+
+        // when
+        var result = ith.gradleRunner().withArguments(VerifyPluginLoadTask.NAME).build();
+
+        // then
+        assertThat(result.task(":" + VerifyPluginLoadTask.NAME).getOutcome()).isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(ith.inProjectDir("build/verify-plugin-load/index-entries.txt"))
+                .content(StandardCharsets.UTF_8)
+                .contains("@hudson.Extension com.example.ExampleExtension is optional and would be skipped")
+                .contains("org/apache/commons/text/StringSubstitutor");
+    }
+
+    @Test
+    void testServerShouldNotVerifyPluginLoadWhenDisabled() throws IOException {
+        // given
+        var ith = new IntegrationTestHelper(tempDir, "8.14");
+        initBuild(ith);
+        Files.writeString(ith.inProjectDir("build.gradle.kts").toPath(), getBasePluginConfig(), StandardCharsets.UTF_8);
+
+        // when
+        var enabled = ith.gradleRunner().withArguments("testServer", "--dry-run").build();
+        var disabled = ith.gradleRunner()
+                .withArguments("testServer", "--dry-run", "-P" + VerifyPluginLoadTask.BEFORE_TEST_SERVER_PROPERTY + "=false")
+                .build();
+
+        // then
+        assertThat(enabled.getOutput()).contains(":" + VerifyPluginLoadTask.NAME + " SKIPPED");
+        assertThat(disabled.getOutput()).doesNotContain(":" + VerifyPluginLoadTask.NAME + " ");
+        assertThat(disabled.getOutput()).contains(":testServer SKIPPED");
+    }
+}
@@ -0,0 +1,34 @@
+package org.jenkinsci.gradle.plugins.jpi2;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VerifyPluginLoadTaskTest {
+
+    @Test
+    void compareVersionsShouldCompareNumericComponentsAsNumbers() {
+        assertThat(VerifyPluginLoadTask.compareVersions("5.7.0", "5.10.0")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("2.492.3", "2.479")).isPositive();
+        assertThat(VerifyPluginLoadTask.compareVersions("2.492", "2.492.0")).isZero();
+    }
+
+    @Test
+    void compareVersionsShouldOrderPreReleasesBeforeTheRelease() {
+        assertThat(VerifyPluginLoadTask.compareVersions("2.492.3-rc1", "2.492.3")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("2.492.3-rc1", "2.492.2")).isPositive();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-beta-2", "1.0")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-beta-2", "1.0-beta-10")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-alpha-1", "1.0-beta-1")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-beta-2", "1.0-rc1")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-SNAPSHOT", "1.0")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-RC1", "1.0-rc1")).isZero();
+    }
+
+    @Test
+    void compareVersionsShouldOrderOtherQualifiersAfterTheRelease() {
+        assertThat(VerifyPluginLoadTask.compareVersions("338.v848422169819", "338")).isPositive();
+        assertThat(VerifyPluginLoadTask.compareVersions("338.v848422169819", "339.v0123456789ab")).isNegative();
+        assertThat(VerifyPluginLoadTask.compareVersions("1.0-jenkins-1", "1.0")).isPositive();
+    }
+}